@@ -0,0 +1,471 @@
+package Parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Batched multiplication of many independent small products (8x8 up to about 128x128). A per-call multiply
+// spends most of its time on fork-join dispatch, allocation and kernel edge handling at these sizes; here the
+// operands of a batch are packed into three contiguous strided buffers, one kernel is picked for the shape,
+// and the batch is split across the pool by whole products only.
+//
+// Coalescer sits in front of it for services whose callers arrive one product at a time, typically on virtual
+// threads: concurrent submissions of the same shape are gathered into one batch, which is run as soon as it is
+// full or the oldest request has waited for the latency window.
+public final class BatchedMatrixMul {
+
+    // Multiply-adds per fork-join task: a whole 64x64 product, so tasks never get smaller than their dispatch
+    private static final long TASK_FLOPS = 64L * 64 * 64;
+
+    private BatchedMatrixMul() {
+    }
+
+    // Products C_p = A_p * B_p of one shape, packed back to back: A_p is the m x k row-major block starting at
+    // p * m * k of a, and likewise for b and c. Callers fill the buffers directly or through setA and setB.
+    public static class Batch {
+        final int capacity;
+        final int m, k, n;
+        final double[] a, b, c;
+
+        public Batch(int capacity, int m, int k, int n) {
+            if (capacity < 1 || m < 1 || k < 1 || n < 1) {
+                throw new IllegalArgumentException("Batch capacity and matrix dimensions must be positive.");
+            }
+            this.capacity = capacity;
+            this.m = m;
+            this.k = k;
+            this.n = n;
+            this.a = new double[Math.multiplyExact(capacity, m * k)];
+            this.b = new double[Math.multiplyExact(capacity, k * n)];
+            this.c = new double[Math.multiplyExact(capacity, m * n)];
+        }
+
+        public void setA(int index, double[] values) {
+            System.arraycopy(values, 0, a, index * getStrideA(), getStrideA());
+        }
+
+        public void setB(int index, double[] values) {
+            System.arraycopy(values, 0, b, index * getStrideB(), getStrideB());
+        }
+
+        // Copies product index of C into out
+        public double[] getC(int index, double[] out) {
+            System.arraycopy(c, index * getStrideC(), out, 0, getStrideC());
+            return out;
+        }
+
+        public double[] getA() {
+            return a;
+        }
+
+        public double[] getB() {
+            return b;
+        }
+
+        public double[] getC() {
+            return c;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public int getStrideA() {
+            return m * k;
+        }
+
+        public int getStrideB() {
+            return k * n;
+        }
+
+        public int getStrideC() {
+            return m * n;
+        }
+    }
+
+    // Kernel chosen once per batch from the width of C
+    enum Kernel {
+        VECTOR_WIDE,      // n a multiple of two vectors: 4 x 2-vector register tiles
+        VECTOR_NARROW,    // n a multiple of one vector: 4 x 1-vector register tiles
+        BLOCKED           // Any other width: clear C, then the general blocked kernel with scalar edges
+    }
+
+    static Kernel kernelFor(int n) {
+        if (ParallelMatrixMul.VECTOR_ENABLED && n % (2 * VectorKernels.LANES) == 0) {
+            return Kernel.VECTOR_WIDE;
+        }
+        if (ParallelMatrixMul.VECTOR_ENABLED && n % VectorKernels.LANES == 0) {
+            return Kernel.VECTOR_NARROW;
+        }
+        return Kernel.BLOCKED;
+    }
+
+    // Method to compute every product of the batch on the common fork-join pool
+    public static void multiply(Batch batch) {
+        multiply(batch, batch.capacity, ForkJoinPool.commonPool());
+    }
+
+    // Method to compute the first count products of the batch; small batches run on the calling thread
+    public static void multiply(Batch batch, int count, ForkJoinPool pool) {
+        if (count < 0 || count > batch.capacity) {
+            throw new IllegalArgumentException("Batch holds " + batch.capacity + " products, not " + count + ".");
+        }
+        Kernel kernel = kernelFor(batch.n);
+        int grain = (int) Math.max(1, TASK_FLOPS / ((long) batch.m * batch.k * batch.n));
+        if (count <= grain || pool.getParallelism() == 1) {
+            multiplyRange(batch, kernel, 0, count);
+        } else {
+            pool.invoke(new BatchTask(batch, kernel, grain, 0, count));
+        }
+    }
+
+    // Products [from, to) of the batch
+    static void multiplyRange(Batch batch, Kernel kernel, int from, int to) {
+        int m = batch.m, k = batch.k, n = batch.n;
+        int strideA = m * k, strideB = k * n, strideC = m * n;
+        switch (kernel) {
+            case VECTOR_WIDE:
+                for (int p = from; p < to; p++) {
+                    VectorKernels.multiplySmallWide(batch.a, p * strideA, batch.b, p * strideB,
+                            batch.c, p * strideC, m, k, n);
+                }
+                break;
+            case VECTOR_NARROW:
+                for (int p = from; p < to; p++) {
+                    VectorKernels.multiplySmallNarrow(batch.a, p * strideA, batch.b, p * strideB,
+                            batch.c, p * strideC, m, k, n);
+                }
+                break;
+            default:
+                Arrays.fill(batch.c, from * strideC, to * strideC, 0.0);
+                for (int p = from; p < to; p++) {
+                    ParallelMatrixMul.multiplyBlock(batch.a, p * strideA, k, batch.b, p * strideB, n,
+                            batch.c, p * strideC, n, 0, m, 0, n, 0, k);
+                }
+        }
+    }
+
+    // Halves the range of products until it is down to the grain
+    private static class BatchTask extends RecursiveAction {
+        private final Batch batch;
+        private final Kernel kernel;
+        private final int grain, from, to;
+
+        BatchTask(Batch batch, Kernel kernel, int grain, int from, int to) {
+            this.batch = batch;
+            this.kernel = kernel;
+            this.grain = grain;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                multiplyRange(batch, kernel, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(batch, kernel, grain, from, middle),
+                    new BatchTask(batch, kernel, grain, middle, to));
+        }
+    }
+
+    // Counters of a coalescer since it was created
+    public static class Stats {
+        public final long requests;
+        public final long batches;
+        public final int largestBatch;
+        public final long queueNanos;          // Time from submission to the start of its batch, summed
+        public final long computeNanos;        // Time spent packing, multiplying and unpacking batches
+
+        Stats(long requests, long batches, int largestBatch, long queueNanos, long computeNanos) {
+            this.requests = requests;
+            this.batches = batches;
+            this.largestBatch = largestBatch;
+            this.queueNanos = queueNanos;
+            this.computeNanos = computeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests in %d batches (mean %.1f, largest %d), mean queueing %.1f us, "
+                            + "compute %d ms", requests, batches, batches == 0 ? 0.0 : (double) requests / batches,
+                    largestBatch, requests == 0 ? 0.0 : queueNanos / 1e3 / requests, computeNanos / 1_000_000);
+        }
+    }
+
+    // Gathers single products submitted concurrently into batches of their shape. One dispatcher thread runs
+    // the batches, so while it is busy the next batches fill up by themselves; a request waits at most the
+    // latency window, plus the batches ahead of it, before its batch starts. Waiting callers only park on
+    // their future, so virtual threads are released to their carrier meanwhile.
+    public static final class Coalescer implements AutoCloseable {
+        private final int maxBatch;
+        private final long windowNanos;
+        private final ForkJoinPool pool;
+
+        private final ReentrantLock lock = new ReentrantLock();    // Not synchronized: it would pin virtual threads
+        private final Condition changed = lock.newCondition();
+        private final Map<Shape, Group> groups = new HashMap<>();
+        private final Thread dispatcher;
+        private boolean closed;
+
+        // Dispatcher-only counters, published under the lock
+        private long requests, batches, queueNanos, computeNanos;
+        private int largestBatch;
+
+        public Coalescer(int maxBatch, long window, TimeUnit unit, ForkJoinPool pool) {
+            if (maxBatch < 1 || window < 0) {
+                throw new IllegalArgumentException("Batch size must be positive and the window non-negative.");
+            }
+            this.maxBatch = maxBatch;
+            this.windowNanos = unit.toNanos(window);
+            this.pool = pool;
+            this.dispatcher = new Thread(this::dispatch, "batch-dispatcher");
+            this.dispatcher.setDaemon(true);
+            this.dispatcher.start();
+        }
+
+        // Method to queue C = A * B for row-major a (m x k) and b (k x n); the future completes with C
+        public CompletableFuture<double[]> submit(double[] a, double[] b, int m, int k, int n) {
+            if (m < 1 || k < 1 || n < 1 || a.length != m * k || b.length != k * n) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+            }
+            Request request = new Request(a, b, System.nanoTime());
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Coalescer is closed.");
+                }
+                Group group = groups.computeIfAbsent(new Shape(m, k, n), Group::new);
+                group.pending.add(request);
+                // A new deadline or a full batch is all the dispatcher needs to hear about
+                if (group.pending.size() == 1 || group.pending.size() == maxBatch) {
+                    changed.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return request.result;
+        }
+
+        // Method to compute C = A * B through the batches, blocking the caller until it is done
+        public double[] multiply(double[] a, double[] b, int m, int k, int n) {
+            return submit(a, b, m, k, n).join();
+        }
+
+        public Stats getStats() {
+            lock.lock();
+            try {
+                return new Stats(requests, batches, largestBatch, queueNanos, computeNanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Runs what is still queued, then stops the dispatcher
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void dispatch() {
+            List<Group> ready = new ArrayList<>();
+            List<List<Request>> taken = new ArrayList<>();
+            while (true) {
+                lock.lock();
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        long wait = Long.MAX_VALUE;
+                        for (Group group : groups.values()) {
+                            if (group.pending.isEmpty()) {
+                                continue;
+                            }
+                            long waited = now - group.pending.get(0).submitted;
+                            if (closed || group.pending.size() >= maxBatch || waited >= windowNanos) {
+                                ready.add(group);
+                                taken.add(group.pending);
+                                group.pending = new ArrayList<>();
+                            } else {
+                                wait = Math.min(wait, windowNanos - waited);
+                            }
+                        }
+                        if (!ready.isEmpty()) {
+                            break;
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        if (wait == Long.MAX_VALUE) {
+                            changed.awaitUninterruptibly();
+                        } else {
+                            changed.awaitNanos(wait);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Only close() stops the dispatcher; queued futures still have to complete
+                    continue;
+                } finally {
+                    lock.unlock();
+                }
+
+                for (int g = 0; g < ready.size(); g++) {
+                    List<Request> pending = taken.get(g);
+                    for (int from = 0; from < pending.size(); from += maxBatch) {
+                        run(ready.get(g), pending.subList(from, Math.min(pending.size(), from + maxBatch)));
+                    }
+                }
+                ready.clear();
+                taken.clear();
+            }
+        }
+
+        // Packs the requests into the group's buffers, multiplies them and hands every caller its own C
+        private void run(Group group, List<Request> requests) {
+            long start = System.nanoTime();
+            long queued = 0;
+            int count = requests.size();
+            if (group.batch == null || group.batch.capacity < count) {
+                group.batch = new Batch(maxBatch, group.m, group.k, group.n);
+            }
+            Batch batch = group.batch;
+            for (int p = 0; p < count; p++) {
+                Request request = requests.get(p);
+                batch.setA(p, request.a);
+                batch.setB(p, request.b);
+                queued += start - request.submitted;
+            }
+            try {
+                BatchedMatrixMul.multiply(batch, count, pool);
+                for (int p = 0; p < count; p++) {
+                    requests.get(p).result.complete(batch.getC(p, new double[batch.getStrideC()]));
+                }
+            } catch (RuntimeException | Error e) {
+                for (Request request : requests) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            lock.lock();
+            try {
+                this.requests += count;
+                this.batches++;
+                this.largestBatch = Math.max(largestBatch, count);
+                this.queueNanos += queued;
+                this.computeNanos += elapsed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private record Shape(int m, int k, int n) {
+        }
+
+        // Requests of one shape waiting for their batch, and the buffers that batch is packed into
+        private static final class Group {
+            final int m, k, n;
+            List<Request> pending = new ArrayList<>();
+            Batch batch;
+
+            Group(Shape shape) {
+                this.m = shape.m();
+                this.k = shape.k();
+                this.n = shape.n();
+            }
+        }
+
+        private record Request(double[] a, double[] b, long submitted, CompletableFuture<double[]> result) {
+            Request(double[] a, double[] b, long submitted) {
+                this(a, b, submitted, new CompletableFuture<>());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+        System.out.println("Products per second, one call per product against one batch ("
+                + (ParallelMatrixMul.VECTOR_ENABLED ? "SIMD" : "scalar") + " kernels):");
+        for (int size : new int[]{8, 16, 24, 32, 64, 100, 128}) {
+            int count = (int) Math.max(64, 200_000_000L / ((long) size * size * size));
+            Batch batch = new Batch(count, size, size, size);
+            for (int i = 0; i < batch.a.length; i++) {
+                batch.a[i] = random.nextDouble();
+                batch.b[i] = random.nextDouble();
+            }
+            ParallelMatrixMul.DenseMatrix[] left = new ParallelMatrixMul.DenseMatrix[count];
+            ParallelMatrixMul.DenseMatrix[] right = new ParallelMatrixMul.DenseMatrix[count];
+            for (int p = 0; p < count; p++) {
+                left[p] = new ParallelMatrixMul.DenseMatrix(
+                        Arrays.copyOfRange(batch.a, p * size * size, (p + 1) * size * size), size, size);
+                right[p] = new ParallelMatrixMul.DenseMatrix(
+                        Arrays.copyOfRange(batch.b, p * size * size, (p + 1) * size * size), size, size);
+            }
+
+            long single = Long.MAX_VALUE, batched = Long.MAX_VALUE;
+            double error = 0.0;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                ParallelMatrixMul.DenseMatrix last = null;
+                for (int p = 0; p < count; p++) {
+                    last = left[p].multiply(right[p]);
+                }
+                single = Math.min(single, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                multiply(batch);
+                batched = Math.min(batched, System.nanoTime() - start);
+
+                double[] check = batch.getC(count - 1, new double[size * size]);
+                for (int i = 0; i < check.length; i++) {
+                    error = Math.max(error, Math.abs(check[i] - last.values[i]));
+                }
+            }
+            System.out.printf("  %3dx%-3d x %6d: %,10.0f per call, %,10.0f batched (%s), max difference %.1e%n",
+                    size, size, count, count / (single / 1e9), count / (batched / 1e9), kernelFor(size), error);
+        }
+
+        // Thousands of virtual threads, each with a single 16x16 product
+        int callers = 20_000, size = 16;
+        double[] a = new double[size * size], b = new double[size * size];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextDouble();
+            b[i] = random.nextDouble();
+        }
+        for (int run = 0; run < 3; run++) {
+            try (Coalescer coalescer = new Coalescer(256, 200, TimeUnit.MICROSECONDS, ForkJoinPool.commonPool())) {
+                long start = System.nanoTime();
+                try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int t = 0; t < callers; t++) {
+                        executor.submit(() -> coalescer.multiply(a, b, size, size, size));
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%d virtual-thread callers in %.1f ms: %s%n", callers, elapsed / 1e6,
+                        coalescer.getStats());
+            }
+        }
+    }
+}
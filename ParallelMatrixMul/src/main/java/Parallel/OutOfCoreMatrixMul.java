@@ -0,0 +1,375 @@
+package Parallel;
+
+import Parallel.ParallelMatrixMul.DenseMatrix;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Out-of-core dense multiplication: A, B and C live in memory-mapped row-major files of little-endian doubles
+// and only square tiles of them are ever held on the heap.
+//
+// The tile edge is derived from a memory budget that covers five tiles: the A and B tiles being multiplied,
+// the next A and B tiles being prefetched on a background thread, and the C tile being accumulated. Heap use
+// therefore stays fixed however large the files grow; the mapped pages belong to the OS page cache, which
+// reads them in on demand and drops them under memory pressure.
+public class OutOfCoreMatrixMul {
+
+    static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final int TILES_IN_BUDGET = 5;
+
+    private OutOfCoreMatrixMul() {
+    }
+
+    // Dense row-major matrix backed by a memory-mapped file; valid until the arena it was mapped with is closed.
+    // Tiles are read on a background thread, so multiply() needs an arena that is not confined to one thread.
+    public static class MappedDenseMatrix {
+        final MemorySegment segment;
+        final int rows, cols;
+
+        MappedDenseMatrix(MemorySegment segment, int rows, int cols) {
+            this.segment = segment;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        // Method to create (or truncate) a file for a rows x cols matrix and map it for reading and writing
+        public static MappedDenseMatrix create(Path path, int rows, int cols, Arena arena) throws IOException {
+            long bytes = Math.multiplyExact((long) rows * cols, Double.BYTES);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (bytes > 0) {
+                    // Extend the file sparsely; pages are only allocated when written
+                    channel.write(ByteBuffer.allocate(1), bytes - 1);
+                }
+                return new MappedDenseMatrix(channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena), rows, cols);
+            }
+        }
+
+        // Method to map an existing file holding a rows x cols matrix
+        public static MappedDenseMatrix open(Path path, int rows, int cols, Arena arena) throws IOException {
+            long bytes = Math.multiplyExact((long) rows * cols, Double.BYTES);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() != bytes) {
+                    throw new IOException(path + " holds " + channel.size() + " bytes, expected " + bytes
+                            + " for a " + rows + "x" + cols + " matrix.");
+                }
+                return new MappedDenseMatrix(channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes, arena), rows, cols);
+            }
+        }
+
+        // Method to write an in-memory matrix to a new file and map it
+        public static MappedDenseMatrix of(DenseMatrix matrix, Path path, Arena arena) throws IOException {
+            MappedDenseMatrix mapped = create(path, matrix.rows, matrix.cols, arena);
+            MemorySegment.copy(matrix.values, 0, mapped.segment, DOUBLE, 0, matrix.values.length);
+            return mapped;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public double get(int i, int j) {
+            return segment.getAtIndex(DOUBLE, (long) i * cols + j);
+        }
+
+        public void set(int i, int j, double value) {
+            segment.setAtIndex(DOUBLE, (long) i * cols + j, value);
+        }
+
+        // Method to copy the matrix onto the heap; only for matrices that fit there
+        public DenseMatrix toDense() {
+            DenseMatrix matrix = new DenseMatrix(rows, cols);
+            MemorySegment.copy(segment, DOUBLE, 0, matrix.values, 0, matrix.values.length);
+            return matrix;
+        }
+
+        // Copies the height x width block at (row, col) into the top-left corner of a tile with leading dimension ld
+        long readTile(int row, int col, int height, int width, double[] tile, int ld) {
+            for (int i = 0; i < height; i++) {
+                MemorySegment.copy(segment, DOUBLE, ((long) (row + i) * cols + col) * Double.BYTES, tile, i * ld, width);
+            }
+            return (long) height * width * Double.BYTES;
+        }
+
+        // Copies the top-left height x width corner of a tile back to the block at (row, col)
+        long writeTile(int row, int col, int height, int width, double[] tile, int ld) {
+            for (int i = 0; i < height; i++) {
+                MemorySegment.copy(tile, i * ld, segment, DOUBLE, ((long) (row + i) * cols + col) * Double.BYTES, width);
+            }
+            return (long) height * width * Double.BYTES;
+        }
+    }
+
+    // Counters of one out-of-core run
+    public static class Stats {
+        public final int tile;                 // Tile edge in elements
+        public final long bufferBytes;         // Heap held by the tile buffers
+        public final long bytesRead;           // Bytes of A and B copied out of the mappings
+        public final long bytesWritten;        // Bytes of C copied into its mapping
+        public final long ioWaitNanos;         // Time the compute loop waited for a prefetch to finish
+        public final long elapsedNanos;
+
+        Stats(int tile, long bufferBytes, long bytesRead, long bytesWritten, long ioWaitNanos, long elapsedNanos) {
+            this.tile = tile;
+            this.bufferBytes = bufferBytes;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.ioWaitNanos = ioWaitNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("tile %d (%d MB of buffers), read %d MB, written %d MB, I/O wait %d ms, total %d ms",
+                    tile, bufferBytes >> 20, bytesRead >> 20, bytesWritten >> 20,
+                    ioWaitNanos / 1_000_000, elapsedNanos / 1_000_000);
+        }
+    }
+
+    // Largest tile edge whose five buffers fit in the budget, rounded down to the leaf size of the kernel
+    public static int tileSize(long memoryBudgetBytes) {
+        long tile = (long) Math.sqrt((double) memoryBudgetBytes / (TILES_IN_BUDGET * Double.BYTES));
+        tile = Math.min(tile, 46_340);                            // tile * tile must fit in an int
+        tile -= tile % ParallelMatrixMul.LEAF_SIZE;
+        if (tile < ParallelMatrixMul.LEAF_SIZE) {
+            throw new IllegalArgumentException("Memory budget of " + memoryBudgetBytes
+                    + " bytes is too small for one " + ParallelMatrixMul.LEAF_SIZE + "-wide tile.");
+        }
+        return (int) tile;
+    }
+
+    // Method to compute C = A * B tile by tile, keeping at most memoryBudgetBytes of tiles on the heap.
+    // Each tile product runs on the given pool while the next pair of tiles is read on a background thread.
+    public static Stats multiply(MappedDenseMatrix A, MappedDenseMatrix B, MappedDenseMatrix C,
+                                 long memoryBudgetBytes, ForkJoinPool pool) {
+        if (A.cols != B.rows || C.rows != A.rows || C.cols != B.cols) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        int tile = tileSize(memoryBudgetBytes);
+        long start = System.nanoTime();
+
+        int rowTiles = ceilDiv(A.rows, tile);
+        int innerTiles = Math.max(1, ceilDiv(A.cols, tile));
+        int colTiles = ceilDiv(B.cols, tile);
+        long steps = (long) rowTiles * colTiles * innerTiles;
+        Grid grid = new Grid(A, B, tile, colTiles, innerTiles);
+
+        // Two A/B pairs swap roles each step: one is multiplied while the other is filled. Edge tiles only
+        // use their top-left corner, so no padding is read or multiplied.
+        double[][] aTiles = {new double[tile * tile], new double[tile * tile]};
+        double[][] bTiles = {new double[tile * tile], new double[tile * tile]};
+        double[] cTile = new double[tile * tile];
+
+        long bytesRead = 0, bytesWritten = 0, ioWait = 0;
+        ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tile-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Long> pending = CompletableFuture.supplyAsync(
+                    () -> grid.load(0, aTiles[0], bTiles[0]), prefetcher);
+
+            for (long step = 0; step < steps; step++) {
+                int current = (int) (step & 1);
+                long waitStart = System.nanoTime();
+                bytesRead += pending.join();
+                ioWait += System.nanoTime() - waitStart;
+
+                // Start reading the next pair before multiplying this one
+                if (step + 1 < steps) {
+                    long next = step + 1;
+                    int spare = current ^ 1;
+                    pending = CompletableFuture.supplyAsync(
+                            () -> grid.load(next, aTiles[spare], bTiles[spare]), prefetcher);
+                }
+
+                int height = grid.height(step), width = grid.width(step);
+                if (grid.innerTile(step) == 0) {
+                    for (int i = 0; i < height; i++) {
+                        Arrays.fill(cTile, i * tile, i * tile + width, 0.0);
+                    }
+                }
+                pool.invoke(new TileTask(aTiles[current], bTiles[current], cTile, tile,
+                        0, height, 0, width, grid.depth(step)));
+
+                if (grid.innerTile(step) == innerTiles - 1) {
+                    bytesWritten += C.writeTile(grid.row(step), grid.col(step), height, width, cTile, tile);
+                }
+            }
+        } finally {
+            prefetcher.shutdownNow();
+        }
+
+        // Flush the dirty pages of C so the written bytes are on storage when the call returns
+        C.segment.force();
+        return new Stats(tile, (long) TILES_IN_BUDGET * tile * tile * Double.BYTES,
+                bytesRead, bytesWritten, ioWait, System.nanoTime() - start);
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    // Position of every step of the (row tile, column tile, inner tile) loop, with the inner tile fastest
+    private static class Grid {
+        private final MappedDenseMatrix A, B;
+        private final int tile, colTiles, innerTiles;
+
+        Grid(MappedDenseMatrix A, MappedDenseMatrix B, int tile, int colTiles, int innerTiles) {
+            this.A = A;
+            this.B = B;
+            this.tile = tile;
+            this.colTiles = colTiles;
+            this.innerTiles = innerTiles;
+        }
+
+        int innerTile(long step) {
+            return (int) (step % innerTiles);
+        }
+
+        int row(long step) {
+            return (int) (step / innerTiles / colTiles) * tile;
+        }
+
+        int col(long step) {
+            return (int) (step / innerTiles % colTiles) * tile;
+        }
+
+        int inner(long step) {
+            return innerTile(step) * tile;
+        }
+
+        int height(long step) {
+            return Math.min(tile, A.rows - row(step));
+        }
+
+        int width(long step) {
+            return Math.min(tile, B.cols - col(step));
+        }
+
+        int depth(long step) {
+            return Math.min(tile, A.cols - inner(step));
+        }
+
+        // Reads the A and B tiles of one step
+        long load(long step, double[] aTile, double[] bTile) {
+            return A.readTile(row(step), inner(step), height(step), depth(step), aTile, tile)
+                    + B.readTile(inner(step), col(step), depth(step), width(step), bTile, tile);
+        }
+    }
+
+    // C[rowStart:rowEnd, colStart:colEnd] += A[rowStart:rowEnd, 0:depth] * B[0:depth, colStart:colEnd] on tiles
+    // with leading dimension ld. Blocks are split on multiples of the leaf size, so every leaf except those on
+    // the ragged edge of a tile is a full LEAF_SIZE square for the micro-kernel.
+    private static class TileTask extends RecursiveAction {
+        private final double[] a, b, c;
+        private final int ld, rowStart, rowEnd, colStart, colEnd, depth;
+
+        TileTask(double[] a, double[] b, double[] c, int ld, int rowStart, int rowEnd, int colStart, int colEnd,
+                 int depth) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.ld = ld;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            int leaf = ParallelMatrixMul.LEAF_SIZE;
+            int rows = rowEnd - rowStart;
+            int cols = colEnd - colStart;
+            if (rows <= leaf && cols <= leaf) {
+                for (int k = 0; k < depth; k += leaf) {
+                    ParallelMatrixMul.multiplyBlock(a, ld, b, ld, c, ld,
+                            rowStart, rowEnd, colStart, colEnd, k, Math.min(k + leaf, depth));
+                }
+                return;
+            }
+            if (rows >= cols) {
+                int rowMiddle = rowStart + Math.max(leaf, rows / 2 / leaf * leaf);
+                invokeAll(new TileTask(a, b, c, ld, rowStart, rowMiddle, colStart, colEnd, depth),
+                        new TileTask(a, b, c, ld, rowMiddle, rowEnd, colStart, colEnd, depth));
+            } else {
+                int colMiddle = colStart + Math.max(leaf, cols / 2 / leaf * leaf);
+                invokeAll(new TileTask(a, b, c, ld, rowStart, rowEnd, colStart, colMiddle, depth),
+                        new TileTask(a, b, c, ld, rowStart, rowEnd, colMiddle, colEnd, depth));
+            }
+        }
+    }
+
+    // Method to fill a mapped matrix with random values in [0, 10) one row at a time
+    public static void fillRandom(MappedDenseMatrix matrix, long seed) {
+        Random random = new Random(seed);
+        double[] row = new double[matrix.cols];
+        for (int i = 0; i < matrix.rows; i++) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextDouble() * 10;
+            }
+            MemorySegment.copy(row, 0, matrix.segment, DOUBLE, (long) i * matrix.cols * Double.BYTES, row.length);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : 64) << 20;
+        Path directory = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("out-of-core");
+
+        try (Arena arena = Arena.ofShared()) {
+            MappedDenseMatrix A = MappedDenseMatrix.create(directory.resolve("A.bin"), n, n, arena);
+            MappedDenseMatrix B = MappedDenseMatrix.create(directory.resolve("B.bin"), n, n, arena);
+            MappedDenseMatrix C = MappedDenseMatrix.create(directory.resolve("C.bin"), n, n, arena);
+            fillRandom(A, 1);
+            fillRandom(B, 2);
+
+            Stats stats = multiply(A, B, C, budget, ForkJoinPool.commonPool());
+            System.out.println("Out-of-core " + n + "x" + n + " with a " + (budget >> 20) + " MB budget: " + stats);
+            System.out.printf("%.2f GFLOP/s%n", 2.0 * n * n * n / stats.elapsedNanos);
+
+            // Spot-check a few entries against dot products read straight from the mappings
+            Random random = new Random(3);
+            double maxError = 0.0;
+            for (int s = 0; s < 16; s++) {
+                int i = random.nextInt(n), j = random.nextInt(n);
+                double sum = 0.0;
+                for (int p = 0; p < n; p++) {
+                    sum += A.get(i, p) * B.get(p, j);
+                }
+                maxError = Math.max(maxError, Math.abs(sum - C.get(i, j)));
+            }
+            System.out.println("Max absolute difference on 16 sampled entries: " + maxError);
+        } finally {
+            if (args.length <= 2) {
+                for (String name : new String[]{"A.bin", "B.bin", "C.bin"}) {
+                    Files.deleteIfExists(directory.resolve(name));
+                }
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+}
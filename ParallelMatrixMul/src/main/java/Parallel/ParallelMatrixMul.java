@@ -0,0 +1,249 @@
+package Parallel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelMatrixMul {
+
+    // Edge of the square leaf block: three 64x64 blocks of doubles (96 KB) fit in L2
+    static final int LEAF_SIZE = 64;
+
+    // SIMD kernels are used when the jdk.incubator.vector module is resolved (--add-modules jdk.incubator.vector)
+    // and the hardware has usable vector lanes; -Dmatrix.vector.disable=true forces the scalar kernel
+    static final boolean VECTOR_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("matrix.vector.disable")
+            && VectorKernels.SUPPORTED;
+
+    // Dense matrix stored as a single row-major array, so rows are contiguous and no row pointers are chased
+    public static class DenseMatrix {
+        double[] values;          // Element (i, j) is values[i * cols + j]
+        int rows, cols;           // Number of rows and columns in the matrix
+
+        public DenseMatrix(int rows, int cols) {
+            this(new double[Math.multiplyExact(rows, cols)], rows, cols);
+        }
+
+        public DenseMatrix(double[] values, int rows, int cols) {
+            if (rows < 0 || cols < 0 || values.length != (long) rows * cols) {
+                throw new IllegalArgumentException("Values length does not match the matrix dimensions.");
+            }
+            this.values = values;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        public double get(int i, int j) {
+            return values[i * cols + j];
+        }
+
+        public void set(int i, int j, double value) {
+            values[i * cols + j] = value;
+        }
+
+        // Method to print the matrix
+        public void printDenseMatrix() {
+            System.out.println("Dense Matrix:");
+            for (int i = 0; i < rows; i++) {
+                System.out.println(Arrays.toString(Arrays.copyOfRange(values, i * cols, (i + 1) * cols)));
+            }
+        }
+
+        // Method to multiply two dense matrices on the common fork-join pool
+        public DenseMatrix multiply(DenseMatrix B) {
+            return multiply(B, ForkJoinPool.commonPool());
+        }
+
+        // Method to multiply two dense matrices with the leaves of the recursion run on the given pool
+        public DenseMatrix multiply(DenseMatrix B, ForkJoinPool pool) {
+            if (this.cols != B.rows) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+            }
+            DenseMatrix C = new DenseMatrix(this.rows, B.cols);
+            pool.invoke(new MultiplyTask(this, B, C, 0, this.rows, 0, B.cols));
+            return C;
+        }
+
+        // Method to multiply two dense matrices with Strassen-Winograd on the common fork-join pool;
+        // pays off from about 2048 on, smaller products fall through to the blocked kernel
+        public DenseMatrix multiplyStrassen(DenseMatrix B) {
+            return StrassenMatrixMul.multiply(this, B);
+        }
+
+        // Reference implementation: naive i-j-k triple loop
+        public DenseMatrix multiplyNaive(DenseMatrix B) {
+            if (this.cols != B.rows) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+            }
+            DenseMatrix C = new DenseMatrix(this.rows, B.cols);
+            for (int i = 0; i < this.rows; i++) {
+                for (int j = 0; j < B.cols; j++) {
+                    double sum = 0.0;
+                    for (int k = 0; k < this.cols; k++) {
+                        sum += this.values[i * this.cols + k] * B.values[k * B.cols + j];
+                    }
+                    C.values[i * C.cols + j] = sum;
+                }
+            }
+            return C;
+        }
+    }
+
+    // Computes the block C[rowStart:rowEnd, colStart:colEnd] by splitting it into quadrants
+    // until it reaches the leaf size; quadrants write disjoint parts of C, so they run in parallel
+    static class MultiplyTask extends RecursiveAction {
+        private final DenseMatrix A, B, C;
+        private final int rowStart, rowEnd, colStart, colEnd;
+
+        MultiplyTask(DenseMatrix A, DenseMatrix B, DenseMatrix C, int rowStart, int rowEnd, int colStart, int colEnd) {
+            this.A = A;
+            this.B = B;
+            this.C = C;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = rowEnd - rowStart;
+            int cols = colEnd - colStart;
+
+            if (rows <= LEAF_SIZE && cols <= LEAF_SIZE) {
+                // Walk the shared dimension in leaf-sized steps so the A and B blocks stay in cache
+                for (int k = 0; k < A.cols; k += LEAF_SIZE) {
+                    multiplyBlock(A.values, A.cols, B.values, B.cols, C.values, C.cols,
+                            rowStart, rowEnd, colStart, colEnd, k, Math.min(k + LEAF_SIZE, A.cols));
+                }
+                return;
+            }
+
+            if (rows <= LEAF_SIZE) {
+                int colMiddle = colStart + cols / 2;
+                invokeAll(new MultiplyTask(A, B, C, rowStart, rowEnd, colStart, colMiddle),
+                        new MultiplyTask(A, B, C, rowStart, rowEnd, colMiddle, colEnd));
+            } else if (cols <= LEAF_SIZE) {
+                int rowMiddle = rowStart + rows / 2;
+                invokeAll(new MultiplyTask(A, B, C, rowStart, rowMiddle, colStart, colEnd),
+                        new MultiplyTask(A, B, C, rowMiddle, rowEnd, colStart, colEnd));
+            } else {
+                int rowMiddle = rowStart + rows / 2;
+                int colMiddle = colStart + cols / 2;
+                invokeAll(new MultiplyTask(A, B, C, rowStart, rowMiddle, colStart, colMiddle),
+                        new MultiplyTask(A, B, C, rowStart, rowMiddle, colMiddle, colEnd),
+                        new MultiplyTask(A, B, C, rowMiddle, rowEnd, colStart, colMiddle),
+                        new MultiplyTask(A, B, C, rowMiddle, rowEnd, colMiddle, colEnd));
+            }
+        }
+    }
+
+    // Sequential micro-kernel: C[i0:i1, j0:j1] += A[i0:i1, k0:k1] * B[k0:k1, j0:j1] on row-major arrays
+    // with leading dimensions lda, ldb and ldc, using the SIMD kernel when it is available
+    static void multiplyBlock(double[] a, int lda, double[] b, int ldb, double[] c, int ldc,
+                              int i0, int i1, int j0, int j1, int k0, int k1) {
+        multiplyBlock(a, 0, lda, b, 0, ldb, c, 0, ldc, i0, i1, j0, j1, k0, k1);
+    }
+
+    // Same micro-kernel on sub-matrices that start at element offsets aOff, bOff and cOff of their arrays,
+    // so quadrants of a larger matrix can be multiplied in place without copying them out first
+    static void multiplyBlock(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc, int i0, int i1, int j0, int j1, int k0, int k1) {
+        if (VECTOR_ENABLED) {
+            VectorKernels.multiplyBlock(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, i0, i1, j0, j1, k0, k1);
+        } else {
+            multiplyBlockScalar(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, i0, i1, j0, j1, k0, k1);
+        }
+    }
+
+    // Scalar fallback of the micro-kernel. Four rows of C are updated per pass, so every row of B
+    // loaded into cache is used four times, and the innermost loop runs over contiguous memory.
+    static void multiplyBlockScalar(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                                    double[] c, int cOff, int ldc, int i0, int i1, int j0, int j1, int k0, int k1) {
+        int i = i0;
+        for (; i + 3 < i1; i += 4) {
+            int c0 = cOff + i * ldc, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+            int aRow = aOff + i * lda;
+            for (int k = k0; k < k1; k++) {
+                double a0 = a[aRow + k];
+                double a1 = a[aRow + lda + k];
+                double a2 = a[aRow + 2 * lda + k];
+                double a3 = a[aRow + 3 * lda + k];
+                int bRow = bOff + k * ldb;
+                for (int j = j0; j < j1; j++) {
+                    double bValue = b[bRow + j];
+                    c[c0 + j] += a0 * bValue;
+                    c[c1 + j] += a1 * bValue;
+                    c[c2 + j] += a2 * bValue;
+                    c[c3 + j] += a3 * bValue;
+                }
+            }
+        }
+        // Remaining rows one at a time
+        for (; i < i1; i++) {
+            int cRow = cOff + i * ldc;
+            for (int k = k0; k < k1; k++) {
+                double aValue = a[aOff + i * lda + k];
+                int bRow = bOff + k * ldb;
+                for (int j = j0; j < j1; j++) {
+                    c[cRow + j] += aValue * b[bRow + j];
+                }
+            }
+        }
+    }
+
+    // Method to generate a random dense matrix with values in [0, 10)
+    public static DenseMatrix generateRandomMatrix(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        DenseMatrix matrix = new DenseMatrix(rows, cols);
+        for (int i = 0; i < matrix.values.length; i++) {
+            matrix.values[i] = random.nextDouble() * 10;
+        }
+        return matrix;
+    }
+
+    public static void main(String[] args) {
+        // Example matrices A and B
+        DenseMatrix A = new DenseMatrix(new double[]{
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                9, 10, 11, 12,
+                13, 14, 15, 16
+        }, 4, 4);
+        DenseMatrix B = new DenseMatrix(new double[]{
+                16, 15, 14, 13,
+                12, 11, 10, 9,
+                8, 7, 6, 5,
+                4, 3, 2, 1
+        }, 4, 4);
+
+        System.out.println("Multiplying Matrix A and Matrix B:");
+        DenseMatrix C = A.multiply(B);
+        C.printDenseMatrix();
+
+        // Compare against the naive triple loop on a larger random product
+        int n = 1024;
+        DenseMatrix X = generateRandomMatrix(n, n, 1);
+        DenseMatrix Y = generateRandomMatrix(n, n, 2);
+
+        long startTime = System.nanoTime();
+        DenseMatrix naive = X.multiplyNaive(Y);
+        long naiveTime = (System.nanoTime() - startTime) / 1_000_000;
+
+        startTime = System.nanoTime();
+        DenseMatrix parallel = X.multiply(Y);
+        long parallelTime = (System.nanoTime() - startTime) / 1_000_000;
+
+        double maxError = 0.0;
+        for (int i = 0; i < naive.values.length; i++) {
+            maxError = Math.max(maxError, Math.abs(naive.values[i] - parallel.values[i]));
+        }
+
+        System.out.println("\nNaive " + n + "x" + n + ": " + naiveTime + " ms");
+        System.out.println("Fork-join blocked " + n + "x" + n + ": " + parallelTime + " ms ("
+                + String.format("%.2f", 2.0 * n * n * n / Math.max(1, parallelTime) / 1e6) + " GFLOP/s, "
+                + (VECTOR_ENABLED ? "SIMD" : "scalar") + " kernel)");
+        System.out.println("Max absolute difference: " + maxError);
+    }
+}
@@ -0,0 +1,434 @@
+package Parallel;
+
+import Parallel.ParallelMatrixMul.DenseMatrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Strassen-Winograd multiplication for large dense matrices: 7 half-size products and 15 additions per
+// level instead of 8 products, recursing until the smallest dimension reaches the crossover, where the
+// blocked classic micro-kernel takes over.
+//
+// Odd dimensions are handled by dynamic peeling: the recursion runs on the largest even-sized core and
+// the peeled last row, column or inner index is added afterwards with matrix-vector and rank-1 updates.
+// All temporaries live in a Workspace allocated once for a shape and reusable across calls. The seven
+// sub-products of the top levels run in parallel, so those levels keep all eleven sums and products and give
+// each product its own branch of the workspace. Deeper levels run sequentially with the Boyer-Dumas-Pernet-Zhou
+// schedule, which keeps the products in the quadrants of C and needs two temporaries, and share one branch.
+// When the workspace would not fit in a share of the heap, the parallel levels move down the recursion, where
+// their temporaries are four times smaller per level, and only then are there fewer of them.
+public class StrassenMatrixMul {
+
+    // Below this size the classic kernel is faster than another level of additions
+    public static final int DEFAULT_CROSSOVER = 256;
+
+    // The workspace may take at most this fraction of the maximum heap
+    private static final int HEAP_SHARE = 4;
+
+    private StrassenMatrixMul() {
+    }
+
+    // Method to multiply two dense matrices on the common fork-join pool
+    public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B) {
+        return multiply(A, B, ForkJoinPool.commonPool());
+    }
+
+    public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B, ForkJoinPool pool) {
+        return multiply(A, B, Workspace.fitting(A.rows, A.cols, B.cols, DEFAULT_CROSSOVER,
+                parallelDepth(pool.getParallelism()), Runtime.getRuntime().maxMemory() / HEAP_SHARE), pool);
+    }
+
+    // Method to multiply with a preallocated workspace, e.g. one kept across many products of the same shape
+    public static DenseMatrix multiply(DenseMatrix A, DenseMatrix B, Workspace workspace, ForkJoinPool pool) {
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        if (workspace.m != A.rows || workspace.k != A.cols || workspace.n != B.cols) {
+            throw new IllegalArgumentException("Workspace was allocated for a different shape.");
+        }
+        DenseMatrix C = new DenseMatrix(A.rows, B.cols);
+        if (workspace.leaf) {
+            // Too small for even one level: the parallel blocked kernel is the right tool
+            pool.invoke(new ParallelMatrixMul.MultiplyTask(A, B, C, 0, A.rows, 0, B.cols));
+        } else {
+            pool.invoke(new StrassenTask(A.values, 0, A.cols, B.values, 0, B.cols, C.values, 0, C.cols, workspace));
+        }
+        return C;
+    }
+
+    // Levels whose seven products run in parallel: one level gives 7 tasks, two give 49
+    static int parallelDepth(int parallelism) {
+        return parallelism <= 1 ? 0 : parallelism <= 7 ? 1 : 2;
+    }
+
+    // Levels of recursion above the leaves
+    static int levels(int m, int k, int n, int crossover) {
+        int levels = 0;
+        while (Math.min(m, Math.min(k, n)) > crossover) {
+            m /= 2;
+            k /= 2;
+            n /= 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    // Temporaries for one level of the recursion and, through its children, for all levels below it
+    public static class Workspace {
+        final int m, k, n;             // Shape of the product at this level, C (m x n) = A (m x k) * B (k x n)
+        final int hm, hk, hn;          // Quadrant sizes of the even-sized core
+        final boolean leaf;
+        final boolean parallel;
+        final double[] s1, s2, s3, s4; // Sums of quadrants of A, hm x hk; parallel levels only
+        final double[] t1, t2, t3, t4; // Sums of quadrants of B, hk x hn; parallel levels only
+        final double[] p1, p6, p7;     // Products that have no quadrant of C to live in, hm x hn; parallel only
+        final double[] x, y;           // Sequential levels: a sum of A or P1, and a sum of B
+        final Workspace[] children;    // Seven distinct branches when parallel, otherwise one shared branch
+
+        // The top parallelDepth levels run their products in parallel
+        public Workspace(int m, int k, int n, int crossover, int parallelDepth) {
+            this(m, k, n, crossover, 0, parallelDepth);
+        }
+
+        // Levels [skip, skip + parallelDepth) run their products in parallel
+        private Workspace(int m, int k, int n, int crossover, int skip, int parallelDepth) {
+            if (crossover < 2) {
+                throw new IllegalArgumentException("Crossover must be at least 2.");
+            }
+            this.m = m;
+            this.k = k;
+            this.n = n;
+            this.hm = m / 2;
+            this.hk = k / 2;
+            this.hn = n / 2;
+            this.leaf = Math.min(m, Math.min(k, n)) <= crossover;
+            this.parallel = !leaf && skip == 0 && parallelDepth > 0;
+            if (leaf) {
+                s1 = s2 = s3 = s4 = t1 = t2 = t3 = t4 = p1 = p6 = p7 = x = y = null;
+                children = null;
+                return;
+            }
+            int aSize = Math.multiplyExact(hm, hk);
+            int bSize = Math.multiplyExact(hk, hn);
+            int cSize = Math.multiplyExact(hm, hn);
+            children = new Workspace[7];
+            if (parallel) {
+                s1 = new double[aSize];
+                s2 = new double[aSize];
+                s3 = new double[aSize];
+                s4 = new double[aSize];
+                t1 = new double[bSize];
+                t2 = new double[bSize];
+                t3 = new double[bSize];
+                t4 = new double[bSize];
+                p1 = new double[cSize];
+                p6 = new double[cSize];
+                p7 = new double[cSize];
+                x = y = null;
+                for (int i = 0; i < 7; i++) {
+                    children[i] = new Workspace(hm, hk, hn, crossover, 0, parallelDepth - 1);
+                }
+            } else {
+                s1 = s2 = s3 = s4 = t1 = t2 = t3 = t4 = p1 = p6 = p7 = null;
+                x = new double[Math.max(aSize, cSize)];
+                y = new double[bSize];
+                Workspace shared = new Workspace(hm, hk, hn, crossover, Math.max(0, skip - 1),
+                        skip > 0 ? parallelDepth : 0);
+                for (int i = 0; i < 7; i++) {
+                    children[i] = shared;
+                }
+            }
+        }
+
+        // Bytes held by this workspace and everything below it
+        public long bytes() {
+            if (leaf) {
+                return 0;
+            }
+            if (parallel) {
+                return 8L * (4L * hm * hk + 4L * hk * hn + 3L * hm * hn) + 7 * children[0].bytes();
+            }
+            return 8L * (Math.max((long) hm * hk, (long) hm * hn) + (long) hk * hn) + children[0].bytes();
+        }
+
+        // Method to allocate the workspace with the most parallel levels that fits in budget bytes, forking as
+        // near the top as it can; the sequential workspace is used whatever its size, as it is the smallest
+        public static Workspace fitting(int m, int k, int n, int crossover, int parallelDepth, long budget) {
+            for (int depth = parallelDepth; depth > 0; depth--) {
+                for (int skip = 0; skip < levels(m, k, n, crossover); skip++) {
+                    if (bytes(m, k, n, crossover, skip, depth) <= budget) {
+                        return new Workspace(m, k, n, crossover, skip, depth);
+                    }
+                }
+            }
+            return new Workspace(m, k, n, crossover, 0, 0);
+        }
+
+        // Bytes a workspace of this shape would hold, without allocating it
+        static long bytes(int m, int k, int n, int crossover, int skip, int parallelDepth) {
+            if (Math.min(m, Math.min(k, n)) <= crossover) {
+                return 0;
+            }
+            long hm = m / 2, hk = k / 2, hn = n / 2;
+            if (skip == 0 && parallelDepth > 0) {
+                return 8L * (4 * hm * hk + 4 * hk * hn + 3 * hm * hn)
+                        + 7 * bytes(m / 2, k / 2, n / 2, crossover, 0, parallelDepth - 1);
+            }
+            return 8L * (Math.max(hm * hk, hm * hn) + hk * hn) + bytes(m / 2, k / 2, n / 2, crossover,
+                    Math.max(0, skip - 1), skip > 0 ? parallelDepth : 0);
+        }
+    }
+
+    // C = A * B on sub-matrices given by array, offset and leading dimension; C is overwritten
+    static class StrassenTask extends RecursiveAction {
+        private final double[] a, b, c;
+        private final int aOff, lda, bOff, ldb, cOff, ldc;
+        private final Workspace w;
+
+        StrassenTask(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                     double[] c, int cOff, int ldc, Workspace w) {
+            this.a = a;
+            this.aOff = aOff;
+            this.lda = lda;
+            this.b = b;
+            this.bOff = bOff;
+            this.ldb = ldb;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+            this.w = w;
+        }
+
+        @Override
+        protected void compute() {
+            if (w.leaf) {
+                classic(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, w.m, w.k, w.n);
+                return;
+            }
+            if (!w.parallel) {
+                sequential();
+                peel(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, w.m, w.k, w.n);
+                return;
+            }
+            int hm = w.hm, hk = w.hk, hn = w.hn;
+
+            // Quadrant offsets of the even-sized core
+            int a11 = aOff, a12 = aOff + hk, a21 = aOff + hm * lda, a22 = a21 + hk;
+            int b11 = bOff, b12 = bOff + hn, b21 = bOff + hk * ldb, b22 = b21 + hn;
+            int c11 = cOff, c12 = cOff + hn, c21 = cOff + hm * ldc, c22 = c21 + hn;
+
+            // S1 = A21 + A22, S2 = S1 - A11, S3 = A11 - A21, S4 = A12 - S2
+            add(a, a21, lda, a, a22, lda, w.s1, 0, hk, hm, hk, 1.0);
+            add(w.s1, 0, hk, a, a11, lda, w.s2, 0, hk, hm, hk, -1.0);
+            add(a, a11, lda, a, a21, lda, w.s3, 0, hk, hm, hk, -1.0);
+            add(a, a12, lda, w.s2, 0, hk, w.s4, 0, hk, hm, hk, -1.0);
+            // T1 = B12 - B11, T2 = B22 - T1, T3 = B22 - B12, T4 = T2 - B21
+            add(b, b12, ldb, b, b11, ldb, w.t1, 0, hn, hk, hn, -1.0);
+            add(b, b22, ldb, w.t1, 0, hn, w.t2, 0, hn, hk, hn, -1.0);
+            add(b, b22, ldb, b, b12, ldb, w.t3, 0, hn, hk, hn, -1.0);
+            add(w.t2, 0, hn, b, b21, ldb, w.t4, 0, hn, hk, hn, -1.0);
+
+            // Seven products; P2..P5 are written straight into the quadrants of C they end up in
+            StrassenTask[] products = {
+                    new StrassenTask(a, a11, lda, b, b11, ldb, w.p1, 0, hn, w.children[0]),     // P1 = A11 B11
+                    new StrassenTask(a, a12, lda, b, b21, ldb, c, c11, ldc, w.children[1]),     // P2 = A12 B21
+                    new StrassenTask(w.s4, 0, hk, b, b22, ldb, c, c12, ldc, w.children[2]),     // P3 = S4 B22
+                    new StrassenTask(a, a22, lda, w.t4, 0, hn, c, c21, ldc, w.children[3]),     // P4 = A22 T4
+                    new StrassenTask(w.s1, 0, hk, w.t1, 0, hn, c, c22, ldc, w.children[4]),     // P5 = S1 T1
+                    new StrassenTask(w.s2, 0, hk, w.t2, 0, hn, w.p6, 0, hn, w.children[5]),     // P6 = S2 T2
+                    new StrassenTask(w.s3, 0, hk, w.t3, 0, hn, w.p7, 0, hn, w.children[6])      // P7 = S3 T3
+            };
+            invokeAll(products);
+
+            // C11 = P1 + P2, C12 = U2 + P3 + P5, C21 = U3 - P4, C22 = U3 + P5 with U2 = P1 + P6, U3 = U2 + P7
+            for (int i = 0; i < hm; i++) {
+                int row = i * hn;
+                int r11 = c11 + i * ldc, r12 = c12 + i * ldc, r21 = c21 + i * ldc, r22 = c22 + i * ldc;
+                for (int j = 0; j < hn; j++) {
+                    double p1 = w.p1[row + j];
+                    double u2 = p1 + w.p6[row + j];
+                    double u3 = u2 + w.p7[row + j];
+                    double p5 = c[r22 + j];
+                    c[r11 + j] += p1;
+                    c[r12 + j] += u2 + p5;
+                    c[r21 + j] = u3 - c[r21 + j];
+                    c[r22 + j] = u3 + p5;
+                }
+            }
+
+            peel(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, w.m, w.k, w.n);
+        }
+
+        // The same level on one thread with two temporaries: X holds the sums of A and then P1, Y the sums of B,
+        // and the other products are built up in the quadrants of C (Boyer, Dumas, Pernet and Zhou, Memory
+        // efficient scheduling of Strassen-Winograd's matrix multiplication algorithm, 2009, Table 1)
+        private void sequential() {
+            int hm = w.hm, hk = w.hk, hn = w.hn;
+            double[] x = w.x, y = w.y;
+            Workspace child = w.children[0];
+            int a11 = aOff, a12 = aOff + hk, a21 = aOff + hm * lda, a22 = a21 + hk;
+            int b11 = bOff, b12 = bOff + hn, b21 = bOff + hk * ldb, b22 = b21 + hn;
+            int c11 = cOff, c12 = cOff + hn, c21 = cOff + hm * ldc, c22 = c21 + hn;
+
+            add(a, a11, lda, a, a21, lda, x, 0, hk, hm, hk, -1.0);                      // X = S3
+            add(b, b22, ldb, b, b12, ldb, y, 0, hn, hk, hn, -1.0);                      // Y = T3
+            new StrassenTask(x, 0, hk, y, 0, hn, c, c21, ldc, child).compute();         // C21 = P7
+            add(a, a21, lda, a, a22, lda, x, 0, hk, hm, hk, 1.0);                       // X = S1
+            add(b, b12, ldb, b, b11, ldb, y, 0, hn, hk, hn, -1.0);                      // Y = T1
+            new StrassenTask(x, 0, hk, y, 0, hn, c, c22, ldc, child).compute();         // C22 = P5
+            add(x, 0, hk, a, a11, lda, x, 0, hk, hm, hk, -1.0);                         // X = S2
+            add(b, b22, ldb, y, 0, hn, y, 0, hn, hk, hn, -1.0);                         // Y = T2
+            new StrassenTask(x, 0, hk, y, 0, hn, c, c12, ldc, child).compute();         // C12 = P6
+            add(a, a12, lda, x, 0, hk, x, 0, hk, hm, hk, -1.0);                         // X = S4
+            new StrassenTask(x, 0, hk, b, b22, ldb, c, c11, ldc, child).compute();      // C11 = P3
+            new StrassenTask(a, a11, lda, b, b11, ldb, x, 0, hn, child).compute();      // X = P1
+            add(x, 0, hn, c, c12, ldc, c, c12, ldc, hm, hn, 1.0);                       // C12 = U2 = P1 + P6
+            add(c, c12, ldc, c, c21, ldc, c, c21, ldc, hm, hn, 1.0);                    // C21 = U3 = U2 + P7
+            add(c, c12, ldc, c, c22, ldc, c, c12, ldc, hm, hn, 1.0);                    // C12 = U4 = U2 + P5
+            add(c, c21, ldc, c, c22, ldc, c, c22, ldc, hm, hn, 1.0);                    // C22 = U7 = U3 + P5
+            add(c, c12, ldc, c, c11, ldc, c, c12, ldc, hm, hn, 1.0);                    // C12 = U5 = U4 + P3
+            add(y, 0, hn, b, b21, ldb, y, 0, hn, hk, hn, -1.0);                         // Y = T4
+            new StrassenTask(a, a22, lda, y, 0, hn, c, c11, ldc, child).compute();      // C11 = P4
+            add(c, c21, ldc, c, c11, ldc, c, c21, ldc, hm, hn, -1.0);                   // C21 = U6 = U3 - P4
+            new StrassenTask(a, a12, lda, b, b21, ldb, c, c11, ldc, child).compute();   // C11 = P2
+            add(x, 0, hn, c, c11, ldc, c, c11, ldc, hm, hn, 1.0);                       // C11 = U1 = P1 + P2
+        }
+    }
+
+    // Fixes up the peeled parts after the core C[0:2hm, 0:2hn] = A[0:2hm, 0:2hk] * B[0:2hk, 0:2hn] is done
+    private static void peel(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                             double[] c, int cOff, int ldc, int m, int k, int n) {
+        int em = m & ~1, ek = k & ~1, en = n & ~1;
+
+        // Odd inner dimension: rank-1 update of the core with the last column of A and last row of B
+        if (ek < k) {
+            int bRow = bOff + ek * ldb;
+            for (int i = 0; i < em; i++) {
+                double aValue = a[aOff + i * lda + ek];
+                int cRow = cOff + i * ldc;
+                for (int j = 0; j < en; j++) {
+                    c[cRow + j] += aValue * b[bRow + j];
+                }
+            }
+        }
+        // Odd column count: last column of C for the core rows, as a matrix-vector product
+        if (en < n) {
+            for (int i = 0; i < em; i++) {
+                double sum = 0.0;
+                int aRow = aOff + i * lda;
+                for (int p = 0; p < k; p++) {
+                    sum += a[aRow + p] * b[bOff + p * ldb + en];
+                }
+                c[cOff + i * ldc + en] = sum;
+            }
+        }
+        // Odd row count: last row of C, as a vector-matrix product over all columns
+        if (em < m) {
+            int cRow = cOff + em * ldc;
+            int aRow = aOff + em * lda;
+            for (int j = 0; j < n; j++) {
+                c[cRow + j] = 0.0;
+            }
+            for (int p = 0; p < k; p++) {
+                double aValue = a[aRow + p];
+                int bRow = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    c[cRow + j] += aValue * b[bRow + j];
+                }
+            }
+        }
+    }
+
+    // Z = X + sign * Y over a rows x cols block; Z may be X or Y itself
+    private static void add(double[] x, int xOff, int ldx, double[] y, int yOff, int ldy,
+                            double[] z, int zOff, int ldz, int rows, int cols, double sign) {
+        for (int i = 0; i < rows; i++) {
+            int xRow = xOff + i * ldx, yRow = yOff + i * ldy, zRow = zOff + i * ldz;
+            for (int j = 0; j < cols; j++) {
+                z[zRow + j] = x[xRow + j] + sign * y[yRow + j];
+            }
+        }
+    }
+
+    // Classic product of the leaves, C = A * B, tiled like MultiplyTask so the A and B blocks stay in cache
+    private static void classic(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                                double[] c, int cOff, int ldc, int m, int k, int n) {
+        for (int i = 0; i < m; i++) {
+            int cRow = cOff + i * ldc;
+            for (int j = 0; j < n; j++) {
+                c[cRow + j] = 0.0;
+            }
+        }
+        int leaf = ParallelMatrixMul.LEAF_SIZE;
+        for (int i = 0; i < m; i += leaf) {
+            for (int j = 0; j < n; j += leaf) {
+                for (int p = 0; p < k; p += leaf) {
+                    ParallelMatrixMul.multiplyBlock(a, aOff, lda, b, bOff, ldb, c, cOff, ldc,
+                            i, Math.min(i + leaf, m), j, Math.min(j + leaf, n), p, Math.min(p + leaf, k));
+                }
+            }
+        }
+    }
+
+    // Forward error bound of Strassen-Winograd in the max norm (Higham, Accuracy and Stability of Numerical
+    // Algorithms, 2nd ed., Thm. 23.4) for l levels of recursion down to leaves of size n0, with n the largest
+    // dimension: |C - fl(C)| <= [18^l (n0^2 + 6 n0) - 6 n] u max|A| max|B|, where 18^l = (n / n0)^log2(18).
+    // The leaves are those the recursion actually reaches, at most crossover but often well below it.
+    public static double errorBound(DenseMatrix A, DenseMatrix B, int crossover) {
+        int levels = levels(A.rows, A.cols, B.cols, crossover);
+        double n = Math.max(A.rows, Math.max(A.cols, B.cols));
+        double n0 = Math.max(A.rows >> levels, Math.max(A.cols >> levels, B.cols >> levels));
+        double growth = Math.pow(18, levels) * (n0 * n0 + 6 * n0) - 6 * n;
+        double unitRoundoff = Math.ulp(1.0) / 2;
+        return Math.max(growth, n) * unitRoundoff * maxAbs(A) * maxAbs(B);
+    }
+
+    // Largest absolute difference between two results of the same product
+    public static double maxError(DenseMatrix expected, DenseMatrix actual) {
+        double error = 0.0;
+        for (int i = 0; i < expected.values.length; i++) {
+            error = Math.max(error, Math.abs(expected.values[i] - actual.values[i]));
+        }
+        return error;
+    }
+
+    private static double maxAbs(DenseMatrix matrix) {
+        double max = 0.0;
+        for (double value : matrix.values) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int crossover = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CROSSOVER;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        DenseMatrix A = ParallelMatrixMul.generateRandomMatrix(n, n, 1);
+        DenseMatrix B = ParallelMatrixMul.generateRandomMatrix(n, n, 2);
+
+        Workspace workspace = Workspace.fitting(n, n, n, crossover, parallelDepth(pool.getParallelism()),
+                Runtime.getRuntime().maxMemory() / HEAP_SHARE);
+        System.out.println("Workspace for " + n + "x" + n + ": " + workspace.bytes() / (1 << 20) + " MB");
+
+        // First round warms up the JIT, the second is timed
+        DenseMatrix classic = null, strassen = null;
+        long classicTime = 0, strassenTime = 0;
+        for (int round = 0; round < 2; round++) {
+            long startTime = System.nanoTime();
+            classic = A.multiply(B, pool);
+            classicTime = (System.nanoTime() - startTime) / 1_000_000;
+
+            startTime = System.nanoTime();
+            strassen = multiply(A, B, workspace, pool);
+            strassenTime = (System.nanoTime() - startTime) / 1_000_000;
+        }
+
+        double error = maxError(classic, strassen);
+        double bound = errorBound(A, B, crossover);
+        System.out.println("Classic blocked: " + classicTime + " ms");
+        System.out.println("Strassen-Winograd (crossover " + crossover + "): " + strassenTime + " ms");
+        System.out.println("Max absolute difference: " + error + " (bound " + bound + ", "
+                + (error <= bound ? "within" : "EXCEEDS") + " bound)");
+    }
+}
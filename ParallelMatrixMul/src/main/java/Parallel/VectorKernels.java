@@ -0,0 +1,183 @@
+package Parallel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD micro-kernels built on the incubating Vector API (jdk.incubator.vector).
+// This class is only loaded when the module is present, see ParallelMatrixMul.VECTOR_ENABLED.
+final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    // Register block of the micro-kernel: 4 rows of C by two vectors (4 x 8 doubles on AVX2, 4 x 16 on AVX-512)
+    private static final int MR = 4;
+    private static final int NR = 2 * LANES;
+
+    // Vector code only pays off when the hardware offers at least 128-bit double lanes
+    static final boolean SUPPORTED = SPECIES.vectorBitSize() >= 128 && LANES >= 2;
+
+    private VectorKernels() {
+    }
+
+    // C[i0:i1, j0:j1] += A[i0:i1, k0:k1] * B[k0:k1, j0:j1] on row-major arrays.
+    // Full MR x NR tiles keep their eight partial sums in vector registers across the whole k range;
+    // the ragged right and bottom edges fall back to the scalar kernel.
+    // The operands start at element offsets aOff, bOff and cOff of their arrays.
+    static void multiplyBlock(double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc, int i0, int i1, int j0, int j1, int k0, int k1) {
+        int i = i0;
+        for (; i + MR <= i1; i += MR) {
+            int c0 = cOff + i * ldc, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+            int a0 = aOff + i * lda, a1 = a0 + lda, a2 = a1 + lda, a3 = a2 + lda;
+
+            int j = j0;
+            for (; j + NR <= j1; j += NR) {
+                DoubleVector c00 = DoubleVector.fromArray(SPECIES, c, c0 + j);
+                DoubleVector c01 = DoubleVector.fromArray(SPECIES, c, c0 + j + LANES);
+                DoubleVector c10 = DoubleVector.fromArray(SPECIES, c, c1 + j);
+                DoubleVector c11 = DoubleVector.fromArray(SPECIES, c, c1 + j + LANES);
+                DoubleVector c20 = DoubleVector.fromArray(SPECIES, c, c2 + j);
+                DoubleVector c21 = DoubleVector.fromArray(SPECIES, c, c2 + j + LANES);
+                DoubleVector c30 = DoubleVector.fromArray(SPECIES, c, c3 + j);
+                DoubleVector c31 = DoubleVector.fromArray(SPECIES, c, c3 + j + LANES);
+
+                for (int k = k0; k < k1; k++) {
+                    int bRow = bOff + k * ldb + j;
+                    DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, bRow);
+                    DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, bRow + LANES);
+
+                    DoubleVector aValue = DoubleVector.broadcast(SPECIES, a[a0 + k]);
+                    c00 = b0.fma(aValue, c00);
+                    c01 = b1.fma(aValue, c01);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a1 + k]);
+                    c10 = b0.fma(aValue, c10);
+                    c11 = b1.fma(aValue, c11);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a2 + k]);
+                    c20 = b0.fma(aValue, c20);
+                    c21 = b1.fma(aValue, c21);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a3 + k]);
+                    c30 = b0.fma(aValue, c30);
+                    c31 = b1.fma(aValue, c31);
+                }
+
+                c00.intoArray(c, c0 + j);
+                c01.intoArray(c, c0 + j + LANES);
+                c10.intoArray(c, c1 + j);
+                c11.intoArray(c, c1 + j + LANES);
+                c20.intoArray(c, c2 + j);
+                c21.intoArray(c, c2 + j + LANES);
+                c30.intoArray(c, c3 + j);
+                c31.intoArray(c, c3 + j + LANES);
+            }
+
+            // Columns left over after the full tiles
+            if (j < j1) {
+                ParallelMatrixMul.multiplyBlockScalar(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, i, i + MR, j, j1, k0, k1);
+            }
+        }
+
+        // Rows left over after the full tiles
+        if (i < i1) {
+            ParallelMatrixMul.multiplyBlockScalar(a, aOff, lda, b, bOff, ldb, c, cOff, ldc, i, i1, j0, j1, k0, k1);
+        }
+    }
+
+    // C = A * B for one small row-major product whose width n is a multiple of two vectors (16, 32, ... on AVX2).
+    // Same 4 x 2-vector register tile as multiplyBlock, but the sums start from zero instead of loading C, so
+    // the output needs no clearing pass, and there are no edge cases to dispatch on.
+    static void multiplySmallWide(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff,
+                                  int m, int k, int n) {
+        int i = 0;
+        for (; i + MR <= m; i += MR) {
+            int a0 = aOff + i * k, a1 = a0 + k, a2 = a1 + k, a3 = a2 + k;
+            int c0 = cOff + i * n, c1 = c0 + n, c2 = c1 + n, c3 = c2 + n;
+            for (int j = 0; j < n; j += NR) {
+                DoubleVector c00 = DoubleVector.zero(SPECIES), c01 = DoubleVector.zero(SPECIES);
+                DoubleVector c10 = DoubleVector.zero(SPECIES), c11 = DoubleVector.zero(SPECIES);
+                DoubleVector c20 = DoubleVector.zero(SPECIES), c21 = DoubleVector.zero(SPECIES);
+                DoubleVector c30 = DoubleVector.zero(SPECIES), c31 = DoubleVector.zero(SPECIES);
+                for (int p = 0; p < k; p++) {
+                    int bRow = bOff + p * n + j;
+                    DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, bRow);
+                    DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, bRow + LANES);
+
+                    DoubleVector aValue = DoubleVector.broadcast(SPECIES, a[a0 + p]);
+                    c00 = b0.fma(aValue, c00);
+                    c01 = b1.fma(aValue, c01);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a1 + p]);
+                    c10 = b0.fma(aValue, c10);
+                    c11 = b1.fma(aValue, c11);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a2 + p]);
+                    c20 = b0.fma(aValue, c20);
+                    c21 = b1.fma(aValue, c21);
+                    aValue = DoubleVector.broadcast(SPECIES, a[a3 + p]);
+                    c30 = b0.fma(aValue, c30);
+                    c31 = b1.fma(aValue, c31);
+                }
+                c00.intoArray(c, c0 + j);
+                c01.intoArray(c, c0 + j + LANES);
+                c10.intoArray(c, c1 + j);
+                c11.intoArray(c, c1 + j + LANES);
+                c20.intoArray(c, c2 + j);
+                c21.intoArray(c, c2 + j + LANES);
+                c30.intoArray(c, c3 + j);
+                c31.intoArray(c, c3 + j + LANES);
+            }
+        }
+
+        // Rows left over after the full tiles
+        for (; i < m; i++) {
+            int aRow = aOff + i * k, cRow = cOff + i * n;
+            for (int j = 0; j < n; j += NR) {
+                DoubleVector c0 = DoubleVector.zero(SPECIES), c1 = DoubleVector.zero(SPECIES);
+                for (int p = 0; p < k; p++) {
+                    int bRow = bOff + p * n + j;
+                    DoubleVector aValue = DoubleVector.broadcast(SPECIES, a[aRow + p]);
+                    c0 = DoubleVector.fromArray(SPECIES, b, bRow).fma(aValue, c0);
+                    c1 = DoubleVector.fromArray(SPECIES, b, bRow + LANES).fma(aValue, c1);
+                }
+                c0.intoArray(c, cRow + j);
+                c1.intoArray(c, cRow + j + LANES);
+            }
+        }
+    }
+
+    // C = A * B for one small product whose width n is an odd multiple of the vector length (8, 24, ... on
+    // AVX-512), too narrow for the two-vector tile: 4 rows by one vector per step
+    static void multiplySmallNarrow(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff,
+                                    int m, int k, int n) {
+        int i = 0;
+        for (; i + MR <= m; i += MR) {
+            int a0 = aOff + i * k, a1 = a0 + k, a2 = a1 + k, a3 = a2 + k;
+            int c0 = cOff + i * n, c1 = c0 + n, c2 = c1 + n, c3 = c2 + n;
+            for (int j = 0; j < n; j += LANES) {
+                DoubleVector s0 = DoubleVector.zero(SPECIES), s1 = DoubleVector.zero(SPECIES);
+                DoubleVector s2 = DoubleVector.zero(SPECIES), s3 = DoubleVector.zero(SPECIES);
+                for (int p = 0; p < k; p++) {
+                    DoubleVector bRow = DoubleVector.fromArray(SPECIES, b, bOff + p * n + j);
+                    s0 = bRow.fma(DoubleVector.broadcast(SPECIES, a[a0 + p]), s0);
+                    s1 = bRow.fma(DoubleVector.broadcast(SPECIES, a[a1 + p]), s1);
+                    s2 = bRow.fma(DoubleVector.broadcast(SPECIES, a[a2 + p]), s2);
+                    s3 = bRow.fma(DoubleVector.broadcast(SPECIES, a[a3 + p]), s3);
+                }
+                s0.intoArray(c, c0 + j);
+                s1.intoArray(c, c1 + j);
+                s2.intoArray(c, c2 + j);
+                s3.intoArray(c, c3 + j);
+            }
+        }
+
+        // Rows left over after the full tiles
+        for (; i < m; i++) {
+            int aRow = aOff + i * k, cRow = cOff + i * n;
+            for (int j = 0; j < n; j += LANES) {
+                DoubleVector sum = DoubleVector.zero(SPECIES);
+                for (int p = 0; p < k; p++) {
+                    sum = DoubleVector.fromArray(SPECIES, b, bOff + p * n + j)
+                            .fma(DoubleVector.broadcast(SPECIES, a[aRow + p]), sum);
+                }
+                sum.intoArray(c, cRow + j);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package testBenchmarkParallelMatrix;
+
+import Parallel.BatchedMatrixMul;
+import Parallel.BatchedMatrixMul.Batch;
+import Parallel.ParallelMatrixMul.DenseMatrix;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BatchedMatrixMulBenchmark {
+
+    private static final int COUNT = 1024;  // Productos independientes por lote
+
+    private Batch batch;
+    private DenseMatrix[] left;
+    private DenseMatrix[] right;
+
+    @Param({"8", "16", "32", "64", "128"})  // Tamaño de cada producto pequeño
+    private int matrixSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        batch = new Batch(COUNT, matrixSize, matrixSize, matrixSize);
+        for (int i = 0; i < batch.getA().length; i++) {
+            batch.getA()[i] = random.nextDouble();
+            batch.getB()[i] = random.nextDouble();
+        }
+
+        // Las mismas matrices como objetos sueltos, para multiplicarlas una a una
+        int stride = matrixSize * matrixSize;
+        left = new DenseMatrix[COUNT];
+        right = new DenseMatrix[COUNT];
+        for (int p = 0; p < COUNT; p++) {
+            left[p] = new DenseMatrix(Arrays.copyOfRange(batch.getA(), p * stride, (p + 1) * stride),
+                    matrixSize, matrixSize);
+            right[p] = new DenseMatrix(Arrays.copyOfRange(batch.getB(), p * stride, (p + 1) * stride),
+                    matrixSize, matrixSize);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public void benchmarkSingleCalls(Blackhole blackhole) {
+        for (int p = 0; p < COUNT; p++) {
+            blackhole.consume(left[p].multiply(right[p]));
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkBatched() {
+        BatchedMatrixMul.multiply(batch);
+        return batch.getC();
+    }
+}
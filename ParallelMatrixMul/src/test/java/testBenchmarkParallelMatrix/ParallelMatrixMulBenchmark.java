@@ -1,4 +1,49 @@
 package testBenchmarkParallelMatrix;
 
+import Parallel.ParallelMatrixMul;
+import Parallel.ParallelMatrixMul.DenseMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
 public class ParallelMatrixMulBenchmark {
+
+    private DenseMatrix matrixA;
+    private DenseMatrix matrixB;
+
+    @Param({"256", "512", "1024", "2048", "4096", "8192"})  // Define los tamaños de las matrices a probar
+    private int matrixSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        matrixA = ParallelMatrixMul.generateRandomMatrix(matrixSize, matrixSize, 1);
+        matrixB = ParallelMatrixMul.generateRandomMatrix(matrixSize, matrixSize, 2);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public DenseMatrix benchmarkNaiveMultiplication() {
+        return matrixA.multiplyNaive(matrixB);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public DenseMatrix benchmarkParallelMultiplication() {
+        return matrixA.multiply(matrixB);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public DenseMatrix benchmarkStrassenMultiplication() {
+        return matrixA.multiplyStrassen(matrixB);
+    }
 }
@@ -0,0 +1,199 @@
+package RowColumnMajor;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class MatrixMulRowColumnMajor {
+
+    // Storage order of a square n x n matrix held in a flat array
+    public enum Layout {
+        ROW_MAJOR,      // Element (i, j) is at i * n + j
+        COLUMN_MAJOR;   // Element (i, j) is at j * n + i
+
+        // Distance in the array between (i, j) and (i + 1, j)
+        int rowStride(int n) {
+            return this == ROW_MAJOR ? n : 1;
+        }
+
+        // Distance in the array between (i, j) and (i, j + 1)
+        int colStride(int n) {
+            return this == ROW_MAJOR ? 1 : n;
+        }
+
+        public int index(int i, int j, int n) {
+            return i * rowStride(n) + j * colStride(n);
+        }
+    }
+
+    // Nesting order of the three loops, outermost first
+    public enum LoopOrder {
+        IJK, IKJ, JIK, JKI, KIJ, KJI
+    }
+
+    // Method to multiply C = A * B for square n x n matrices that share the same layout.
+    // The loop order fixes which matrix is walked with unit stride in the innermost loop:
+    // for row-major data IKJ/KIJ stream B and C, IJK/JIK stride through B, JKI/KJI stride through A and C.
+    public static void multiply(double[] a, double[] b, double[] c, int n, Layout layout, LoopOrder order) {
+        if (a.length != n * n || b.length != n * n || c.length != n * n) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        int rs = layout.rowStride(n);
+        int cs = layout.colStride(n);
+        Arrays.fill(c, 0.0);
+
+        switch (order) {
+            case IJK -> multiplyIJK(a, b, c, n, rs, cs);
+            case IKJ -> multiplyIKJ(a, b, c, n, rs, cs);
+            case JIK -> multiplyJIK(a, b, c, n, rs, cs);
+            case JKI -> multiplyJKI(a, b, c, n, rs, cs);
+            case KIJ -> multiplyKIJ(a, b, c, n, rs, cs);
+            case KJI -> multiplyKJI(a, b, c, n, rs, cs);
+        }
+    }
+
+    private static void multiplyIJK(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += a[i * rs + k * cs] * b[k * rs + j * cs];
+                }
+                c[i * rs + j * cs] = sum;
+            }
+        }
+    }
+
+    private static void multiplyIKJ(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                double aValue = a[i * rs + k * cs];
+                for (int j = 0; j < n; j++) {
+                    c[i * rs + j * cs] += aValue * b[k * rs + j * cs];
+                }
+            }
+        }
+    }
+
+    private static void multiplyJIK(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += a[i * rs + k * cs] * b[k * rs + j * cs];
+                }
+                c[i * rs + j * cs] = sum;
+            }
+        }
+    }
+
+    private static void multiplyJKI(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int j = 0; j < n; j++) {
+            for (int k = 0; k < n; k++) {
+                double bValue = b[k * rs + j * cs];
+                for (int i = 0; i < n; i++) {
+                    c[i * rs + j * cs] += a[i * rs + k * cs] * bValue;
+                }
+            }
+        }
+    }
+
+    private static void multiplyKIJ(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                double aValue = a[i * rs + k * cs];
+                for (int j = 0; j < n; j++) {
+                    c[i * rs + j * cs] += aValue * b[k * rs + j * cs];
+                }
+            }
+        }
+    }
+
+    private static void multiplyKJI(double[] a, double[] b, double[] c, int n, int rs, int cs) {
+        for (int k = 0; k < n; k++) {
+            for (int j = 0; j < n; j++) {
+                double bValue = b[k * rs + j * cs];
+                for (int i = 0; i < n; i++) {
+                    c[i * rs + j * cs] += a[i * rs + k * cs] * bValue;
+                }
+            }
+        }
+    }
+
+    // Method to multiply row-major A by B given as its transpose (row-major B^T, i.e. B in column-major),
+    // so every dot product reads a row of A and a row of B^T with unit stride
+    public static void multiplyTransposed(double[] a, double[] bTransposed, double[] c, int n) {
+        if (a.length != n * n || bTransposed.length != n * n || c.length != n * n) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        for (int i = 0; i < n; i++) {
+            int aRow = i * n;
+            for (int j = 0; j < n; j++) {
+                int bRow = j * n;
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += a[aRow + k] * bTransposed[bRow + k];
+                }
+                c[aRow + j] = sum;
+            }
+        }
+    }
+
+    // Method to transpose a square n x n matrix, which also converts between row- and column-major
+    public static double[] transpose(double[] matrix, int n) {
+        double[] result = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                result[j * n + i] = matrix[i * n + j];
+            }
+        }
+        return result;
+    }
+
+    // Method to generate a random n x n matrix with values in [0, 10)
+    public static double[] generateRandomMatrix(int n, long seed) {
+        Random random = new Random(seed);
+        double[] matrix = new double[n * n];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextDouble() * 10;
+        }
+        return matrix;
+    }
+
+    public static void main(String[] args) {
+        int n = 512;
+        double[] rowMajorA = generateRandomMatrix(n, 1);
+        double[] rowMajorB = generateRandomMatrix(n, 2);
+        double[] columnMajorA = transpose(rowMajorA, n);
+        double[] columnMajorB = transpose(rowMajorB, n);
+        double[] c = new double[n * n];
+
+        // Reference result in row-major order
+        double[] reference = new double[n * n];
+        multiply(rowMajorA, rowMajorB, reference, n, Layout.ROW_MAJOR, LoopOrder.IKJ);
+
+        for (Layout layout : Layout.values()) {
+            double[] a = layout == Layout.ROW_MAJOR ? rowMajorA : columnMajorA;
+            double[] b = layout == Layout.ROW_MAJOR ? rowMajorB : columnMajorB;
+            for (LoopOrder order : LoopOrder.values()) {
+                long startTime = System.nanoTime();
+                multiply(a, b, c, n, layout, order);
+                long duration = (System.nanoTime() - startTime) / 1_000_000;
+                double[] result = layout == Layout.ROW_MAJOR ? c : transpose(c, n);
+                System.out.println(layout + " " + order + ": " + duration + " ms, max error " + maxError(reference, result));
+            }
+        }
+
+        long startTime = System.nanoTime();
+        multiplyTransposed(rowMajorA, columnMajorB, c, n);
+        long duration = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("TRANSPOSED_B: " + duration + " ms, max error " + maxError(reference, c));
+    }
+
+    private static double maxError(double[] expected, double[] actual) {
+        double maxError = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+        }
+        return maxError;
+    }
+}
@@ -1,108 +1,48 @@
-package testBenchmarkMatrixGPU;
+package testBenchmarkMatrixRowColumnMajor;
 
-import org.jocl.*;
+import RowColumnMajor.MatrixMulRowColumnMajor;
+import RowColumnMajor.MatrixMulRowColumnMajor.Layout;
+import RowColumnMajor.MatrixMulRowColumnMajor.LoopOrder;
+import org.openjdk.jmh.annotations.*;
 
-import static sun.jvm.hotspot.debugger.win32.coff.DebugVC50X86RegisterEnums.CL;
+import java.util.concurrent.TimeUnit;
 
-public class MatrixMulGPUBenchmark {
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class MatrixMulRowColumnMajorBenchmark {
 
-    // OpenCL kernel for matrix multiplication
-    private static final String programSource =
-            "__kernel void matrixMul(__global const float *A, __global const float *B, __global float *C, int N) {" +
-                    "    int row = get_global_id(1);" +
-                    "    int col = get_global_id(0);" +
-                    "    float sum = 0;" +
-                    "    for (int k = 0; k < N; k++) {" +
-                    "        sum += A[row * N + k] * B[k * N + col];" +
-                    "    }" +
-                    "    C[row * N + col] = sum;" +
-                    "}";
+    private double[] matrixA;
+    private double[] matrixB;
+    private double[] matrixC;
 
-    public static void main(String[] args) {
-        int N = 4; // Matrix size (N x N)
+    // Una matriz ocupa n * n * 8 bytes: 32 -> 8 KB (L1), 128 -> 128 KB (L2), 512 -> 2 MB, 2048 -> 32 MB (más que L3)
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int matrixSize;
 
-        // Initialize matrices A, B, and C
-        float[] A = {
-                1, 2, 3, 4,
-                5, 6, 7, 8,
-                9, 10, 11, 12,
-                13, 14, 15, 16
-        };
+    @Param({"ROW_MAJOR", "COLUMN_MAJOR"})
+    private Layout layout;
 
-        float[] B = {
-                16, 15, 14, 13,
-                12, 11, 10, 9,
-                8, 7, 6, 5,
-                4, 3, 2, 1
-        };
+    @Param({"IJK", "IKJ", "JIK", "JKI", "KIJ", "KJI"})
+    private LoopOrder loopOrder;
 
-        float[] C = new float[N * N]; // Result matrix
+    @Setup(Level.Trial)
+    public void setup() {
+        double[] rowMajorA = MatrixMulRowColumnMajor.generateRandomMatrix(matrixSize, 1);
+        double[] rowMajorB = MatrixMulRowColumnMajor.generateRandomMatrix(matrixSize, 2);
 
-        // Perform matrix multiplication on the GPU
-        matrixMultiplyGPU(A, B, C, N);
-
-        // Print the result matrix C
-        System.out.println("Matrix C (Result):");
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                System.out.print(C[i * N + j] + " ");
-            }
-            System.out.println();
-        }
+        // Guardamos las matrices en el formato que se va a probar
+        matrixA = layout == Layout.ROW_MAJOR ? rowMajorA : MatrixMulRowColumnMajor.transpose(rowMajorA, matrixSize);
+        matrixB = layout == Layout.ROW_MAJOR ? rowMajorB : MatrixMulRowColumnMajor.transpose(rowMajorB, matrixSize);
+        matrixC = new double[matrixSize * matrixSize];
     }
 
-    // Method to perform matrix multiplication on the GPU using OpenCL
-    public static void matrixMultiplyGPU(float[] A, float[] B, float[] C, int N) {
-        // Initialize the OpenCL platform
-        CL.setExceptionsEnabled(true);
-        int platformIndex = 0;
-        int deviceType = CL.CL_DEVICE_TYPE_ALL;
-        int deviceIndex = 0;
-
-        // Obtain platform and device information
-        CLPlatform[] platforms = CLPlatform.listCLPlatforms();
-        CLPlatform platform = platforms[platformIndex];
-        CLDevice device = platform.listCLDevices(deviceType)[deviceIndex];
-
-        // Create a context and a command queue
-        CLContext context = CLContext.create(platform, device);
-        CLCommandQueue queue = CLCommandQueue.create(context, device);
-
-        // Allocate memory for matrices A, B, and C on the device
-        CLMem memA = CLMem.createReadOnly(context, Sizeof.cl_float * N * N);
-        CLMem memB = CLMem.createReadOnly(context, Sizeof.cl_float * N * N);
-        CLMem memC = CLMem.createWriteOnly(context, Sizeof.cl_float * N * N);
-
-        // Write the data for matrices A and B to the device
-        clEnqueueWriteBuffer(queue, memA, CL.CL_TRUE, 0, Sizeof.cl_float * N * N, Pointer.to(A), 0, null, null);
-        clEnqueueWriteBuffer(queue, memB, CL.CL_TRUE, 0, Sizeof.cl_float * N * N, Pointer.to(B), 0, null, null);
-
-        // Create the OpenCL program and kernel
-        CLProgram program = CLProgram.create(context, programSource);
-        CLKernel kernel = CLKernel.create(program, "matrixMul");
-
-        // Set kernel arguments
-        kernel.setArg(0, memA);
-        kernel.setArg(1, memB);
-        kernel.setArg(2, memC);
-        kernel.setArg(3, N);
-
-        // Define the global and local work size
-        long[] globalWorkSize = new long[]{N, N};
-
-        // Execute the kernel
-        clEnqueueNDRangeKernel(queue, kernel, 2, null, globalWorkSize, null, 0, null, null);
-
-        // Read the result back into matrix C
-        clEnqueueReadBuffer(queue, memC, CL.CL_TRUE, 0, Sizeof.cl_float * N * N, Pointer.to(C), 0, null, null);
-
-        // Release OpenCL resources
-        clReleaseMemObject(memA);
-        clReleaseMemObject(memB);
-        clReleaseMemObject(memC);
-        clReleaseKernel(kernel);
-        clReleaseProgram(program);
-        clReleaseCommandQueue(queue);
-        clReleaseContext(context);
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkLoopOrder() {
+        MatrixMulRowColumnMajor.multiply(matrixA, matrixB, matrixC, matrixSize, layout, loopOrder);
+        return matrixC;
     }
 }
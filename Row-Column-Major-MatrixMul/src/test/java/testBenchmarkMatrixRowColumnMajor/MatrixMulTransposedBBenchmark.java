@@ -0,0 +1,38 @@
+package testBenchmarkMatrixRowColumnMajor;
+
+import RowColumnMajor.MatrixMulRowColumnMajor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Referencia con B traspuesta: no depende de layout ni loopOrder, así que solo varía el tamaño
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class MatrixMulTransposedBBenchmark {
+
+    private double[] matrixA;
+    private double[] matrixBTransposed;
+    private double[] matrixC;
+
+    // Los mismos tamaños que MatrixMulRowColumnMajorBenchmark para poder comparar
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int matrixSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        matrixA = MatrixMulRowColumnMajor.generateRandomMatrix(matrixSize, 1);
+        matrixBTransposed = MatrixMulRowColumnMajor.transpose(
+                MatrixMulRowColumnMajor.generateRandomMatrix(matrixSize, 2), matrixSize);
+        matrixC = new double[matrixSize * matrixSize];
+    }
+
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkTransposedB() {
+        MatrixMulRowColumnMajor.multiplyTransposed(matrixA, matrixBTransposed, matrixC, matrixSize);
+        return matrixC;
+    }
+}
@@ -0,0 +1,109 @@
+package COO;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// Builder for sparse matrices from coordinate (row, column, value) triplets.
+// Entries are kept in growable primitive arrays, so no dense intermediate and no boxing is needed:
+// memory and time are O(nnz + rows) (O(nnz + cols) for CSC). Entries may be added in any order;
+// duplicates of the same position are summed when the matrix is built.
+public class COOMatrixBuilder {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int rows, cols;
+    private int[] rowIndices;
+    private int[] colIndices;
+    private double[] values;
+    private int size;
+
+    public COOMatrixBuilder(int rows, int cols) {
+        this(rows, cols, DEFAULT_CAPACITY);
+    }
+
+    public COOMatrixBuilder(int rows, int cols, int initialCapacity) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        int capacity = Math.max(1, initialCapacity);
+        this.rowIndices = new int[capacity];
+        this.colIndices = new int[capacity];
+        this.values = new double[capacity];
+    }
+
+    // Method to add an entry; adding the same position again sums the values
+    public COOMatrixBuilder add(int row, int col, double value) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("Entry (" + row + ", " + col + ") outside a "
+                    + rows + "x" + cols + " matrix.");
+        }
+        if (size == values.length) {
+            grow();
+        }
+        rowIndices[size] = row;
+        colIndices[size] = col;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, values.length + (values.length >> 1) + 1L);
+        if (capacity == values.length) {
+            throw new IllegalStateException("COO builder cannot hold more than " + capacity + " entries.");
+        }
+        rowIndices = Arrays.copyOf(rowIndices, capacity);
+        colIndices = Arrays.copyOf(colIndices, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    // Number of entries added so far, duplicates included
+    public int size() {
+        return size;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // Method to build the matrix in CSR format on the common fork-join pool
+    public CSRMatrix buildCSR() {
+        return buildCSR(ForkJoinPool.commonPool());
+    }
+
+    public CSRMatrix buildCSR(ForkJoinPool pool) {
+        CompressedSort.Compressed csr = compress(rows, rowIndices, colIndices, pool);
+        return new CSRMatrix(csr.values, csr.indices, csr.pointers, rows, cols);
+    }
+
+    // Method to build the matrix in CSC format on the common fork-join pool
+    public CSCMatrix buildCSC() {
+        return buildCSC(ForkJoinPool.commonPool());
+    }
+
+    public CSCMatrix buildCSC(ForkJoinPool pool) {
+        CompressedSort.Compressed csc = compress(cols, colIndices, rowIndices, pool);
+        return new CSCMatrix(csc.values, csc.indices, csc.pointers, rows, cols);
+    }
+
+    // Counting sort by major index, sort within slices, then sum duplicates
+    private CompressedSort.Compressed compress(int majorCount, int[] major, int[] minor, ForkJoinPool pool) {
+        CompressedSort.Compressed compressed = CompressedSort.byMajor(majorCount, major, minor, values, size, pool);
+        CompressedSort.sortSlices(compressed.pointers, compressed.indices, compressed.values, pool);
+
+        int nnz = CompressedSort.sumDuplicates(compressed.pointers, compressed.indices, compressed.values);
+        if (nnz < compressed.indices.length) {
+            compressed.indices = Arrays.copyOf(compressed.indices, nnz);
+            compressed.values = Arrays.copyOf(compressed.values, nnz);
+        }
+        return compressed;
+    }
+}
@@ -0,0 +1,163 @@
+package COO;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Parallel building blocks for turning coordinate entries into compressed (CSR/CSC) arrays
+public final class CompressedSort {
+    private static final int MIN_ENTRIES_PER_CHUNK = 1 << 16;   // Smallest share of entries worth a task
+
+    private CompressedSort() {
+    }
+
+    // Compressed arrays shared by CSR (major = row) and CSC (major = column)
+    public static class Compressed {
+        public int[] pointers;
+        public int[] indices;
+        public double[] values;
+    }
+
+    // Stable counting sort of the first `count` entries by major index.
+    // Entries are split into chunks; each chunk builds its own histogram and then scatters into
+    // slots reserved for it, so the scatter runs in parallel without atomics and keeps file order.
+    // Chunks are limited so the histograms never take more memory than the entries themselves.
+    public static Compressed byMajor(int majorCount, int[] major, int[] minor, double[] values, int count,
+                                     ForkJoinPool pool) {
+        long histogramLimit = Math.max(1, (long) count / Math.max(1, majorCount));
+        int chunks = (int) Math.max(1, Math.min(Math.min(pool.getParallelism(), count / MIN_ENTRIES_PER_CHUNK),
+                histogramLimit));
+
+        int[][] next = new int[chunks][];
+        forEach(pool, chunks, c -> {
+            int[] histogram = new int[majorCount];
+            for (int e = chunkStart(count, chunks, c); e < chunkStart(count, chunks, c + 1); e++) {
+                histogram[major[e]]++;
+            }
+            next[c] = histogram;
+        });
+
+        // Turn the histograms into each chunk's first slot per major index
+        int[] pointers = new int[majorCount + 1];
+        int running = 0;
+        for (int m = 0; m < majorCount; m++) {
+            for (int c = 0; c < chunks; c++) {
+                int histogram = next[c][m];
+                next[c][m] = running;
+                running += histogram;
+            }
+            pointers[m + 1] = running;
+        }
+
+        int[] sortedIndices = new int[count];
+        double[] sortedValues = new double[count];
+        forEach(pool, chunks, c -> {
+            int[] slots = next[c];
+            for (int e = chunkStart(count, chunks, c); e < chunkStart(count, chunks, c + 1); e++) {
+                int slot = slots[major[e]]++;
+                sortedIndices[slot] = minor[e];
+                sortedValues[slot] = values[e];
+            }
+        });
+
+        Compressed compressed = new Compressed();
+        compressed.pointers = pointers;
+        compressed.indices = sortedIndices;
+        compressed.values = sortedValues;
+        return compressed;
+    }
+
+    private static int chunkStart(int count, int chunks, int chunk) {
+        return (int) ((long) count * chunk / chunks);
+    }
+
+    // Sorts indices (and their values) inside every compressed slice, in parallel over slices
+    public static void sortSlices(int[] pointers, int[] indices, double[] values, ForkJoinPool pool) {
+        int slices = pointers.length - 1;
+        int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, slices / 1024));
+        forEach(pool, chunks, c -> {
+            long[] keys = new long[0];
+            double[] scratch = new double[0];
+            for (int i = chunkStart(slices, chunks, c); i < chunkStart(slices, chunks, c + 1); i++) {
+                int from = pointers[i], to = pointers[i + 1];
+                if (isSorted(indices, from, to)) {
+                    continue;
+                }
+                if (keys.length < to - from) {
+                    keys = new long[to - from];
+                    scratch = new double[to - from];
+                }
+                // Pack (index, original position) so one primitive sort orders indices and values together
+                for (int p = from; p < to; p++) {
+                    keys[p - from] = ((long) indices[p] << 32) | (p - from);
+                    scratch[p - from] = values[p];
+                }
+                Arrays.sort(keys, 0, to - from);
+                for (int p = from; p < to; p++) {
+                    long key = keys[p - from];
+                    indices[p] = (int) (key >>> 32);
+                    values[p] = scratch[(int) key];
+                }
+            }
+        });
+    }
+
+    private static boolean isSorted(int[] indices, int from, int to) {
+        for (int p = from + 1; p < to; p++) {
+            if (indices[p] < indices[p - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Sums entries with the same index inside every (sorted) slice and compacts the arrays in place.
+    // Returns the new number of entries; pointers are updated to match.
+    public static int sumDuplicates(int[] pointers, int[] indices, double[] values) {
+        int write = 0;
+        int sliceStart = 0;
+        for (int i = 0; i < pointers.length - 1; i++) {
+            int sliceEnd = pointers[i + 1];
+            int first = write;
+            for (int p = sliceStart; p < sliceEnd; p++) {
+                if (write > first && indices[write - 1] == indices[p]) {
+                    values[write - 1] += values[p];
+                } else {
+                    indices[write] = indices[p];
+                    values[write] = values[p];
+                    write++;
+                }
+            }
+            sliceStart = sliceEnd;
+            pointers[i + 1] = write;
+        }
+        return write;
+    }
+
+    // Runs body(0 .. count - 1) as fork-join tasks on the given pool
+    public static void forEach(ForkJoinPool pool, int count, IntConsumer body) {
+        pool.invoke(new RangeTask(0, count, body));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
+
+        RangeTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, body), new RangeTask(middle, to, body));
+            } else if (to > from) {
+                body.accept(from);
+            }
+        }
+    }
+}
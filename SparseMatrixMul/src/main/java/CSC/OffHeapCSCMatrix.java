@@ -0,0 +1,78 @@
+package CSC;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import IO.BinarySparseFormat;
+import OffHeap.SparseStorage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+
+// CSC matrix whose arrays live off-heap in an Arena, with 64-bit column pointers.
+// Lets products with billions of non-zeros run with a small Java heap; closing the arena that
+// owns the storage releases the memory immediately instead of waiting for the GC.
+public class OffHeapCSCMatrix {
+    final SparseStorage storage;      // Slices are columns, indices are rows
+    final int rows;
+
+    public OffHeapCSCMatrix(SparseStorage storage, int rows) {
+        this.storage = storage;
+        this.rows = rows;
+    }
+
+    // Method to copy a heap CSC matrix into memory owned by the arena
+    public static OffHeapCSCMatrix copyOf(CSCMatrix matrix, Arena arena) {
+        return new OffHeapCSCMatrix(SparseStorage.copyOf(arena, matrix.cols, matrix.rows,
+                matrix.colPointers, matrix.rowIndices, matrix.values), matrix.rows);
+    }
+
+    // Method to open a binary CSC file without copying; the matrix is valid while the arena is open
+    public static OffHeapCSCMatrix map(Path path, Arena arena) throws IOException {
+        BinarySparseFormat.MappedMatrix mapped = BinarySparseFormat.map(path, arena);
+        if (mapped.getFormat() != BinarySparseFormat.FORMAT_CSC) {
+            throw new IOException("Binary sparse file does not hold a CSC matrix: " + path);
+        }
+        return new OffHeapCSCMatrix(new SparseStorage(mapped.getCols(), mapped.getRows(),
+                mapped.getPointers(), mapped.getIndices(), mapped.getValues()), mapped.getRows());
+    }
+
+    public SparseStorage getStorage() {
+        return storage;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return storage.getMajor();
+    }
+
+    public long getNonZeros() {
+        return storage.getNonZeros();
+    }
+
+    // Method to multiply two off-heap CSC matrices; the result is allocated in the given arena.
+    // Column j of C combines the columns of this matrix selected by column j of B.
+    public OffHeapCSCMatrix multiply(OffHeapCSCMatrix B, Arena arena) {
+        if (this.getCols() != B.getRows()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        return new OffHeapCSCMatrix(B.storage.multiply(this.storage, arena), this.rows);
+    }
+
+    // Method to multiply this matrix by a dense vector: y = A * x
+    public double[] multiply(double[] x, double[] y) {
+        if (x.length != getCols() || y.length != getRows()) {
+            throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+        }
+        storage.scatter(x, y);
+        return y;
+    }
+
+    // Method to copy the matrix back onto the heap (only while nnz fits an int)
+    public CSCMatrix toHeap() {
+        return new CSCMatrix(storage.valuesToHeap(), storage.indicesToHeap(), storage.pointersToHeap(),
+                rows, getCols());
+    }
+}
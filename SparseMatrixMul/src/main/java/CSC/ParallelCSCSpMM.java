@@ -0,0 +1,90 @@
+package CSC;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import SpGEMM.RowPartition;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Column-parallel sparse x dense product Y = A * X for CSC matrices.
+// Columns of A are split into chunks of equal non-zeros; each chunk scatters into a private buffer,
+// and the buffers are reduced into Y by a second pass that is parallel over the entries of Y.
+class ParallelCSCSpMM {
+    private static final int REDUCE_CHUNK = 1 << 14;  // Entries of Y summed per reduction leaf
+
+    private ParallelCSCSpMM() {
+    }
+
+    static void multiply(CSCMatrix A, double[] X, int xCols, double[] Y, double[][] buffers, ForkJoinPool pool) {
+        int[] chunks = RowPartition.split(A.colPointers, buffers.length);
+        int used = chunks.length - 1;
+        pool.invoke(new ScatterTask(A, X, xCols, buffers, chunks, 0, used));
+        pool.invoke(new ReduceTask(Y, buffers, used, 0, Y.length));
+    }
+
+    // Scatters chunks [from, to) of columns, chunk c into buffers[c]
+    private static class ScatterTask extends RecursiveAction {
+        private final CSCMatrix A;
+        private final double[] X;
+        private final int xCols;
+        private final double[][] buffers;
+        private final int[] chunks;
+        private final int from, to;
+
+        ScatterTask(CSCMatrix A, double[] X, int xCols, double[][] buffers, int[] chunks, int from, int to) {
+            this.A = A;
+            this.X = X;
+            this.xCols = xCols;
+            this.buffers = buffers;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScatterTask(A, X, xCols, buffers, chunks, from, middle),
+                        new ScatterTask(A, X, xCols, buffers, chunks, middle, to));
+                return;
+            }
+            Arrays.fill(buffers[from], 0.0);
+            A.scatterColumns(X, xCols, buffers[from], chunks[from], chunks[to]);
+        }
+    }
+
+    // Y[start:end] = sum of the first `used` buffers over the same range
+    private static class ReduceTask extends RecursiveAction {
+        private final double[] Y;
+        private final double[][] buffers;
+        private final int used;
+        private final int start, end;
+
+        ReduceTask(double[] Y, double[][] buffers, int used, int start, int end) {
+            this.Y = Y;
+            this.buffers = buffers;
+            this.used = used;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > REDUCE_CHUNK) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ReduceTask(Y, buffers, used, start, middle),
+                        new ReduceTask(Y, buffers, used, middle, end));
+                return;
+            }
+            System.arraycopy(buffers[0], start, Y, start, end - start);
+            for (int b = 1; b < used; b++) {
+                double[] buffer = buffers[b];
+                for (int p = start; p < end; p++) {
+                    Y[p] += buffer[p];
+                }
+            }
+        }
+    }
+}
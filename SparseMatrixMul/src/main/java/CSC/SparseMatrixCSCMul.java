@@ -1,8 +1,13 @@
 package CSC;
 
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import SpGEMM.SparseAccumulator;
+
+import java.lang.foreign.Arena;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class SparseMatrixCSCMul {
 
@@ -14,7 +19,7 @@ public class SparseMatrixCSCMul {
 
         int rows, cols;           // Number of rows and columns in the matrix
 
-        CSCMatrix(double[] values, int[] rowIndices, int[] colPointers, int rows, int cols) {
+        public CSCMatrix(double[] values, int[] rowIndices, int[] colPointers, int rows, int cols) {
             this.values = values;
             this.rowIndices = rowIndices;
             this.colPointers = colPointers;
@@ -22,6 +27,56 @@ public class SparseMatrixCSCMul {
             this.cols = cols;
         }
 
+        public double[] getValues() {
+            return values;
+        }
+
+        public int[] getRowIndices() {
+            return rowIndices;
+        }
+
+        public int[] getColPointers() {
+            return colPointers;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        // Method to convert this matrix to CSR format in O(nnz + rows) with a counting sort over rows.
+        // Columns are visited in order, so column indices come out sorted within every row.
+        public CSRMatrix toCSR() {
+            int nnz = colPointers[cols];
+            int[] rowPointers = new int[rows + 1];
+            for (int p = 0; p < nnz; p++) {
+                rowPointers[rowIndices[p] + 1]++;
+            }
+            for (int r = 0; r < rows; r++) {
+                rowPointers[r + 1] += rowPointers[r];
+            }
+
+            int[] next = Arrays.copyOf(rowPointers, rows);
+            int[] columnIndices = new int[nnz];
+            double[] csrValues = new double[nnz];
+            for (int j = 0; j < cols; j++) {
+                for (int p = colPointers[j]; p < colPointers[j + 1]; p++) {
+                    int slot = next[rowIndices[p]]++;
+                    columnIndices[slot] = j;
+                    csrValues[slot] = values[p];
+                }
+            }
+            return new CSRMatrix(csrValues, columnIndices, rowPointers, rows, cols);
+        }
+
+        // Method to copy this matrix off-heap into memory owned by the arena
+        public OffHeapCSCMatrix toOffHeap(Arena arena) {
+            return OffHeapCSCMatrix.copyOf(this, arena);
+        }
+
         // Method to print the CSC matrix details
         public void printCSCDetails() {
             System.out.println("CSC Representation:");
@@ -46,57 +101,120 @@ public class SparseMatrixCSCMul {
             }
         }
 
-        // Method to multiply two CSC matrices
-        public CSCMatrix multiply(CSCMatrix B) {
-            if (this.cols != B.rows) {
-                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        // Method to multiply this matrix by a dense vector: y = A * x. The output buffer y is reused, so
+        // iterative callers do not allocate per product.
+        public double[] multiply(double[] x, double[] y) {
+            return multiply(x, 1, y);
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix X with xCols columns: Y = A * X.
+        // Column j of A is scaled by row j of X and scattered into Y.
+        public double[] multiply(double[] X, int xCols, double[] Y) {
+            checkVectorDimensions(X.length, Y.length, xCols);
+            Arrays.fill(Y, 0.0);
+            scatterColumns(X, xCols, Y, 0, cols);
+            return Y;
+        }
+
+        // Method to multiply this matrix by a dense vector on the common fork-join pool
+        public double[] multiplyParallel(double[] x, double[] y) {
+            return multiplyParallel(x, 1, y);
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix on the common fork-join pool.
+        // Allocates fresh scatter buffers; hot loops should keep buffers from createScatterBuffers instead.
+        public double[] multiplyParallel(double[] X, int xCols, double[] Y) {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            return multiplyParallel(X, xCols, Y, createScatterBuffers(xCols, pool.getParallelism()), pool);
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix with columns of A split across the given pool.
+        // Every chunk of columns scatters into its own buffer, so no atomics are needed; the buffers are then
+        // summed into Y in parallel. One chunk is formed per buffer.
+        public double[] multiplyParallel(double[] X, int xCols, double[] Y, double[][] buffers, ForkJoinPool pool) {
+            checkVectorDimensions(X.length, Y.length, xCols);
+            for (double[] buffer : buffers) {
+                if (buffer.length != Y.length) {
+                    throw new IllegalArgumentException("Scatter buffer size does not match the output.");
+                }
             }
+            ParallelCSCSpMM.multiply(this, X, xCols, Y, buffers, pool);
+            return Y;
+        }
 
-            List<Double> resultValues = new ArrayList<>();
-            List<Integer> resultRowIndices = new ArrayList<>();
-            List<Integer> resultColPointers = new ArrayList<>();
-            resultColPointers.add(0);
+        // Method to create per-thread scatter buffers for multiplyParallel, reusable across calls
+        public double[][] createScatterBuffers(int xCols, int parts) {
+            return new double[Math.max(1, parts)][rows * xCols];
+        }
 
-            // Temporary array to store result for a single column in C
-            double[] colResult = new double[this.rows];
+        private void checkVectorDimensions(int xLength, int yLength, int xCols) {
+            if (xCols < 1 || xLength != (long) this.cols * xCols || yLength != (long) this.rows * xCols) {
+                throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+            }
+        }
 
-            // Perform CSC matrix multiplication (this * B)
-            for (int jB = 0; jB < B.cols; jB++) {
-                // Clear colResult
-                Arrays.fill(colResult, 0.0);
-
-                // For each non-zero element in column jB of matrix B
-                for (int k = B.colPointers[jB]; k < B.colPointers[jB + 1]; k++) {
-                    int rowB = B.rowIndices[k];   // Row index in matrix B
-                    double valB = B.values[k];    // Value of B at rowB and column jB
-
-                    // Multiply column jB of B by corresponding row of this matrix
-                    for (int i = this.colPointers[rowB]; i < this.colPointers[rowB + 1]; i++) {
-                        int rowA = this.rowIndices[i];
-                        double valA = this.values[i];
-                        colResult[rowA] += valA * valB;
+        // Adds the contribution of columns [colStart, colEnd) of A to Y = A * X
+        void scatterColumns(double[] X, int xCols, double[] Y, int colStart, int colEnd) {
+            if (xCols == 1) {
+                for (int j = colStart; j < colEnd; j++) {
+                    double xValue = X[j];
+                    if (xValue == 0.0) {
+                        continue;
+                    }
+                    for (int p = colPointers[j]; p < colPointers[j + 1]; p++) {
+                        Y[rowIndices[p]] += values[p] * xValue;
                     }
                 }
-
-                // Save the result of column jB in CSC format
-                int nonZeroCount = 0;
-                for (int i = 0; i < this.rows; i++) {
-                    if (colResult[i] != 0.0) {
-                        resultValues.add(colResult[i]);
-                        resultRowIndices.add(i);
-                        nonZeroCount++;
+                return;
+            }
+            for (int j = colStart; j < colEnd; j++) {
+                int xRow = j * xCols;
+                for (int p = colPointers[j]; p < colPointers[j + 1]; p++) {
+                    double aValue = values[p];
+                    int yRow = rowIndices[p] * xCols;
+                    for (int t = 0; t < xCols; t++) {
+                        Y[yRow + t] += aValue * X[xRow + t];
                     }
                 }
+            }
+        }
+
+        // Method to multiply two CSC matrices, emitting sorted row indices
+        public CSCMatrix multiply(CSCMatrix B) {
+            return multiply(B, true);
+        }
 
-                resultColPointers.add(resultColPointers.get(resultColPointers.size() - 1) + nonZeroCount);
+        // Method to multiply two CSC matrices; unsorted output skips the per-column sort of row indices
+        public CSCMatrix multiply(CSCMatrix B, boolean sortedIndices) {
+            if (this.cols != B.rows) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
             }
 
-            // Convert lists to arrays
-            double[] resultValuesArray = resultValues.stream().mapToDouble(Double::doubleValue).toArray();
-            int[] resultRowIndicesArray = resultRowIndices.stream().mapToInt(Integer::intValue).toArray();
-            int[] resultColPointersArray = resultColPointers.stream().mapToInt(Integer::intValue).toArray();
+            // Sparse accumulator reused for every column of C
+            SparseAccumulator accumulator = new SparseAccumulator(this.rows);
+
+            // Symbolic phase: count the exact number of non-zeros in each column of C.
+            // Column jB of C combines the columns of this matrix selected by column jB of B.
+            int[] resultColPointers = new int[B.cols + 1];
+            for (int jB = 0; jB < B.cols; jB++) {
+                int nonZeroCount = accumulator.symbolic(B.colPointers, B.rowIndices, jB,
+                        this.colPointers, this.rowIndices);
+                resultColPointers[jB + 1] = Math.addExact(resultColPointers[jB], nonZeroCount);
+            }
+
+            // Preallocate the output with its exact size
+            int nnz = resultColPointers[B.cols];
+            double[] resultValues = new double[nnz];
+            int[] resultRowIndices = new int[nnz];
+
+            // Numeric phase: each column of C is written directly into its slice of the output arrays
+            for (int jB = 0; jB < B.cols; jB++) {
+                accumulator.numeric(B.colPointers, B.rowIndices, B.values, jB,
+                        this.colPointers, this.rowIndices, this.values,
+                        resultRowIndices, resultValues, resultColPointers[jB], sortedIndices);
+            }
 
-            return new CSCMatrix(resultValuesArray, resultRowIndicesArray, resultColPointersArray, this.rows, B.cols);
+            return new CSCMatrix(resultValues, resultRowIndices, resultColPointers, this.rows, B.cols);
         }
     }
 
@@ -0,0 +1,263 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.util.Arrays;
+
+// Block CSR: the matrix is tiled into r x c blocks and every block holding at least one non-zero is stored
+// whole, column-major, with a single column index for the block. Matrices from meshes with several unknowns
+// per node are made of such small dense blocks, so this drops the index per scalar to one per block and gives
+// the kernels fixed-length inner loops; the price is the explicit zeros stored to fill partial blocks.
+public class BCSRMatrix {
+    final int rows, cols;
+    final int blockHeight, blockWidth;           // r and c
+    final int blockRowCount;                     // ceil(rows / r)
+    final int[] blockPointers;                   // Start of each block row in blockColumns
+    final int[] blockColumns;                    // Block column of every stored block
+    final double[] values;                       // r * c values per block, column-major within the block
+
+    BCSRMatrix(int rows, int cols, int blockHeight, int blockWidth, int[] blockPointers, int[] blockColumns,
+               double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.blockHeight = blockHeight;
+        this.blockWidth = blockWidth;
+        this.blockRowCount = blockPointers.length - 1;
+        this.blockPointers = blockPointers;
+        this.blockColumns = blockColumns;
+        this.values = values;
+    }
+
+    // Method to convert a CSR matrix into r x c blocks
+    public static BCSRMatrix fromCSR(CSRMatrix A, int blockHeight, int blockWidth) {
+        if (blockHeight < 1 || blockWidth < 1) {
+            throw new IllegalArgumentException("Block dimensions must be positive.");
+        }
+        int blockRowCount = (A.rows + blockHeight - 1) / blockHeight;
+        int blockColCount = (A.cols + blockWidth - 1) / blockWidth;
+        int blockSize = blockHeight * blockWidth;
+
+        // Count the distinct block columns of every block row
+        int[] marker = new int[blockColCount];
+        int[] slot = new int[blockColCount];
+        int[] pointers = new int[blockRowCount + 1];
+        for (int I = 0; I < blockRowCount; I++) {
+            int count = 0;
+            for (int i = I * blockHeight; i < Math.min(A.rows, (I + 1) * blockHeight); i++) {
+                for (int p = A.rowPointers[i]; p < A.rowPointers[i + 1]; p++) {
+                    int J = A.columnIndices[p] / blockWidth;
+                    if (marker[J] != I + 1) {
+                        marker[J] = I + 1;
+                        count++;
+                    }
+                }
+            }
+            pointers[I + 1] = Math.addExact(pointers[I], count);
+        }
+
+        // Place the blocks of each block row in ascending column order, then scatter the entries into them
+        int blocks = pointers[blockRowCount];
+        int[] columns = new int[blocks];
+        double[] values = new double[Math.multiplyExact(blocks, blockSize)];
+        Arrays.fill(marker, 0);
+        for (int I = 0; I < blockRowCount; I++) {
+            int end = pointers[I];
+            int rowStart = I * blockHeight, rowEnd = Math.min(A.rows, rowStart + blockHeight);
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int p = A.rowPointers[i]; p < A.rowPointers[i + 1]; p++) {
+                    int J = A.columnIndices[p] / blockWidth;
+                    if (marker[J] != I + 1) {
+                        marker[J] = I + 1;
+                        columns[end++] = J;
+                    }
+                }
+            }
+            Arrays.sort(columns, pointers[I], end);
+            for (int b = pointers[I]; b < end; b++) {
+                slot[columns[b]] = b;
+            }
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int p = A.rowPointers[i]; p < A.rowPointers[i + 1]; p++) {
+                    int column = A.columnIndices[p];
+                    int b = slot[column / blockWidth];
+                    values[b * blockSize + (column % blockWidth) * blockHeight + (i - rowStart)] += A.values[p];
+                }
+            }
+        }
+        return new BCSRMatrix(A.rows, A.cols, blockHeight, blockWidth, pointers, columns, values);
+    }
+
+    // Method to convert back to CSR; the zeros that fill partial blocks are dropped
+    public CSRMatrix toCSR() {
+        int blockSize = blockHeight * blockWidth;
+        int[] rowPointers = new int[rows + 1];
+        for (int I = 0; I < blockRowCount; I++) {
+            for (int b = blockPointers[I]; b < blockPointers[I + 1]; b++) {
+                for (int e = 0; e < blockSize; e++) {
+                    if (values[b * blockSize + e] != 0.0) {
+                        rowPointers[I * blockHeight + e % blockHeight + 1]++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+
+        int[] next = Arrays.copyOf(rowPointers, rows);
+        int[] columnIndices = new int[rowPointers[rows]];
+        double[] csrValues = new double[rowPointers[rows]];
+        for (int I = 0; I < blockRowCount; I++) {
+            for (int b = blockPointers[I]; b < blockPointers[I + 1]; b++) {
+                // Blocks ascend within the block row and columns within the block, so rows stay sorted
+                for (int k = 0; k < blockWidth; k++) {
+                    for (int i = 0; i < blockHeight; i++) {
+                        double value = values[b * blockSize + k * blockHeight + i];
+                        if (value != 0.0) {
+                            int slot = next[I * blockHeight + i]++;
+                            columnIndices[slot] = blockColumns[b] * blockWidth + k;
+                            csrValues[slot] = value;
+                        }
+                    }
+                }
+            }
+        }
+        return new CSRMatrix(csrValues, columnIndices, rowPointers, rows, cols, true);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getBlockHeight() {
+        return blockHeight;
+    }
+
+    public int getBlockWidth() {
+        return blockWidth;
+    }
+
+    public int getBlockCount() {
+        return blockPointers[blockRowCount];
+    }
+
+    // Scalars stored, explicit zeros included
+    public long getStoredEntries() {
+        return (long) getBlockCount() * blockHeight * blockWidth;
+    }
+
+    // Method to multiply this matrix by a dense vector: y = A * x
+    public double[] multiply(double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+        }
+        if (SparseMatrixCSRMul.VECTOR_ENABLED && VectorBlockKernels.supports(blockHeight)) {
+            VectorBlockKernels.multiply(this, x, y);
+        } else {
+            multiplyScalar(x, y);
+        }
+        return y;
+    }
+
+    void multiplyScalar(double[] x, double[] y) {
+        multiplyScalar(x, y, 0, blockRowCount);
+    }
+
+    // Block rows [blockRowStart, blockRowEnd) of y = A * x. Each row of a block row is summed in a register
+    // across the blocks; its entries are r apart within a block, which stays inside the block's cache lines.
+    // Blocks on the right and bottom edges are clipped.
+    void multiplyScalar(double[] x, double[] y, int blockRowStart, int blockRowEnd) {
+        int blockSize = blockHeight * blockWidth;
+        for (int I = blockRowStart; I < blockRowEnd; I++) {
+            int rowStart = I * blockHeight;
+            int height = Math.min(blockHeight, rows - rowStart);
+            for (int i = 0; i < height; i++) {
+                double sum = 0.0;
+                for (int b = blockPointers[I]; b < blockPointers[I + 1]; b++) {
+                    int column = blockColumns[b] * blockWidth;
+                    int width = Math.min(blockWidth, cols - column);
+                    for (int k = 0, offset = b * blockSize + i; k < width; k++, offset += blockHeight) {
+                        sum += values[offset] * x[column + k];
+                    }
+                }
+                y[rowStart + i] = sum;
+            }
+        }
+    }
+
+    // Method to multiply two block matrices. The block width of this matrix must equal the block height of B;
+    // the result has blocks of this matrix's height and B's width. Each block row is accumulated in a dense
+    // array of blocks indexed by block column, with small dense block products as the multiply-add.
+    public BCSRMatrix multiply(BCSRMatrix B) {
+        if (this.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        if (this.blockWidth != B.blockHeight) {
+            throw new IllegalArgumentException("Block sizes do not match for multiplication: "
+                    + blockHeight + "x" + blockWidth + " times " + B.blockHeight + "x" + B.blockWidth + ".");
+        }
+        int r = blockHeight, c = blockWidth, w = B.blockWidth;
+        int aSize = r * c, bSize = c * w, cSize = r * w;
+        int blockColCount = (B.cols + w - 1) / w;
+
+        double[] accumulator = new double[Math.multiplyExact(blockColCount, cSize)];
+        int[] marker = new int[blockColCount];
+        int[] touched = new int[blockColCount];
+
+        int[] pointers = new int[blockRowCount + 1];
+        int[] columns = new int[Math.max(16, getBlockCount())];
+        double[] result = new double[columns.length * cSize];
+        int count = 0;
+        for (int I = 0; I < blockRowCount; I++) {
+            int touchedCount = 0;
+            for (int pa = blockPointers[I]; pa < blockPointers[I + 1]; pa++) {
+                int K = blockColumns[pa];
+                int aBase = pa * aSize;
+                for (int pb = B.blockPointers[K]; pb < B.blockPointers[K + 1]; pb++) {
+                    int J = B.blockColumns[pb];
+                    int cBase = J * cSize;
+                    if (marker[J] != I + 1) {
+                        marker[J] = I + 1;
+                        touched[touchedCount++] = J;
+                        Arrays.fill(accumulator, cBase, cBase + cSize, 0.0);
+                    }
+                    // C(I, J) += A(I, K) * B(K, J), all three column-major
+                    int bBase = pb * bSize;
+                    for (int j = 0; j < w; j++) {
+                        for (int k = 0; k < c; k++) {
+                            double bValue = B.values[bBase + j * c + k];
+                            if (bValue == 0.0) {
+                                continue;
+                            }
+                            int aOffset = aBase + k * r;
+                            int cOffset = cBase + j * r;
+                            for (int i = 0; i < r; i++) {
+                                accumulator[cOffset + i] += values[aOffset + i] * bValue;
+                            }
+                        }
+                    }
+                }
+            }
+
+            Arrays.sort(touched, 0, touchedCount);
+            if (count + touchedCount > columns.length) {
+                int capacity = Math.max(count + touchedCount, columns.length * 2);
+                columns = Arrays.copyOf(columns, capacity);
+                result = Arrays.copyOf(result, Math.multiplyExact(capacity, cSize));
+            }
+            for (int t = 0; t < touchedCount; t++) {
+                int J = touched[t];
+                columns[count] = J;
+                System.arraycopy(accumulator, J * cSize, result, count * cSize, cSize);
+                count++;
+            }
+            pointers[I + 1] = count;
+        }
+        return new BCSRMatrix(rows, B.cols, r, w, pointers, Arrays.copyOf(columns, count),
+                Arrays.copyOf(result, count * cSize));
+    }
+}
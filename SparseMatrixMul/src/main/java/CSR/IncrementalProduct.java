@@ -0,0 +1,386 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import SpGEMM.AdaptiveAccumulator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Keeps C = A * B current while rows of A or B are replaced a few at a time. Row i of C only depends on row i
+// of A, so replacing rows of A recomputes exactly those rows of C. Replacing row k of B changes every row of C
+// whose row of A has an entry in column k; those rows are read off an index of A by columns, which is built on
+// the first such update and from then on patched with the old and new entries of every replaced row of A, so
+// keeping it current costs as much as the change. When A and B are the same matrix, every replaced row is a row
+// of both, so an update recomputes the replaced rows of C together with the rows reaching them through B.
+//
+// A, B and C are updated in place: the same CSRMatrix objects stay valid, and when every replaced row keeps
+// its length the new entries are copied over the old ones in their arrays. Otherwise the arrays are rebuilt
+// from bulk copies of the unchanged runs around the new rows. The multiply-adds are those of the recomputed
+// rows only. None of the three matrices may sit in a MatrixCache or be shared with a SymbolicProduct.
+public class IncrementalProduct {
+    private final CSRMatrix A, B, C;
+    private AdaptiveAccumulator accumulator;
+    private boolean accumulatorSorted;           // Sortedness of B the accumulator was created for
+    private ColumnIndex leftColumns;             // A by columns, null until a B update needs it
+
+    private final int[] stamp;                   // Generation of the last B update that marked a row of C
+    private int generation;
+
+    // Counters of one update
+    public static class UpdateStats {
+        public final int changedRows;            // Rows of the operand that were replaced
+        public final int recomputedRows;         // Rows of C computed again
+        public final long flops;                 // Multiply-adds of those rows
+        public final long nnzChange;             // Non-zeros C gained (negative if it lost some)
+        public final boolean reallocated;        // Whether C's arrays had to be rebuilt
+        public final long elapsedNanos;
+
+        UpdateStats(int changedRows, int recomputedRows, long flops, long nnzChange, boolean reallocated,
+                    long elapsedNanos) {
+            this.changedRows = changedRows;
+            this.recomputedRows = recomputedRows;
+            this.flops = flops;
+            this.nnzChange = nnzChange;
+            this.reallocated = reallocated;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows changed, %d rows of C recomputed (%d flops), nnz %+d, %s, %.2f ms",
+                    changedRows, recomputedRows, flops, nnzChange, reallocated ? "arrays rebuilt" : "in place",
+                    elapsedNanos / 1e6);
+        }
+    }
+
+    // Method to start tracking the product of A and B; it is computed once in full here
+    public IncrementalProduct(CSRMatrix A, CSRMatrix B) {
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        this.A = A;
+        this.B = B;
+        this.C = A.multiply(B);
+        this.stamp = new int[A.rows];
+    }
+
+    public CSRMatrix getLeft() {
+        return A;
+    }
+
+    public CSRMatrix getRight() {
+        return B;
+    }
+
+    // The product, updated in place by every update
+    public CSRMatrix getResult() {
+        return C;
+    }
+
+    // Method to replace rows of A: row rows[r] becomes row r of replacement. Rows must ascend.
+    public UpdateStats updateLeftRows(int[] rows, CSRMatrix replacement) {
+        long start = System.nanoTime();
+        checkReplacement(rows, replacement, A);
+        if (A == B) {
+            return updateSelfRows(rows, replacement, start);
+        }
+
+        // The new rows of C only need the new rows of A, so they are computed straight from the replacement
+        RowBlock product = multiplyRows(replacement.rowPointers, replacement.columnIndices, replacement.values,
+                null, rows.length);
+        patchColumns(rows, replacement);
+        splice(A, rows, replacement.rowPointers, replacement.columnIndices, replacement.values,
+                replacement.sortedIndices);
+
+        long nnzBefore = C.rowPointers[C.rows];
+        boolean reallocated = splice(C, rows, product.pointers, product.indices, product.values, true);
+        return new UpdateStats(rows.length, rows.length, product.flops, C.rowPointers[C.rows] - nnzBefore,
+                reallocated, System.nanoTime() - start);
+    }
+
+    // Method to replace rows of B: row rows[r] becomes row r of replacement. Rows must ascend.
+    public UpdateStats updateRightRows(int[] rows, CSRMatrix replacement) {
+        long start = System.nanoTime();
+        checkReplacement(rows, replacement, B);
+        if (A == B) {
+            return updateSelfRows(rows, replacement, start);
+        }
+        splice(B, rows, replacement.rowPointers, replacement.columnIndices, replacement.values,
+                replacement.sortedIndices);
+
+        int[] affected = affectedRows(rows, false);
+        RowBlock product = multiplyRows(A.rowPointers, A.columnIndices, A.values, affected, affected.length);
+        long nnzBefore = C.rowPointers[C.rows];
+        boolean reallocated = splice(C, affected, product.pointers, product.indices, product.values, true);
+        return new UpdateStats(rows.length, affected.length, product.flops, C.rowPointers[C.rows] - nnzBefore,
+                reallocated, System.nanoTime() - start);
+    }
+
+    // Self-product: the affected rows are read off the column index before it is patched. A row outside the
+    // replaced ones keeps its entries, so the old columns mark the same rows the new ones would, and the replaced
+    // rows are recomputed anyway. The recomputed rows then see the spliced operand.
+    private UpdateStats updateSelfRows(int[] rows, CSRMatrix replacement, long start) {
+        int[] affected = affectedRows(rows, true);
+        patchColumns(rows, replacement);
+        splice(A, rows, replacement.rowPointers, replacement.columnIndices, replacement.values,
+                replacement.sortedIndices);
+
+        RowBlock product = multiplyRows(A.rowPointers, A.columnIndices, A.values, affected, affected.length);
+        long nnzBefore = C.rowPointers[C.rows];
+        boolean reallocated = splice(C, affected, product.pointers, product.indices, product.values, true);
+        return new UpdateStats(rows.length, affected.length, product.flops, C.rowPointers[C.rows] - nnzBefore,
+                reallocated, System.nanoTime() - start);
+    }
+
+    // Rows of C reached through the changed rows of B, plus the changed rows themselves when they are rows of A
+    // too, in ascending order
+    private int[] affectedRows(int[] rows, boolean includeRows) {
+        if (leftColumns == null) {
+            leftColumns = new ColumnIndex(A);
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        int[] affected = new int[16];
+        int count = 0;
+        if (includeRows) {
+            for (int i : rows) {
+                stamp[i] = generation;
+            }
+            affected = Arrays.copyOf(rows, Math.max(16, rows.length));
+            count = rows.length;
+        }
+        for (int k : rows) {
+            int[] column = leftColumns.rows[k];
+            for (int p = 0; p < leftColumns.lengths[k]; p++) {
+                int i = column[p];
+                if (stamp[i] != generation) {
+                    stamp[i] = generation;
+                    if (count == affected.length) {
+                        affected = Arrays.copyOf(affected, count * 2);
+                    }
+                    affected[count++] = i;
+                }
+            }
+        }
+        affected = Arrays.copyOf(affected, count);
+        Arrays.sort(affected);
+        return affected;
+    }
+
+    // Moves the replaced rows of A from the columns of their old entries to those of their new ones. Must run
+    // before A is spliced; rows whose pattern is unchanged (value-only edits) are skipped.
+    private void patchColumns(int[] rows, CSRMatrix replacement) {
+        if (leftColumns == null) {
+            return;
+        }
+        for (int r = 0; r < rows.length; r++) {
+            int i = rows[r];
+            int oldStart = A.rowPointers[i], oldEnd = A.rowPointers[i + 1];
+            int newStart = replacement.rowPointers[r], newEnd = replacement.rowPointers[r + 1];
+            if (Arrays.equals(A.columnIndices, oldStart, oldEnd, replacement.columnIndices, newStart, newEnd)) {
+                continue;
+            }
+            for (int p = oldStart; p < oldEnd; p++) {
+                leftColumns.remove(A.columnIndices[p], i);
+            }
+            for (int p = newStart; p < newEnd; p++) {
+                leftColumns.add(replacement.columnIndices[p], i);
+            }
+        }
+    }
+
+    // Rows of A listed per column, each list growable on its own so a patch never shifts the other columns.
+    // Order within a column does not matter, since affected rows are sorted anyway, so a removal moves the
+    // last row of the column into the gap. Removal scans its column, which is short unless the column is dense.
+    private static class ColumnIndex {
+        private static final int[] EMPTY = new int[0];
+
+        final int[][] rows;
+        final int[] lengths;
+
+        ColumnIndex(CSRMatrix A) {
+            lengths = new int[A.cols];
+            int nnz = A.rowPointers[A.rows];
+            for (int j = 0; j < nnz; j++) {
+                lengths[A.columnIndices[j]]++;
+            }
+            rows = new int[A.cols][];
+            for (int c = 0; c < A.cols; c++) {
+                rows[c] = lengths[c] == 0 ? EMPTY : new int[lengths[c]];
+            }
+            Arrays.fill(lengths, 0);
+            for (int i = 0; i < A.rows; i++) {
+                for (int j = A.rowPointers[i]; j < A.rowPointers[i + 1]; j++) {
+                    int c = A.columnIndices[j];
+                    rows[c][lengths[c]++] = i;
+                }
+            }
+        }
+
+        void add(int column, int row) {
+            if (lengths[column] == rows[column].length) {
+                rows[column] = Arrays.copyOf(rows[column], Math.max(4, lengths[column] * 2));
+            }
+            rows[column][lengths[column]++] = row;
+        }
+
+        void remove(int column, int row) {
+            int[] list = rows[column];
+            int last = --lengths[column];
+            for (int p = 0; p <= last; p++) {
+                if (list[p] == row) {
+                    list[p] = list[last];
+                    return;
+                }
+            }
+            throw new IllegalStateException("Row " + row + " is not indexed under column " + column + ".");
+        }
+    }
+
+    private static void checkReplacement(int[] rows, CSRMatrix replacement, CSRMatrix target) {
+        if (replacement.rows != rows.length || replacement.cols != target.cols) {
+            throw new IllegalArgumentException("Replacement rows do not match the matrix dimensions.");
+        }
+        for (int r = 0; r < rows.length; r++) {
+            if (rows[r] < 0 || rows[r] >= target.rows || (r > 0 && rows[r] <= rows[r - 1])) {
+                throw new IllegalArgumentException("Changed rows must be distinct, in range and ascending.");
+            }
+        }
+    }
+
+    // Rows of a product packed into their own arrays, with the multiply-adds it took
+    private record RowBlock(int[] pointers, int[] indices, double[] values, long flops) {
+    }
+
+    // Rows ids[0..count) of left * B (rows 0..count of left when ids is null), sorted, through the same
+    // adaptive accumulator as CSRMatrix.multiply
+    private RowBlock multiplyRows(int[] leftPointers, int[] leftIndices, double[] leftValues, int[] ids, int count) {
+        if (accumulator == null || accumulatorSorted != B.sortedIndices) {
+            accumulator = new AdaptiveAccumulator(B.cols, B.sortedIndices);
+            accumulatorSorted = B.sortedIndices;
+        }
+        int[] pointers = new int[count + 1];
+        long flops = 0;
+        for (int r = 0; r < count; r++) {
+            int row = ids == null ? r : ids[r];
+            flops += AdaptiveAccumulator.rowFlops(leftPointers, leftIndices, row, B.rowPointers);
+            int rowCount = accumulator.symbolic(leftPointers, leftIndices, row, B.rowPointers, B.columnIndices);
+            pointers[r + 1] = Math.addExact(pointers[r], rowCount);
+        }
+        int[] indices = new int[pointers[count]];
+        double[] values = new double[pointers[count]];
+        for (int r = 0; r < count; r++) {
+            accumulator.numeric(leftPointers, leftIndices, leftValues, ids == null ? r : ids[r],
+                    B.rowPointers, B.columnIndices, B.values, indices, values, pointers[r], true);
+        }
+        return new RowBlock(pointers, indices, values, flops);
+    }
+
+    // Replaces rows[r] of M (ascending) by row r of (pointers, indices, values). Rows that keep their length
+    // are overwritten in place; otherwise new arrays are assembled from the unchanged runs and the new rows.
+    // Returns whether the arrays were reallocated.
+    static boolean splice(CSRMatrix M, int[] rows, int[] pointers, int[] indices, double[] values, boolean sorted) {
+        int[] rowPointers = M.rowPointers;
+        int[] growth = new int[rows.length];
+        boolean sameLengths = true;
+        long delta = 0;
+        for (int r = 0; r < rows.length; r++) {
+            growth[r] = (pointers[r + 1] - pointers[r]) - (rowPointers[rows[r] + 1] - rowPointers[rows[r]]);
+            sameLengths &= growth[r] == 0;
+            delta += growth[r];
+        }
+        M.sortedIndices &= sorted;
+
+        if (sameLengths) {
+            for (int r = 0; r < rows.length; r++) {
+                int length = pointers[r + 1] - pointers[r];
+                System.arraycopy(indices, pointers[r], M.columnIndices, rowPointers[rows[r]], length);
+                System.arraycopy(values, pointers[r], M.values, rowPointers[rows[r]], length);
+            }
+            return false;
+        }
+
+        long nnz = rowPointers[M.rows] + delta;
+        if (nnz > Integer.MAX_VALUE - 8) {
+            throw new ArithmeticException("Matrix has too many non-zeros for CSR.");
+        }
+        int[] newIndices = new int[(int) nnz];
+        double[] newValues = new double[(int) nnz];
+        int from = 0, to = 0;
+        for (int r = 0; r < rows.length; r++) {
+            // Unchanged entries up to the row, then the row itself
+            int run = rowPointers[rows[r]] - from;
+            System.arraycopy(M.columnIndices, from, newIndices, to, run);
+            System.arraycopy(M.values, from, newValues, to, run);
+            to += run;
+            int length = pointers[r + 1] - pointers[r];
+            System.arraycopy(indices, pointers[r], newIndices, to, length);
+            System.arraycopy(values, pointers[r], newValues, to, length);
+            to += length;
+            from = rowPointers[rows[r] + 1];
+        }
+        System.arraycopy(M.columnIndices, from, newIndices, to, rowPointers[M.rows] - from);
+        System.arraycopy(M.values, from, newValues, to, rowPointers[M.rows] - from);
+
+        // Row pointers shift by the growth of the replaced rows before them
+        int shift = 0;
+        for (int r = 0; r < rows.length; r++) {
+            int end = r + 1 < rows.length ? rows[r + 1] : M.rows;
+            shift += growth[r];
+            for (int i = rows[r] + 1; i <= end; i++) {
+                rowPointers[i] += shift;
+            }
+        }
+        M.columnIndices = newIndices;
+        M.values = newValues;
+        return true;
+    }
+
+    // A random share of the rows, ascending
+    static int[] sampleRows(int rows, double fraction, Random random) {
+        return random.ints(0, rows).distinct().limit((long) (rows * fraction)).sorted().toArray();
+    }
+
+    public static void main(String[] args) {
+        int n = 200_000;
+        Random random = new Random(1);
+        CSRMatrix A = SparseMatrixCSRMul.generateRandomCSR(n, n, 8, random);
+        CSRMatrix B = SparseMatrixCSRMul.generateRandomCSR(n, n, 8, random);
+        long start = System.nanoTime();
+        IncrementalProduct product = new IncrementalProduct(A, B);
+        System.out.printf("Full product: %.1f ms, %d non-zeros%n", (System.nanoTime() - start) / 1e6,
+                product.getResult().rowPointers[n]);
+
+        for (double fraction : new double[]{0.001, 0.01, 0.05}) {
+            int[] rows = sampleRows(n, fraction, random);
+            System.out.println("A, " + fraction * 100 + "% of rows: "
+                    + product.updateLeftRows(rows, SparseMatrixCSRMul.generateRandomCSR(rows.length, n, 8, random)));
+            rows = sampleRows(n, fraction, random);
+            System.out.println("B, " + fraction * 100 + "% of rows: "
+                    + product.updateRightRows(rows, SparseMatrixCSRMul.generateRandomCSR(rows.length, n, 8, random)));
+        }
+
+        // Same lengths: the new rows are written over the old ones
+        int[] rows = sampleRows(n, 0.01, random);
+        CSRMatrix sameShape = SparseMatrixCSRMul.generateRandomCSR(rows.length, n, 8, random);
+        for (int r = 0; r < rows.length; r++) {
+            System.arraycopy(A.columnIndices, A.rowPointers[rows[r]], sameShape.columnIndices, r * 8, 8);
+        }
+        System.out.println("A, 1% of rows, values only: " + product.updateLeftRows(rows, sameShape));
+
+        start = System.nanoTime();
+        CSRMatrix full = A.multiply(B);
+        long fullNanos = System.nanoTime() - start;
+        CSRMatrix C = product.getResult();
+        double error = 0.0;
+        boolean sameStructure = Arrays.equals(full.rowPointers, C.rowPointers)
+                && Arrays.equals(full.columnIndices, C.columnIndices);
+        for (int p = 0; sameStructure && p < full.rowPointers[n]; p++) {
+            error = Math.max(error, Math.abs(full.values[p] - C.values[p]));
+        }
+        System.out.printf("Recomputed in full: %.1f ms; same structure %b, max difference %.1e%n",
+                fullNanos / 1e6, sameStructure, error);
+    }
+}
@@ -0,0 +1,72 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import IO.BinarySparseFormat;
+import OffHeap.SparseStorage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+
+// CSR matrix whose arrays live off-heap in an Arena, with 64-bit row pointers.
+// Lets products with billions of non-zeros run with a small Java heap; closing the arena that
+// owns the storage releases the memory immediately instead of waiting for the GC.
+public class OffHeapCSRMatrix {
+    final SparseStorage storage;      // Slices are rows, indices are columns
+
+    public OffHeapCSRMatrix(SparseStorage storage) {
+        this.storage = storage;
+    }
+
+    // Method to copy a heap CSR matrix into memory owned by the arena
+    public static OffHeapCSRMatrix copyOf(CSRMatrix matrix, Arena arena) {
+        return new OffHeapCSRMatrix(SparseStorage.copyOf(arena, matrix.rows, matrix.cols,
+                matrix.rowPointers, matrix.columnIndices, matrix.values));
+    }
+
+    // Method to open a binary CSR file without copying; the matrix is valid while the arena is open
+    public static OffHeapCSRMatrix map(Path path, Arena arena) throws IOException {
+        BinarySparseFormat.MappedMatrix mapped = BinarySparseFormat.map(path, arena);
+        if (mapped.getFormat() != BinarySparseFormat.FORMAT_CSR) {
+            throw new IOException("Binary sparse file does not hold a CSR matrix: " + path);
+        }
+        return new OffHeapCSRMatrix(new SparseStorage(mapped.getRows(), mapped.getCols(),
+                mapped.getPointers(), mapped.getIndices(), mapped.getValues()));
+    }
+
+    public SparseStorage getStorage() {
+        return storage;
+    }
+
+    public int getRows() {
+        return storage.getMajor();
+    }
+
+    public int getCols() {
+        return storage.getMinor();
+    }
+
+    public long getNonZeros() {
+        return storage.getNonZeros();
+    }
+
+    // Method to multiply two off-heap CSR matrices; the result is allocated in the given arena
+    public OffHeapCSRMatrix multiply(OffHeapCSRMatrix B, Arena arena) {
+        return new OffHeapCSRMatrix(storage.multiply(B.storage, arena));
+    }
+
+    // Method to multiply this matrix by a dense vector: y = A * x
+    public double[] multiply(double[] x, double[] y) {
+        if (x.length != getCols() || y.length != getRows()) {
+            throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+        }
+        storage.gather(x, y);
+        return y;
+    }
+
+    // Method to copy the matrix back onto the heap (only while nnz fits an int)
+    public CSRMatrix toHeap() {
+        return new CSRMatrix(storage.valuesToHeap(), storage.indicesToHeap(), storage.pointersToHeap(),
+                getRows(), getCols());
+    }
+}
@@ -0,0 +1,87 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import SpGEMM.AdaptiveAccumulator;
+import SpGEMM.RowPartition;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Row-partitioned parallel CSR multiplication.
+// Rows of A are split into chunks of equal estimated flops; each worker thread keeps its own
+// accumulator and fills a disjoint slice of the preallocated result arrays.
+class ParallelCSRMul {
+
+    private final CSRMatrix A;
+    private final CSRMatrix B;
+    private final boolean sortedIndices;
+    private final int[] chunks;                       // Chunk boundaries over the rows of A
+    private final ThreadLocal<AdaptiveAccumulator> accumulators;
+
+    private int[] resultRowPointers;
+    private int[] resultColumnIndices;
+    private double[] resultValues;
+
+    private ParallelCSRMul(CSRMatrix A, CSRMatrix B, ForkJoinPool pool, boolean sortedIndices) {
+        this.A = A;
+        this.B = B;
+        this.sortedIndices = sortedIndices;
+        long[] flops = RowPartition.flopPrefix(A.rowPointers, A.columnIndices, A.rows, B.rowPointers);
+        this.chunks = RowPartition.split(flops, pool);
+        this.accumulators = ThreadLocal.withInitial(() -> new AdaptiveAccumulator(B.cols, B.sortedIndices));
+    }
+
+    static CSRMatrix multiply(CSRMatrix A, CSRMatrix B, ForkJoinPool pool, boolean sortedIndices) {
+        ParallelCSRMul product = new ParallelCSRMul(A, B, pool, sortedIndices);
+
+        // Symbolic phase: per-row non-zero counts, stored shifted by one for the prefix sum
+        product.resultRowPointers = new int[A.rows + 1];
+        pool.invoke(product.new ChunkTask(0, product.chunks.length - 1, false));
+
+        int[] pointers = product.resultRowPointers;
+        for (int i = 0; i < A.rows; i++) {
+            pointers[i + 1] = Math.addExact(pointers[i], pointers[i + 1]);
+        }
+
+        // Numeric phase: every chunk writes its own slice of the output
+        int nnz = pointers[A.rows];
+        product.resultColumnIndices = new int[nnz];
+        product.resultValues = new double[nnz];
+        pool.invoke(product.new ChunkTask(0, product.chunks.length - 1, true));
+
+        return new CSRMatrix(product.resultValues, product.resultColumnIndices, pointers, A.rows, B.cols, sortedIndices);
+    }
+
+    // Processes chunks [from, to), splitting recursively until a single chunk is left
+    private class ChunkTask extends RecursiveAction {
+        private final int from, to;
+        private final boolean numeric;
+
+        ChunkTask(int from, int to, boolean numeric) {
+            this.from = from;
+            this.to = to;
+            this.numeric = numeric;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, middle, numeric), new ChunkTask(middle, to, numeric));
+                return;
+            }
+
+            AdaptiveAccumulator accumulator = accumulators.get();
+            for (int i = chunks[from]; i < chunks[to]; i++) {
+                if (numeric) {
+                    accumulator.numeric(A.rowPointers, A.columnIndices, A.values, i,
+                            B.rowPointers, B.columnIndices, B.values,
+                            resultColumnIndices, resultValues, resultRowPointers[i], sortedIndices);
+                } else {
+                    resultRowPointers[i + 1] = accumulator.symbolic(A.rowPointers, A.columnIndices, i,
+                            B.rowPointers, B.columnIndices);
+                }
+            }
+        }
+    }
+}
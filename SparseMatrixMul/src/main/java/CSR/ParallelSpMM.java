@@ -0,0 +1,36 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.util.concurrent.RecursiveAction;
+
+// Row-parallel sparse x dense product Y = A * X over precomputed chunks of rows of A.
+// Each chunk owns its rows of Y, so the threads never write to the same location.
+class ParallelSpMM extends RecursiveAction {
+    private final CSRMatrix A;
+    private final double[] X, Y;
+    private final int xCols;
+    private final int[] chunks;       // Chunk boundaries over the rows of A
+    private final int from, to;       // Chunks handled by this task
+
+    ParallelSpMM(CSRMatrix A, double[] X, int xCols, double[] Y, int[] chunks, int from, int to) {
+        this.A = A;
+        this.X = X;
+        this.xCols = xCols;
+        this.Y = Y;
+        this.chunks = chunks;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from > 1) {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParallelSpMM(A, X, xCols, Y, chunks, from, middle),
+                    new ParallelSpMM(A, X, xCols, Y, chunks, middle, to));
+            return;
+        }
+        A.multiplyRows(X, xCols, Y, chunks[from], chunks[to]);
+    }
+}
@@ -0,0 +1,402 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import SpGEMM.AdaptiveAccumulator;
+import SpGEMM.RowPartition;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Pruned product C = A * B: each row of C is accumulated into a scratch buffer of the worker thread, pruned
+// there and only then appended to the output. Entries whose magnitude is below an absolute threshold or below
+// a share of the row's largest magnitude are dropped, and of the rest only the k largest are kept when a top-k
+// is set. The k-th largest magnitude comes from a bounded min-heap of k doubles, and a stable pass then keeps
+// the row in its accumulator order, so the output is sorted without sorting what was dropped.
+//
+// There is no symbolic phase: the output grows with the entries kept, and the scratch with the largest row,
+// so a product that would fill in far beyond the operands costs only the memory of what survives. The
+// multiply-adds of every row are still done in full.
+public class PrunedSpGEMM {
+    private static final int INITIAL_CAPACITY = 1024; // First output buffer of a chunk without top-k
+
+    // What to drop from each row of the product; the three rules combine
+    public static final class Pruning {
+        final double absolute;                        // Drop |c| < absolute
+        final double relative;                        // Drop |c| < relative * max |c| of the row
+        final int topK;                               // Keep at most k entries per row; 0 keeps all
+
+        public Pruning(double absolute, double relative, int topK) {
+            if (!(absolute >= 0) || !(relative >= 0 && relative <= 1) || topK < 0) {
+                throw new IllegalArgumentException("Thresholds must be non-negative, relative at most 1 "
+                        + "and k non-negative.");
+            }
+            this.absolute = absolute;
+            this.relative = relative;
+            this.topK = topK;
+        }
+
+        public static Pruning absolute(double threshold) {
+            return new Pruning(threshold, 0, 0);
+        }
+
+        public static Pruning relative(double share) {
+            return new Pruning(0, share, 0);
+        }
+
+        public static Pruning topK(int k) {
+            return new Pruning(0, 0, k);
+        }
+
+        // The same thresholds, keeping at most k entries per row
+        public Pruning withTopK(int k) {
+            return new Pruning(absolute, relative, k);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("|c| >= %.3g, |c| >= %.3g max, top %s", absolute, relative,
+                    topK == 0 ? "all" : String.valueOf(topK));
+        }
+    }
+
+    // Counters of one pruned product
+    public static class Stats {
+        public final long flops;                      // Multiply-adds, as for the full product
+        public final long computedNonZeros;           // Entries of the full product
+        public final long keptNonZeros;
+        public final long droppedNonZeros;
+        public final long elapsedNanos;
+
+        Stats(long flops, long computedNonZeros, long keptNonZeros, long elapsedNanos) {
+            this.flops = flops;
+            this.computedNonZeros = computedNonZeros;
+            this.keptNonZeros = keptNonZeros;
+            this.droppedNonZeros = computedNonZeros - keptNonZeros;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d flops, %d entries computed, %d kept, %d dropped (%.1f%%), %.1f ms",
+                    flops, computedNonZeros, keptNonZeros, droppedNonZeros,
+                    100.0 * droppedNonZeros / Math.max(1, computedNonZeros), elapsedNanos / 1e6);
+        }
+    }
+
+    // The pruned matrix and the counters of the product that made it
+    public static class Result {
+        private final CSRMatrix matrix;
+        private final Stats stats;
+
+        Result(CSRMatrix matrix, Stats stats) {
+            this.matrix = matrix;
+            this.stats = stats;
+        }
+
+        public CSRMatrix getMatrix() {
+            return matrix;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    private final CSRMatrix A, B;
+    private final Pruning pruning;
+    private final long[] flops;                       // Flop bound prefix over the rows of A
+    private final int[] chunks;                       // Chunk boundaries over the rows of A
+    private final Chunk[] outputs;                    // Pruned rows of each chunk
+    private final int[] rowCounts;                    // Kept entries by row, shifted by one for the prefix sum
+    private final ThreadLocal<Workspace> workspaces;
+
+    private PrunedSpGEMM(CSRMatrix A, CSRMatrix B, Pruning pruning, int parts) {
+        this.A = A;
+        this.B = B;
+        this.pruning = pruning;
+        this.flops = RowPartition.flopPrefix(A.rowPointers, A.columnIndices, A.rows, B.rowPointers);
+        this.chunks = RowPartition.split(flops, parts);
+        this.outputs = new Chunk[chunks.length - 1];
+        this.rowCounts = new int[A.rows + 1];
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(B.cols, B.sortedIndices));
+    }
+
+    // Method to multiply A and B on the calling thread, pruning every row before it is stored
+    public static Result multiply(CSRMatrix A, CSRMatrix B, Pruning pruning) {
+        long start = System.nanoTime();
+        PrunedSpGEMM product = create(A, B, pruning, 1);
+        product.compute(0);
+        return product.assemble(start);
+    }
+
+    // Method to multiply A and B with chunks of rows of equal flops pruned on the threads of the pool
+    public static Result multiplyParallel(CSRMatrix A, CSRMatrix B, Pruning pruning, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        PrunedSpGEMM product = create(A, B, pruning, RowPartition.chunks(pool));
+        pool.invoke(product.new ChunkTask(0, product.outputs.length));
+        return product.assemble(start);
+    }
+
+    private static PrunedSpGEMM create(CSRMatrix A, CSRMatrix B, Pruning pruning, int parts) {
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        return new PrunedSpGEMM(A, B, pruning, parts);
+    }
+
+    // Pruned rows of one chunk, in growable arrays
+    private static final class Chunk {
+        int[] columnIndices;
+        double[] values;
+        int size;
+        long computed;                                // Entries before pruning
+
+        Chunk(int capacity) {
+            this.columnIndices = new int[capacity];
+            this.values = new double[capacity];
+        }
+
+        void ensure(int extra) {
+            long required = (long) size + extra;
+            if (required > columnIndices.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * columnIndices.length));
+                if (capacity < required) {
+                    throw new ArithmeticException("Matrix has too many non-zeros for CSR.");
+                }
+                columnIndices = Arrays.copyOf(columnIndices, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+    }
+
+    // Per-thread accumulator and scratch for one unpruned row
+    private static final class Workspace {
+        final AdaptiveAccumulator accumulator;
+        double[] heap;                                // Bounded min-heap of the k largest magnitudes, on first use
+        int[] indices = new int[64];
+        double[] values = new double[64];
+        long[] keys = new long[64];                   // (index, position) pairs for sorting the kept entries
+
+        Workspace(int width, boolean rightSorted) {
+            this.accumulator = new AdaptiveAccumulator(width, rightSorted);
+        }
+
+        void ensure(long rowFlops) {
+            if (rowFlops > indices.length) {
+                int capacity = Math.toIntExact(Math.max(rowFlops, 2L * indices.length));
+                indices = new int[capacity];
+                values = new double[capacity];
+                keys = new long[capacity];
+            }
+        }
+    }
+
+    // Computes and prunes the rows of chunk c into its own output
+    private void compute(int c) {
+        int first = chunks[c], last = chunks[c + 1];
+        long chunkFlops = flops[last] - flops[first];
+        long capacity = pruning.topK > 0 ? Math.min(chunkFlops, (long) pruning.topK * (last - first))
+                : Math.min(chunkFlops, INITIAL_CAPACITY);
+        Chunk chunk = new Chunk((int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, capacity)));
+        Workspace workspace = workspaces.get();
+        for (int i = first; i < last; i++) {
+            workspace.ensure(flops[i + 1] - flops[i]);
+            int count = workspace.accumulator.numeric(A.rowPointers, A.columnIndices, A.values, i,
+                    B.rowPointers, B.columnIndices, B.values, workspace.indices, workspace.values, 0, false);
+            chunk.computed += count;
+            int kept = prune(workspace, count);
+            chunk.ensure(kept);
+            emit(workspace, kept, chunk);
+            rowCounts[i + 1] = kept;
+        }
+        outputs[c] = chunk;
+    }
+
+    // Packs the kept entries of the row to the front of the scratch, in their order, and returns their count
+    private int prune(Workspace workspace, int count) {
+        double[] values = workspace.values;
+        int[] indices = workspace.indices;
+
+        double cutoff = pruning.absolute;
+        if (pruning.relative > 0) {
+            double largest = 0;
+            for (int p = 0; p < count; p++) {
+                largest = Math.max(largest, Math.abs(values[p]));
+            }
+            cutoff = Math.max(cutoff, pruning.relative * largest);
+        }
+
+        int kept = 0;
+        if (cutoff > 0) {
+            for (int p = 0; p < count; p++) {
+                if (Math.abs(values[p]) >= cutoff) {
+                    indices[kept] = indices[p];
+                    values[kept++] = values[p];
+                }
+            }
+        } else {
+            kept = count;
+        }
+
+        int k = pruning.topK;
+        if (k == 0 || kept <= k) {
+            return kept;
+        }
+
+        // The heap ends up holding the k largest magnitudes, with the k-th largest at its root
+        if (workspace.heap == null) {
+            workspace.heap = new double[k];
+        }
+        double[] heap = workspace.heap;
+        for (int p = 0; p < k; p++) {
+            heap[p] = Math.abs(values[p]);
+        }
+        for (int p = (k >>> 1) - 1; p >= 0; p--) {
+            siftDown(heap, p, k);
+        }
+        for (int p = k; p < kept; p++) {
+            double magnitude = Math.abs(values[p]);
+            if (magnitude > heap[0]) {
+                heap[0] = magnitude;
+                siftDown(heap, 0, k);
+            }
+        }
+
+        // Everything above the root is kept; entries equal to it fill the remaining places in accumulator order
+        double kth = heap[0];
+        int ties = 0;
+        for (int p = 0; p < k; p++) {
+            if (heap[p] == kth) {
+                ties++;
+            }
+        }
+        int top = 0;
+        for (int p = 0; p < kept; p++) {
+            double magnitude = Math.abs(values[p]);
+            if (magnitude > kth || (magnitude == kth && ties-- > 0)) {
+                indices[top] = indices[p];
+                values[top++] = values[p];
+            }
+        }
+        return top;
+    }
+
+    private static void siftDown(double[] heap, int p, int size) {
+        double value = heap[p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[p] = heap[child];
+            p = child;
+        }
+        heap[p] = value;
+    }
+
+    // Appends the kept entries of the row to the chunk with ascending indices; only rows the accumulator left
+    // unsorted are sorted, and then only their kept entries
+    private static void emit(Workspace workspace, int kept, Chunk chunk) {
+        int[] indices = workspace.indices;
+        double[] values = workspace.values;
+        boolean ascending = true;
+        for (int p = 1; p < kept && ascending; p++) {
+            ascending = indices[p - 1] < indices[p];
+        }
+        if (ascending) {
+            System.arraycopy(indices, 0, chunk.columnIndices, chunk.size, kept);
+            System.arraycopy(values, 0, chunk.values, chunk.size, kept);
+        } else {
+            long[] keys = workspace.keys;
+            for (int p = 0; p < kept; p++) {
+                keys[p] = (long) indices[p] << 32 | p;
+            }
+            Arrays.sort(keys, 0, kept);
+            for (int p = 0; p < kept; p++) {
+                chunk.columnIndices[chunk.size + p] = (int) (keys[p] >>> 32);
+                chunk.values[chunk.size + p] = values[(int) keys[p]];
+            }
+        }
+        chunk.size += kept;
+    }
+
+    // Joins the chunks into one exact-size matrix
+    private Result assemble(long start) {
+        int[] rowPointers = rowCounts;
+        for (int i = 0; i < A.rows; i++) {
+            rowPointers[i + 1] = Math.addExact(rowPointers[i], rowPointers[i + 1]);
+        }
+        int nnz = rowPointers[A.rows];
+        long computed = 0;
+        int[] columnIndices;
+        double[] values;
+        if (outputs.length == 1) {
+            columnIndices = outputs[0].size == outputs[0].columnIndices.length
+                    ? outputs[0].columnIndices : Arrays.copyOf(outputs[0].columnIndices, nnz);
+            values = outputs[0].size == outputs[0].values.length
+                    ? outputs[0].values : Arrays.copyOf(outputs[0].values, nnz);
+            computed = outputs[0].computed;
+        } else {
+            columnIndices = new int[nnz];
+            values = new double[nnz];
+            for (int c = 0; c < outputs.length; c++) {
+                Chunk chunk = outputs[c];
+                int offset = rowPointers[chunks[c]];
+                System.arraycopy(chunk.columnIndices, 0, columnIndices, offset, chunk.size);
+                System.arraycopy(chunk.values, 0, values, offset, chunk.size);
+                computed += chunk.computed;
+                outputs[c] = null;
+            }
+        }
+        CSRMatrix C = new CSRMatrix(values, columnIndices, rowPointers, A.rows, B.cols, true);
+        return new Result(C, new Stats(flops[A.rows], computed, nnz, System.nanoTime() - start));
+    }
+
+    // Processes chunks [from, to), splitting recursively until a single chunk is left
+    private class ChunkTask extends RecursiveAction {
+        private final int from, to;
+
+        ChunkTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, middle), new ChunkTask(middle, to));
+                return;
+            }
+            PrunedSpGEMM.this.compute(from);
+        }
+    }
+
+    public static void main(String[] args) {
+        // Random operands whose square fills in far beyond them, like a similarity product
+        int n = 20_000, perRow = 40;
+        Random random = new Random(1);
+        CSRMatrix A = SparseMatrixCSRMul.generateRandomCSR(n, n, perRow, random);
+
+        long start = System.nanoTime();
+        CSRMatrix full = A.multiply(A);
+        System.out.printf("Full product: %d non-zeros, %.1f ms%n", full.rowPointers[n],
+                (System.nanoTime() - start) / 1e6);
+
+        for (Pruning pruning : new Pruning[]{Pruning.absolute(0.5), Pruning.relative(0.1), Pruning.topK(32),
+                Pruning.relative(0.05).withTopK(8)}) {
+            Result result = multiply(A, A, pruning);
+            System.out.println(pruning + ": " + result.getStats());
+            result = multiplyParallel(A, A, pruning, ForkJoinPool.commonPool());
+            System.out.println(pruning + ", parallel: " + result.getStats());
+        }
+    }
+}
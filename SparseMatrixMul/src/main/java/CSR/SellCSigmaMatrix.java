@@ -0,0 +1,180 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.util.Arrays;
+
+// Sliced ELLPACK with sorting (SELL-C-sigma). Rows are grouped into slices of C rows, each slice is padded to
+// its longest row and stored column-major, so entry j of the C rows sits in C consecutive slots. A kernel then
+// walks a slice as one vector per step, whatever the individual row lengths, which plain CSR cannot do for rows
+// shorter than a vector. To keep the padding small, rows are sorted by length within windows of sigma rows
+// before slicing; sigma = 1 keeps the original order, larger windows trade padding for locality in y.
+public class SellCSigmaMatrix {
+    final int rows, cols;
+    final int sliceHeight;                       // C
+    final int sigma;
+    final int sliceCount;
+    final int[] slicePointers;                   // Start of each slice in columnIndices/values
+    final int[] columnIndices;                   // Padding slots point at column 0 with a zero value
+    final double[] values;
+    final int[] rowOrder;                        // Original row of every slice position, null when unsorted
+    final long nnz;
+
+    SellCSigmaMatrix(int rows, int cols, int sliceHeight, int sigma, int[] slicePointers, int[] columnIndices,
+                     double[] values, int[] rowOrder, long nnz) {
+        this.rows = rows;
+        this.cols = cols;
+        this.sliceHeight = sliceHeight;
+        this.sigma = sigma;
+        this.sliceCount = slicePointers.length - 1;
+        this.slicePointers = slicePointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+        this.rowOrder = rowOrder;
+        this.nnz = nnz;
+    }
+
+    // Method to convert a CSR matrix with slices of sliceHeight rows, sorted by length within windows of sigma
+    public static SellCSigmaMatrix fromCSR(CSRMatrix A, int sliceHeight, int sigma) {
+        if (sliceHeight < 1 || sigma < 1) {
+            throw new IllegalArgumentException("Slice height and sorting window must be positive.");
+        }
+        int[] order = sigma > 1 ? sortWithinWindows(A.rowPointers, A.rows, sigma) : null;
+        int sliceCount = (A.rows + sliceHeight - 1) / sliceHeight;
+
+        // Every slice is as wide as its longest row
+        int[] pointers = new int[sliceCount + 1];
+        for (int s = 0; s < sliceCount; s++) {
+            int width = 0;
+            for (int l = 0; l < sliceHeight && s * sliceHeight + l < A.rows; l++) {
+                int row = order == null ? s * sliceHeight + l : order[s * sliceHeight + l];
+                width = Math.max(width, A.rowPointers[row + 1] - A.rowPointers[row]);
+            }
+            pointers[s + 1] = Math.addExact(pointers[s], Math.multiplyExact(width, sliceHeight));
+        }
+
+        int[] columnIndices = new int[pointers[sliceCount]];
+        double[] values = new double[pointers[sliceCount]];
+        for (int s = 0; s < sliceCount; s++) {
+            for (int l = 0; l < sliceHeight && s * sliceHeight + l < A.rows; l++) {
+                int row = order == null ? s * sliceHeight + l : order[s * sliceHeight + l];
+                int slot = pointers[s] + l;
+                for (int p = A.rowPointers[row]; p < A.rowPointers[row + 1]; p++, slot += sliceHeight) {
+                    columnIndices[slot] = A.columnIndices[p];
+                    values[slot] = A.values[p];
+                }
+            }
+        }
+        return new SellCSigmaMatrix(A.rows, A.cols, sliceHeight, sigma, pointers, columnIndices, values, order,
+                A.rowPointers[A.rows]);
+    }
+
+    // Rows by descending length within each window of sigma rows, ties in the original order
+    static int[] sortWithinWindows(int[] rowPointers, int rows, int sigma) {
+        int[] order = new int[rows];
+        long[] keys = new long[Math.min(sigma, rows)];
+        for (int start = 0; start < rows; start += sigma) {
+            int end = (int) Math.min(rows, (long) start + sigma);
+            for (int i = start; i < end; i++) {
+                long length = rowPointers[i + 1] - rowPointers[i];
+                keys[i - start] = ((Integer.MAX_VALUE - length) << 32) | i;
+            }
+            Arrays.sort(keys, 0, end - start);
+            for (int i = start; i < end; i++) {
+                order[i] = (int) keys[i - start];
+            }
+        }
+        return order;
+    }
+
+    // Method to convert back to CSR; padding and stored zeros are dropped
+    public CSRMatrix toCSR() {
+        int[] rowPointers = new int[rows + 1];
+        forEachEntry((row, slot) -> rowPointers[row + 1]++);
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        int[] next = Arrays.copyOf(rowPointers, rows);
+        int[] csrColumns = new int[rowPointers[rows]];
+        double[] csrValues = new double[rowPointers[rows]];
+        forEachEntry((row, slot) -> {
+            int target = next[row]++;
+            csrColumns[target] = columnIndices[slot];
+            csrValues[target] = values[slot];
+        });
+        return new CSRMatrix(csrValues, csrColumns, rowPointers, rows, cols);
+    }
+
+    private interface EntryVisitor {
+        void visit(int row, int slot);
+    }
+
+    // Visits the non-zero slots of every row in stored order
+    private void forEachEntry(EntryVisitor visitor) {
+        for (int s = 0; s < sliceCount; s++) {
+            for (int l = 0; l < sliceHeight && s * sliceHeight + l < rows; l++) {
+                int row = rowOrder == null ? s * sliceHeight + l : rowOrder[s * sliceHeight + l];
+                for (int slot = slicePointers[s] + l; slot < slicePointers[s + 1]; slot += sliceHeight) {
+                    if (values[slot] != 0.0) {
+                        visitor.visit(row, slot);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getSliceHeight() {
+        return sliceHeight;
+    }
+
+    public int getSigma() {
+        return sigma;
+    }
+
+    // Slots stored, padding included
+    public long getStoredEntries() {
+        return slicePointers[sliceCount];
+    }
+
+    // Stored slots per non-zero; 1.0 means no padding
+    public double getPaddingRatio() {
+        return nnz == 0 ? 1.0 : (double) getStoredEntries() / nnz;
+    }
+
+    // Method to multiply this matrix by a dense vector: y = A * x
+    public double[] multiply(double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+        }
+        if (SparseMatrixCSRMul.VECTOR_ENABLED && sliceHeight == VectorBlockKernels.LANES) {
+            VectorBlockKernels.multiply(this, x, y);
+        } else {
+            multiplyScalar(x, y, 0, sliceCount);
+        }
+        return y;
+    }
+
+    // Slices [sliceStart, sliceEnd) of y = A * x; the C partial sums of a slice advance together
+    void multiplyScalar(double[] x, double[] y, int sliceStart, int sliceEnd) {
+        double[] sums = new double[sliceHeight];
+        for (int s = sliceStart; s < sliceEnd; s++) {
+            Arrays.fill(sums, 0.0);
+            for (int p = slicePointers[s]; p < slicePointers[s + 1]; p += sliceHeight) {
+                for (int l = 0; l < sliceHeight; l++) {
+                    sums[l] += values[p + l] * x[columnIndices[p + l]];
+                }
+            }
+            for (int l = 0; l < sliceHeight && s * sliceHeight + l < rows; l++) {
+                y[rowOrder == null ? s * sliceHeight + l : rowOrder[s * sliceHeight + l]] = sums[l];
+            }
+        }
+    }
+}
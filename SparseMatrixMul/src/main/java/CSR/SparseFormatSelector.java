@@ -0,0 +1,156 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+// Picks the SpMV storage for a CSR matrix from its structure: BCSR when it is made of dense r x c blocks,
+// SELL-C-sigma when its rows are too short or ragged for the CSR vector kernel, and CSR otherwise.
+//
+// Both blocked formats only win through their SIMD kernels, so without the Vector API the answer is CSR.
+// Thresholds were measured on AVX-512 with a single core: BCSR 4x4 on fully dense blocks is about 15% faster
+// than CSR, SELL-8 about 15% faster on rows of 4-15 entries, and either loses as soon as padding grows.
+public final class SparseFormatSelector {
+
+    public enum Format { CSR, BCSR, SELL_C_SIGMA }
+
+    private static final int[] BLOCK_HEIGHTS = {2, 4, 8};         // Heights with a vector kernel
+    private static final int[] BLOCK_WIDTHS = {1, 2, 4, 8};
+    private static final double MIN_BLOCK_GAIN = 1.3;             // CSR bytes per non-zero over BCSR bytes
+    private static final double MIN_SCALAR_SHARE = 0.3;           // Non-zeros the CSR vector kernel runs scalar
+    private static final double MAX_PADDING = 1.2;                // Stored slots per non-zero in SELL
+    private static final int[] SIGMA_SLICES = {1, 8, 32, 128};    // Sorting windows, in slices
+    private static final long SAMPLE_NON_ZEROS = 1 << 20;         // Non-zeros visited per block size candidate
+
+    private SparseFormatSelector() {
+    }
+
+    // Recommended format with the measurements it was based on
+    public static class Choice {
+        public final Format format;
+        public final int blockHeight, blockWidth;   // Best block size found, even when BCSR is not chosen
+        public final double blockFill;              // Share of the stored block entries that are non-zero
+        public final int sliceHeight, sigma;        // Best SELL parameters found
+        public final double padding;                // SELL slots per non-zero with those parameters
+        public final double scalarShare;            // Share of non-zeros left to scalar tails by the CSR kernel
+
+        Choice(Format format, int blockHeight, int blockWidth, double blockFill, int sliceHeight, int sigma,
+               double padding, double scalarShare) {
+            this.format = format;
+            this.blockHeight = blockHeight;
+            this.blockWidth = blockWidth;
+            this.blockFill = blockFill;
+            this.sliceHeight = sliceHeight;
+            this.sigma = sigma;
+            this.padding = padding;
+            this.scalarShare = scalarShare;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (BCSR %dx%d fill %.2f, SELL-%d-%d padding %.2f, CSR scalar share %.2f)",
+                    format, blockHeight, blockWidth, blockFill, sliceHeight, sigma, padding, scalarShare);
+        }
+    }
+
+    // Method to choose the SpMV format and its parameters for A
+    public static Choice choose(CSRMatrix A) {
+        long nnz = A.rowPointers[A.rows];
+        if (!SparseMatrixCSRMul.VECTOR_ENABLED || nnz == 0) {
+            return new Choice(Format.CSR, 1, 1, 1.0, 1, 1, 1.0, 0.0);
+        }
+
+        // Block size with the fewest bytes per non-zero: 8 per stored value plus 4 per block index
+        int bestHeight = 1, bestWidth = 1;
+        double bestFill = 1.0, bestBytes = Double.MAX_VALUE;
+        for (int height : BLOCK_HEIGHTS) {
+            if (!VectorBlockKernels.supports(height)) {
+                continue;
+            }
+            for (int width : BLOCK_WIDTHS) {
+                double fill = blockFill(A, height, width);
+                double bytes = (8.0 + 4.0 / (height * width)) / fill;
+                if (bytes < bestBytes) {
+                    bestBytes = bytes;
+                    bestHeight = height;
+                    bestWidth = width;
+                    bestFill = fill;
+                }
+            }
+        }
+
+        // The CSR vector kernel runs each row in full vectors and finishes the remainder one entry at a time
+        int lanes = VectorBlockKernels.LANES;
+        long scalar = 0;
+        for (int i = 0; i < A.rows; i++) {
+            int length = A.rowPointers[i + 1] - A.rowPointers[i];
+            scalar += length < lanes ? length : length % lanes;
+        }
+        double scalarShare = (double) scalar / nnz;
+
+        // Smallest sorting window whose padding is within 5% of the best one: wider windows scatter y further
+        int sigma = 1;
+        double padding = Double.MAX_VALUE;
+        double[] paddings = new double[SIGMA_SLICES.length];
+        for (int s = 0; s < SIGMA_SLICES.length; s++) {
+            paddings[s] = paddingRatio(A, lanes, lanes * SIGMA_SLICES[s]);
+            padding = Math.min(padding, paddings[s]);
+        }
+        for (int s = 0; s < SIGMA_SLICES.length; s++) {
+            if (paddings[s] <= padding * 1.05) {
+                sigma = SIGMA_SLICES[s] == 1 ? 1 : lanes * SIGMA_SLICES[s];
+                padding = paddings[s];
+                break;
+            }
+        }
+
+        Format format = Format.CSR;
+        if (12.0 / bestBytes >= MIN_BLOCK_GAIN) {
+            format = Format.BCSR;
+        } else if (scalarShare >= MIN_SCALAR_SHARE && padding <= MAX_PADDING) {
+            format = Format.SELL_C_SIGMA;
+        }
+        return new Choice(format, bestHeight, bestWidth, bestFill, lanes, sigma, padding, scalarShare);
+    }
+
+    // Share of the entries of the non-empty r x c blocks that are non-zero, measured on evenly spaced block rows
+    // totalling about SAMPLE_NON_ZEROS non-zeros
+    public static double blockFill(CSRMatrix A, int blockHeight, int blockWidth) {
+        long nnz = A.rowPointers[A.rows];
+        int blockRowCount = (A.rows + blockHeight - 1) / blockHeight;
+        int stride = (int) Math.max(1, nnz / SAMPLE_NON_ZEROS);
+        int[] marker = new int[(A.cols + blockWidth - 1) / blockWidth];
+
+        long sampled = 0, blocks = 0;
+        for (int I = 0; I < blockRowCount; I += stride) {
+            for (int i = I * blockHeight; i < Math.min(A.rows, (I + 1) * blockHeight); i++) {
+                for (int p = A.rowPointers[i]; p < A.rowPointers[i + 1]; p++) {
+                    int J = A.columnIndices[p] / blockWidth;
+                    if (marker[J] != I + 1) {
+                        marker[J] = I + 1;
+                        blocks++;
+                    }
+                    sampled++;
+                }
+            }
+        }
+        return blocks == 0 ? 1.0 : (double) sampled / (blocks * blockHeight * blockWidth);
+    }
+
+    // Stored slots per non-zero of SELL-C-sigma with the given slice height and sorting window
+    public static double paddingRatio(CSRMatrix A, int sliceHeight, int sigma) {
+        long nnz = A.rowPointers[A.rows];
+        if (nnz == 0) {
+            return 1.0;
+        }
+        int[] order = sigma > 1 ? SellCSigmaMatrix.sortWithinWindows(A.rowPointers, A.rows, sigma) : null;
+        long stored = 0;
+        for (int start = 0; start < A.rows; start += sliceHeight) {
+            int width = 0;
+            for (int l = start; l < Math.min(A.rows, start + sliceHeight); l++) {
+                int row = order == null ? l : order[l];
+                width = Math.max(width, A.rowPointers[row + 1] - A.rowPointers[row]);
+            }
+            stored += (long) width * sliceHeight;
+        }
+        return (double) stored / nnz;
+    }
+}
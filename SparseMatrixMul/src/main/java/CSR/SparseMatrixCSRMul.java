@@ -1,11 +1,25 @@
 package CSR;
 
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import SpGEMM.AdaptiveAccumulator;
+import SpGEMM.RowPartition;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class SparseMatrixCSRMul {
 
+    // SIMD kernels are used when the jdk.incubator.vector module is resolved (--add-modules jdk.incubator.vector)
+    // and the hardware gathers natively; -Dmatrix.vector.disable=true forces the scalar kernel
+    static final boolean VECTOR_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("matrix.vector.disable")
+            && VectorSpMV.SUPPORTED;
+
     // Sparse matrix in CSR format
     public static class CSRMatrix {
         double[] values;          // Non-zero values
@@ -14,12 +28,95 @@ public class SparseMatrixCSRMul {
 
         int rows, cols;           // Number of rows and columns in the matrix
 
-        CSRMatrix(double[] values, int[] columnIndices, int[] rowPointers, int rows, int cols) {
+        boolean sortedIndices;    // Whether column indices ascend within every row
+
+        public CSRMatrix(double[] values, int[] columnIndices, int[] rowPointers, int rows, int cols) {
+            this(values, columnIndices, rowPointers, rows, cols, hasSortedIndices(columnIndices, rowPointers, rows));
+        }
+
+        CSRMatrix(double[] values, int[] columnIndices, int[] rowPointers, int rows, int cols, boolean sortedIndices) {
             this.values = values;
             this.columnIndices = columnIndices;
             this.rowPointers = rowPointers;
             this.rows = rows;
             this.cols = cols;
+            this.sortedIndices = sortedIndices;
+        }
+
+        private static boolean hasSortedIndices(int[] columnIndices, int[] rowPointers, int rows) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = rowPointers[i] + 1; j < rowPointers[i + 1]; j++) {
+                    if (columnIndices[j] <= columnIndices[j - 1]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        public int[] getColumnIndices() {
+            return columnIndices;
+        }
+
+        public int[] getRowPointers() {
+            return rowPointers;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        // Whether column indices ascend within every row
+        public boolean hasSortedIndices() {
+            return sortedIndices;
+        }
+
+        // Method to convert this matrix to CSC format in O(nnz + cols) with a counting sort over columns.
+        // Rows are visited in order, so row indices come out sorted within every column.
+        public CSCMatrix toCSC() {
+            int nnz = rowPointers[rows];
+            int[] colPointers = new int[cols + 1];
+            for (int j = 0; j < nnz; j++) {
+                colPointers[columnIndices[j] + 1]++;
+            }
+            for (int c = 0; c < cols; c++) {
+                colPointers[c + 1] += colPointers[c];
+            }
+
+            int[] next = Arrays.copyOf(colPointers, cols);
+            int[] rowIndices = new int[nnz];
+            double[] cscValues = new double[nnz];
+            for (int i = 0; i < rows; i++) {
+                for (int j = rowPointers[i]; j < rowPointers[i + 1]; j++) {
+                    int slot = next[columnIndices[j]]++;
+                    rowIndices[slot] = i;
+                    cscValues[slot] = values[j];
+                }
+            }
+            return new CSCMatrix(cscValues, rowIndices, colPointers, rows, cols);
+        }
+
+        // Method to convert this matrix to Block CSR with r x c blocks
+        public BCSRMatrix toBCSR(int blockHeight, int blockWidth) {
+            return BCSRMatrix.fromCSR(this, blockHeight, blockWidth);
+        }
+
+        // Method to convert this matrix to SELL-C-sigma
+        public SellCSigmaMatrix toSellCSigma(int sliceHeight, int sigma) {
+            return SellCSigmaMatrix.fromCSR(this, sliceHeight, sigma);
+        }
+
+        // Method to copy this matrix off-heap into memory owned by the arena
+        public OffHeapCSRMatrix toOffHeap(Arena arena) {
+            return OffHeapCSRMatrix.copyOf(this, arena);
         }
 
         // Method to print the CSR matrix details
@@ -46,57 +143,153 @@ public class SparseMatrixCSRMul {
             }
         }
 
-        // Method to multiply two CSR matrices
+        // Method to multiply this matrix by a dense vector: y = A * x. The output buffer y is reused, so
+        // iterative callers do not allocate per product.
+        public double[] multiply(double[] x, double[] y) {
+            checkVectorDimensions(x.length, y.length, 1);
+            multiplyRows(x, y, 0, rows);
+            return y;
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix X with xCols columns: Y = A * X
+        public double[] multiply(double[] X, int xCols, double[] Y) {
+            checkVectorDimensions(X.length, Y.length, xCols);
+            multiplyRows(X, xCols, Y, 0, rows);
+            return Y;
+        }
+
+        // Method to multiply this matrix by a dense vector with rows split across the common fork-join pool
+        public double[] multiplyParallel(double[] x, double[] y) {
+            return multiplyParallel(x, 1, y, ForkJoinPool.commonPool());
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix with rows split across the common fork-join pool
+        public double[] multiplyParallel(double[] X, int xCols, double[] Y) {
+            return multiplyParallel(X, xCols, Y, ForkJoinPool.commonPool());
+        }
+
+        // Method to multiply this matrix by a dense row-major matrix with rows split across the given pool.
+        // Rows are chunked by stored non-zeros; each chunk writes its own rows of Y, so no reduction is needed.
+        public double[] multiplyParallel(double[] X, int xCols, double[] Y, ForkJoinPool pool) {
+            checkVectorDimensions(X.length, Y.length, xCols);
+            int[] chunks = RowPartition.split(rowPointers, pool);
+            pool.invoke(new ParallelSpMM(this, X, xCols, Y, chunks, 0, chunks.length - 1));
+            return Y;
+        }
+
+        private void checkVectorDimensions(int xLength, int yLength, int xCols) {
+            if (xCols < 1 || xLength != (long) this.cols * xCols || yLength != (long) this.rows * xCols) {
+                throw new IllegalArgumentException("Vector dimensions do not match for multiplication.");
+            }
+        }
+
+        // Rows [rowStart, rowEnd) of Y = A * X; a single right-hand side uses the SIMD kernel when available
+        void multiplyRows(double[] X, int xCols, double[] Y, int rowStart, int rowEnd) {
+            if (xCols == 1) {
+                multiplyRows(X, Y, rowStart, rowEnd);
+                return;
+            }
+            for (int i = rowStart; i < rowEnd; i++) {
+                int yRow = i * xCols;
+                Arrays.fill(Y, yRow, yRow + xCols, 0.0);
+                for (int j = rowPointers[i]; j < rowPointers[i + 1]; j++) {
+                    double aValue = values[j];
+                    int xRow = columnIndices[j] * xCols;
+                    for (int t = 0; t < xCols; t++) {
+                        Y[yRow + t] += aValue * X[xRow + t];
+                    }
+                }
+            }
+        }
+
+        // Rows [rowStart, rowEnd) of y = A * x
+        void multiplyRows(double[] x, double[] y, int rowStart, int rowEnd) {
+            if (VECTOR_ENABLED) {
+                VectorSpMV.multiply(rowPointers, columnIndices, values, x, y, rowStart, rowEnd);
+            } else {
+                multiplyScalar(x, y, rowStart, rowEnd);
+            }
+        }
+
+        // Scalar fallback of the sparse matrix x vector kernel for rows [rowStart, rowEnd)
+        void multiplyScalar(double[] x, double[] y, int rowStart, int rowEnd) {
+            for (int i = rowStart; i < rowEnd; i++) {
+                double sum = 0.0;
+                for (int j = rowPointers[i]; j < rowPointers[i + 1]; j++) {
+                    sum += values[j] * x[columnIndices[j]];
+                }
+                y[i] = sum;
+            }
+        }
+
+        // Method to multiply two CSR matrices, emitting sorted column indices
         public CSRMatrix multiply(CSRMatrix B) {
+            return multiply(B, true);
+        }
+
+        // Method to multiply two CSR matrices; unsorted output skips the per-row sort of column indices
+        public CSRMatrix multiply(CSRMatrix B, boolean sortedIndices) {
             if (this.cols != B.rows) {
                 throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
             }
 
-            List<Double> resultValues = new ArrayList<>();
-            List<Integer> resultColumnIndices = new ArrayList<>();
-            List<Integer> resultRowPointers = new ArrayList<>();
-            resultRowPointers.add(0);
-
-            // Temporary array to store result for a single row in C
-            double[] rowResult = new double[B.cols];
+            // Accumulator reused for every row of C; it picks a dense SPA, hash or heap merge per row
+            AdaptiveAccumulator accumulator = new AdaptiveAccumulator(B.cols, B.sortedIndices);
 
-            // Perform CSR matrix multiplication (this * B)
+            // Symbolic phase: count the exact number of non-zeros in each row of C
+            int[] resultRowPointers = new int[this.rows + 1];
             for (int i = 0; i < this.rows; i++) {
-                // Clear rowResult
-                Arrays.fill(rowResult, 0.0);
-
-                // For each non-zero element in row i of this matrix
-                for (int j = this.rowPointers[i]; j < this.rowPointers[i + 1]; j++) {
-                    int colA = this.columnIndices[j];  // Column index in matrix A
-                    double valA = this.values[j];      // Value of A at row i and column colA
-
-                    // Multiply row of A by corresponding row in B (which is stored in CSR format)
-                    for (int k = B.rowPointers[colA]; k < B.rowPointers[colA + 1]; k++) {
-                        int colB = B.columnIndices[k];   // Column index in matrix B
-                        double valB = B.values[k];       // Value of B at column colB
-                        rowResult[colB] += valA * valB;
-                    }
-                }
+                int nonZeroCount = accumulator.symbolic(this.rowPointers, this.columnIndices, i,
+                        B.rowPointers, B.columnIndices);
+                resultRowPointers[i + 1] = Math.addExact(resultRowPointers[i], nonZeroCount);
+            }
 
-                // Save the result of row i in CSR format
-                int nonZeroCount = 0;
-                for (int j = 0; j < B.cols; j++) {
-                    if (rowResult[j] != 0.0) {
-                        resultValues.add(rowResult[j]);
-                        resultColumnIndices.add(j);
-                        nonZeroCount++;
-                    }
-                }
+            // Preallocate the output with its exact size
+            int nnz = resultRowPointers[this.rows];
+            double[] resultValues = new double[nnz];
+            int[] resultColumnIndices = new int[nnz];
 
-                resultRowPointers.add(resultRowPointers.get(resultRowPointers.size() - 1) + nonZeroCount);
+            // Numeric phase: each row of C is written directly into its slice of the output arrays
+            for (int i = 0; i < this.rows; i++) {
+                accumulator.numeric(this.rowPointers, this.columnIndices, this.values, i,
+                        B.rowPointers, B.columnIndices, B.values,
+                        resultColumnIndices, resultValues, resultRowPointers[i], sortedIndices);
             }
 
-            // Convert lists to arrays
-            double[] resultValuesArray = resultValues.stream().mapToDouble(Double::doubleValue).toArray();
-            int[] resultColumnIndicesArray = resultColumnIndices.stream().mapToInt(Integer::intValue).toArray();
-            int[] resultRowPointersArray = resultRowPointers.stream().mapToInt(Integer::intValue).toArray();
+            return new CSRMatrix(resultValues, resultColumnIndices, resultRowPointers, this.rows, B.cols, sortedIndices);
+        }
+
+        // Method to compute only the structure of this * B, for products repeated with new values on the
+        // same patterns; SymbolicProduct.multiply then just recomputes the values. Limited to products of at
+        // most SymbolicProduct.MAX_FLOPS multiply-adds.
+        public SymbolicProduct multiplySymbolic(CSRMatrix B) {
+            return SymbolicProduct.of(this, B);
+        }
+
+        // Method to compute this * B in blocks of rows handed to the sink as they finish, so the full product is
+        // never held in memory; see StreamingSpGEMM
+        public StreamingSpGEMM.Stats multiplyStreaming(CSRMatrix B, long maxBlockEntries,
+                                                       StreamingSpGEMM.RowBlockSink sink) throws IOException {
+            return StreamingSpGEMM.multiplyParallel(this, B, maxBlockEntries, ForkJoinPool.commonPool(), sink);
+        }
+
+        // Method to multiply two CSR matrices keeping only the entries the pruning lets through, on the common
+        // fork-join pool; dropped entries are never stored, see PrunedSpGEMM
+        public PrunedSpGEMM.Result multiplyPruned(CSRMatrix B, PrunedSpGEMM.Pruning pruning) {
+            return PrunedSpGEMM.multiplyParallel(this, B, pruning, ForkJoinPool.commonPool());
+        }
 
-            return new CSRMatrix(resultValuesArray, resultColumnIndicesArray, resultRowPointersArray, this.rows, B.cols);
+        // Method to multiply two CSR matrices on the common fork-join pool
+        public CSRMatrix multiplyParallel(CSRMatrix B) {
+            return multiplyParallel(B, ForkJoinPool.commonPool(), true);
+        }
+
+        // Method to multiply two CSR matrices with rows of A split across the threads of the given pool
+        public CSRMatrix multiplyParallel(CSRMatrix B, ForkJoinPool pool, boolean sortedIndices) {
+            if (this.cols != B.rows) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+            }
+            return ParallelCSRMul.multiply(this, B, pool, sortedIndices);
         }
     }
 
@@ -129,7 +322,35 @@ public class SparseMatrixCSRMul {
         int[] columnIndices = columnIndicesList.stream().mapToInt(Integer::intValue).toArray();
         int[] rowPointers = rowPointersList.stream().mapToInt(Integer::intValue).toArray();
 
-        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols);
+        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols, true);
+    }
+
+    // Method to generate a random CSR matrix with perRow distinct columns in every row, sorted
+    public static CSRMatrix generateRandomCSR(int rows, int cols, int perRow, Random random) {
+        if (perRow < 0 || perRow > cols) {
+            throw new IllegalArgumentException("Entries per row must be between 0 and the number of columns.");
+        }
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[Math.multiplyExact(rows, perRow)];
+        double[] values = new double[columnIndices.length];
+        for (int i = 0; i < rows; i++) {
+            int start = i * perRow;
+            // Floyd's sampling: one draw per entry, no retries even when the row is nearly full
+            for (int p = 0, j = cols - perRow; p < perRow; p++, j++) {
+                int c = random.nextInt(j + 1);
+                for (int q = start; q < start + p; q++) {
+                    if (columnIndices[q] == c) {
+                        c = j;
+                        break;
+                    }
+                }
+                columnIndices[start + p] = c;
+                values[start + p] = random.nextDouble();
+            }
+            Arrays.sort(columnIndices, start, start + perRow);
+            rowPointers[i + 1] = start + perRow;
+        }
+        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols, true);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,329 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import IO.StreamingCSRWriter;
+import SpGEMM.AdaptiveAccumulator;
+import SpGEMM.RowPartition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Row-block streaming product C = A * B. Rows of A are grouped into blocks whose flop bound plus row count stays
+// under a budget of entries; the flop bound of a row also bounds its output entries, so every block of C fits in
+// buffers of that size. Each finished block is handed to a sink and its buffers are reused, so peak memory
+// follows the block budget instead of nnz(C), and the sink sees the first rows before the last ones are computed.
+//
+// The parallel variant computes a block on the pool while the caller's thread runs the sink on the previous one,
+// so it keeps two blocks alive.
+public class StreamingSpGEMM {
+    // Consecutive rows of C; row pointers start at zero on the first row of the block. The arrays belong to the
+    // multiply and are overwritten once the sink returns, so a sink that keeps a block must copy it (toCSR()).
+    public static class RowBlock {
+        final int cols;
+        final int[] rowPointers;
+        final int[] columnIndices;
+        final double[] values;
+        int firstRow, rowCount;
+
+        RowBlock(int cols, int maxRows, int maxEntries) {
+            this.cols = cols;
+            this.rowPointers = new int[maxRows + 1];
+            this.columnIndices = new int[maxEntries];
+            this.values = new double[maxEntries];
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public int getNnz() {
+            return rowPointers[rowCount];
+        }
+
+        public int[] getRowPointers() {
+            return rowPointers;
+        }
+
+        public int[] getColumnIndices() {
+            return columnIndices;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        // Method to copy the block into a standalone rowCount x cols matrix
+        public CSRMatrix toCSR() {
+            int nnz = getNnz();
+            return new CSRMatrix(Arrays.copyOf(values, nnz), Arrays.copyOf(columnIndices, nnz),
+                    Arrays.copyOf(rowPointers, rowCount + 1), rowCount, cols, true);
+        }
+    }
+
+    // Receives the blocks of C in row order
+    @FunctionalInterface
+    public interface RowBlockSink {
+        void accept(RowBlock block) throws IOException;
+    }
+
+    // Totals of one streaming run
+    public static class Stats {
+        public final int blocks;
+        public final long nnz;
+        public final long bufferBytes;        // Heap held by the block buffers
+        public final long computeNanos;       // Time computing blocks (overlapped with the sink when parallel)
+        public final long sinkNanos;          // Time spent inside the sink
+        public final long elapsedNanos;
+
+        Stats(int blocks, long nnz, long bufferBytes, long computeNanos, long sinkNanos, long elapsedNanos) {
+            this.blocks = blocks;
+            this.nnz = nnz;
+            this.bufferBytes = bufferBytes;
+            this.computeNanos = computeNanos;
+            this.sinkNanos = sinkNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d blocks, nnz=%d, %d KB of buffers, compute %d ms, sink %d ms, total %d ms",
+                    blocks, nnz, bufferBytes >> 10, computeNanos / 1_000_000, sinkNanos / 1_000_000,
+                    elapsedNanos / 1_000_000);
+        }
+    }
+
+    private final CSRMatrix A, B;
+    private final long[] flops;                       // Flop bound prefix over the rows of A
+    private final int[] blocks;                       // Block boundaries over the rows of A
+    private final int maxRows, maxEntries;            // Largest block, which sizes the buffers
+    private final ThreadLocal<AdaptiveAccumulator> accumulators;
+    private long computeNanos;
+
+    private StreamingSpGEMM(CSRMatrix A, CSRMatrix B, long maxBlockEntries) {
+        this.A = A;
+        this.B = B;
+        this.flops = RowPartition.flopPrefix(A.rowPointers, A.columnIndices, A.rows, B.rowPointers);
+        this.accumulators = ThreadLocal.withInitial(() -> new AdaptiveAccumulator(B.cols, B.sortedIndices));
+
+        // Grow each block while its flops plus rows fit in the budget; a row over budget gets a block of its own
+        int[] boundaries = new int[16];
+        int count = 0;
+        int largestRows = 0;
+        long largestFlops = 0;
+        for (int start = 0; start < A.rows; ) {
+            int end = start + 1;
+            while (end < A.rows && flops[end + 1] - flops[start] + (end + 1 - start) <= maxBlockEntries) {
+                end++;
+            }
+            if (count + 2 > boundaries.length) {
+                boundaries = Arrays.copyOf(boundaries, boundaries.length * 2);
+            }
+            boundaries[++count] = end;
+            largestRows = Math.max(largestRows, end - start);
+            largestFlops = Math.max(largestFlops, flops[end] - flops[start]);
+            start = end;
+        }
+        this.blocks = Arrays.copyOf(boundaries, count + 1);
+        this.maxRows = largestRows;
+        this.maxEntries = Math.toIntExact(largestFlops);
+    }
+
+    // Method to stream the rows of A * B to the sink in blocks of at most maxBlockEntries entries plus rows
+    public static Stats multiply(CSRMatrix A, CSRMatrix B, long maxBlockEntries, RowBlockSink sink) throws IOException {
+        StreamingSpGEMM product = create(A, B, maxBlockEntries);
+        long start = System.nanoTime();
+        RowBlock block = product.newBlock();
+        AdaptiveAccumulator accumulator = product.accumulators.get();
+        long nnz = 0, compute = 0, sinkTime = 0;
+        for (int b = 0; b + 1 < product.blocks.length; b++) {
+            long computeStart = System.nanoTime();
+            product.fill(block, b);
+            product.computeRows(accumulator, block, block.firstRow, block.firstRow + block.rowCount, 0);
+            product.finish(block, null);
+            long sinkStart = System.nanoTime();
+            compute += sinkStart - computeStart;
+            sink.accept(block);
+            sinkTime += System.nanoTime() - sinkStart;
+            nnz += block.getNnz();
+        }
+        return new Stats(product.blocks.length - 1, nnz, product.bufferBytes(1), compute, sinkTime,
+                System.nanoTime() - start);
+    }
+
+    // Method to stream the rows of A * B with each block computed on the pool; the sink runs on the calling
+    // thread for block b while block b + 1 is computed
+    public static Stats multiplyParallel(CSRMatrix A, CSRMatrix B, long maxBlockEntries, ForkJoinPool pool,
+                                         RowBlockSink sink) throws IOException {
+        StreamingSpGEMM product = create(A, B, maxBlockEntries);
+        long start = System.nanoTime();
+        int blockCount = product.blocks.length - 1;
+        if (blockCount == 0) {
+            return new Stats(0, 0, 0, 0, 0, System.nanoTime() - start);
+        }
+        RowBlock[] buffers = {product.newBlock(), blockCount > 1 ? product.newBlock() : null};
+        BlockTask[] tasks = new BlockTask[2];
+        tasks[0] = product.new BlockTask(buffers[0], 0, RowPartition.chunks(pool));
+        pool.execute(tasks[0]);
+
+        long nnz = 0, sinkTime = 0;
+        try {
+            for (int b = 0; b < blockCount; b++) {
+                BlockTask current = tasks[b & 1];
+                current.join();
+                if (b + 1 < blockCount) {
+                    tasks[(b + 1) & 1] = product.new BlockTask(buffers[(b + 1) & 1], b + 1, RowPartition.chunks(pool));
+                    pool.execute(tasks[(b + 1) & 1]);
+                }
+                long sinkStart = System.nanoTime();
+                sink.accept(current.block);
+                sinkTime += System.nanoTime() - sinkStart;
+                nnz += current.block.getNnz();
+            }
+        } finally {
+            // A failing sink must not leave the next block writing into buffers after the call returns
+            for (BlockTask task : tasks) {
+                if (task != null) {
+                    task.quietlyJoin();
+                }
+            }
+        }
+        return new Stats(blockCount, nnz, product.bufferBytes(buffers[1] == null ? 1 : 2),
+                product.computeNanos, sinkTime, System.nanoTime() - start);
+    }
+
+    // Method to stream A * B into a binary CSR file (see IO.BinarySparseFormat), readable once the call returns
+    public static Stats multiplyToFile(CSRMatrix A, CSRMatrix B, long maxBlockEntries, ForkJoinPool pool, Path path)
+            throws IOException {
+        try (StreamingCSRWriter writer = new StreamingCSRWriter(path, A.rows, B.cols)) {
+            return multiplyParallel(A, B, maxBlockEntries, pool, writer);
+        }
+    }
+
+    private static StreamingSpGEMM create(CSRMatrix A, CSRMatrix B, long maxBlockEntries) {
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        if (maxBlockEntries <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        return new StreamingSpGEMM(A, B, maxBlockEntries);
+    }
+
+    private RowBlock newBlock() {
+        return new RowBlock(B.cols, maxRows, maxEntries);
+    }
+
+    private long bufferBytes(int buffers) {
+        return buffers * (4L * (maxRows + 1) + 12L * maxEntries);
+    }
+
+    private void fill(RowBlock block, int b) {
+        block.firstRow = blocks[b];
+        block.rowCount = blocks[b + 1] - blocks[b];
+    }
+
+    // Writes rows [rowStart, rowEnd) contiguously from offset, leaving each row's count in the pointer slot after it
+    private int computeRows(AdaptiveAccumulator accumulator, RowBlock block, int rowStart, int rowEnd, int offset) {
+        int end = offset;
+        for (int i = rowStart; i < rowEnd; i++) {
+            int count = accumulator.numeric(A.rowPointers, A.columnIndices, A.values, i,
+                    B.rowPointers, B.columnIndices, B.values,
+                    block.columnIndices, block.values, end, true);
+            block.rowPointers[i - block.firstRow + 1] = count;
+            end += count;
+        }
+        return end;
+    }
+
+    // Turns the per-row counts into pointers. Chunks computed in parallel start at their flop bound offsets,
+    // so their output is first packed down to close the gaps between them.
+    private void finish(RowBlock block, int[] chunks) {
+        if (chunks != null) {
+            int packed = 0;
+            for (int c = 0; c + 1 < chunks.length; c++) {
+                int source = (int) (flops[chunks[c]] - flops[block.firstRow]);
+                int length = 0;
+                for (int i = chunks[c]; i < chunks[c + 1]; i++) {
+                    length += block.rowPointers[i - block.firstRow + 1];
+                }
+                if (source != packed) {
+                    System.arraycopy(block.columnIndices, source, block.columnIndices, packed, length);
+                    System.arraycopy(block.values, source, block.values, packed, length);
+                }
+                packed += length;
+            }
+        }
+        block.rowPointers[0] = 0;
+        for (int r = 0; r < block.rowCount; r++) {
+            block.rowPointers[r + 1] += block.rowPointers[r];
+        }
+    }
+
+    // Computes one block: its rows are split into chunks of equal flops, each written at its own flop offset
+    private class BlockTask extends RecursiveAction {
+        final RowBlock block;
+        private final int index, parts;
+
+        BlockTask(RowBlock block, int index, int parts) {
+            this.block = block;
+            this.index = index;
+            this.parts = parts;
+        }
+
+        @Override
+        protected void compute() {
+            long start = System.nanoTime();
+            fill(block, index);
+            long base = flops[block.firstRow];
+            long[] prefix = new long[block.rowCount + 1];
+            for (int r = 0; r <= block.rowCount; r++) {
+                prefix[r] = flops[block.firstRow + r] - base;
+            }
+            int[] chunks = RowPartition.split(prefix, parts);
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] += block.firstRow;
+            }
+            invokeAll(new ChunkTask(block, chunks, 0, chunks.length - 1));
+            finish(block, chunks);
+            synchronized (StreamingSpGEMM.this) {
+                computeNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    // Processes chunks [from, to) of one block, splitting recursively until a single chunk is left
+    private class ChunkTask extends RecursiveAction {
+        private final RowBlock block;
+        private final int[] chunks;
+        private final int from, to;
+
+        ChunkTask(RowBlock block, int[] chunks, int from, int to) {
+            this.block = block;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(block, chunks, from, middle), new ChunkTask(block, chunks, middle, to));
+                return;
+            }
+            int offset = (int) (flops[chunks[from]] - flops[block.firstRow]);
+            computeRows(accumulators.get(), block, chunks[from], chunks[to], offset);
+        }
+    }
+}
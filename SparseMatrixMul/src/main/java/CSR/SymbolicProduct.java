@@ -0,0 +1,205 @@
+package CSR;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import SpGEMM.RowPartition;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Structure of C = A * B computed once for a fixed pair of sparsity patterns.
+// Besides the output row pointers and sorted column indices it keeps a scatter map with one entry per
+// multiply-add: the position in C's values that the product a(i, k) * b(k, j) lands on, in the order the
+// numeric loop visits them. Repeating the product with new values then is a single streaming pass with
+// no accumulator, no sort and no allocation.
+public class SymbolicProduct {
+    public static final long MAX_FLOPS = Integer.MAX_VALUE - 8;   // Largest scatter map a Java array can hold
+
+    // Patterns the plan was built for, kept to check later operands against
+    private final int[] leftPointers, leftIndices;
+    private final int[] rightPointers, rightIndices;
+    private final int rows, cols;
+
+    private final int[] resultRowPointers;
+    private final int[] resultColumnIndices;
+    private final int[] scatter;                      // Output position of every multiply-add
+    private final long[] flopPrefix;                  // Start of each row of A in the scatter map
+
+    private SymbolicProduct(CSRMatrix A, CSRMatrix B, long[] flopPrefix) {
+        this.leftPointers = A.rowPointers;
+        this.leftIndices = A.columnIndices;
+        this.rightPointers = B.rowPointers;
+        this.rightIndices = B.columnIndices;
+        this.rows = A.rows;
+        this.cols = B.cols;
+        this.flopPrefix = flopPrefix;
+        this.scatter = new int[(int) flopPrefix[rows]];
+
+        int[] marker = new int[cols];                 // Row stamp (i + 1) of the last row that touched a column
+        int[] slot = new int[cols];                   // Offset of a column within the current output row
+
+        // Count the distinct columns of every output row
+        int[] pointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int p = leftPointers[i]; p < leftPointers[i + 1]; p++) {
+                int inner = leftIndices[p];
+                for (int q = rightPointers[inner]; q < rightPointers[inner + 1]; q++) {
+                    int column = rightIndices[q];
+                    if (marker[column] != i + 1) {
+                        marker[column] = i + 1;
+                        count++;
+                    }
+                }
+            }
+            pointers[i + 1] = Math.addExact(pointers[i], count);
+        }
+
+        // Write the sorted columns of every row, then map each multiply-add to its slot in the row
+        int[] columns = new int[pointers[rows]];
+        Arrays.fill(marker, 0);
+        int flop = 0;
+        for (int i = 0; i < rows; i++) {
+            int start = pointers[i];
+            int end = start;
+            for (int p = leftPointers[i]; p < leftPointers[i + 1]; p++) {
+                int inner = leftIndices[p];
+                for (int q = rightPointers[inner]; q < rightPointers[inner + 1]; q++) {
+                    int column = rightIndices[q];
+                    if (marker[column] != i + 1) {
+                        marker[column] = i + 1;
+                        columns[end++] = column;
+                    }
+                }
+            }
+            Arrays.sort(columns, start, end);
+            for (int j = start; j < end; j++) {
+                slot[columns[j]] = j;
+            }
+            for (int p = leftPointers[i]; p < leftPointers[i + 1]; p++) {
+                int inner = leftIndices[p];
+                for (int q = rightPointers[inner]; q < rightPointers[inner + 1]; q++) {
+                    scatter[flop++] = slot[rightIndices[q]];
+                }
+            }
+        }
+
+        this.resultRowPointers = pointers;
+        this.resultColumnIndices = columns;
+    }
+
+    // Method to compute the structure of A * B
+    // The scatter map has one int per multiply-add, so products of more than MAX_FLOPS multiply-adds are rejected
+    public static SymbolicProduct of(CSRMatrix A, CSRMatrix B) {
+        if (A.cols != B.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        long[] flopPrefix = RowPartition.flopPrefix(A.rowPointers, A.columnIndices, A.rows, B.rowPointers);
+        if (flopPrefix[A.rows] > MAX_FLOPS) {
+            throw new IllegalArgumentException("Symbolic product needs " + flopPrefix[A.rows]
+                    + " multiply-adds; at most " + MAX_FLOPS + " fit in its scatter map.");
+        }
+        return new SymbolicProduct(A, B, flopPrefix);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getNnz() {
+        return resultRowPointers[rows];
+    }
+
+    public long getFlops() {
+        return scatter.length;
+    }
+
+    // Method to allocate a result with this product's structure; its values are filled by multiply
+    public CSRMatrix newResult() {
+        return new CSRMatrix(new double[getNnz()], resultColumnIndices, resultRowPointers, rows, cols, true);
+    }
+
+    // Method to compute A * B into a new result
+    public CSRMatrix multiply(CSRMatrix A, CSRMatrix B) {
+        CSRMatrix C = newResult();
+        multiply(A, B, C);
+        return C;
+    }
+
+    // Method to overwrite the values of C with A * B. A and B must have the patterns the plan was built for
+    // and C must come from newResult(); only their values may differ between calls.
+    public void multiply(CSRMatrix A, CSRMatrix B, CSRMatrix C) {
+        checkOperands(A, B, C);
+        multiplyRows(A.values, B.values, C.values, 0, rows);
+    }
+
+    // Method to overwrite the values of C with A * B with rows split across the threads of the given pool.
+    // Chunks are balanced by multiply-adds, which the scatter map already counts exactly.
+    public void multiplyParallel(CSRMatrix A, CSRMatrix B, CSRMatrix C, ForkJoinPool pool) {
+        checkOperands(A, B, C);
+        int[] chunks = RowPartition.split(flopPrefix, pool);
+        pool.invoke(new NumericTask(A.values, B.values, C.values, chunks, 0, chunks.length - 1));
+    }
+
+    // Rows [rowStart, rowEnd) of the numeric product; each row starts its scatter entries at flopPrefix
+    private void multiplyRows(double[] aValues, double[] bValues, double[] cValues, int rowStart, int rowEnd) {
+        Arrays.fill(cValues, resultRowPointers[rowStart], resultRowPointers[rowEnd], 0.0);
+        int flop = (int) flopPrefix[rowStart];
+        for (int i = rowStart; i < rowEnd; i++) {
+            for (int p = leftPointers[i]; p < leftPointers[i + 1]; p++) {
+                double aValue = aValues[p];
+                int inner = leftIndices[p];
+                for (int q = rightPointers[inner]; q < rightPointers[inner + 1]; q++) {
+                    cValues[scatter[flop++]] += aValue * bValues[q];
+                }
+            }
+        }
+    }
+
+    private void checkOperands(CSRMatrix A, CSRMatrix B, CSRMatrix C) {
+        if (!samePattern(A.rowPointers, A.columnIndices, leftPointers, leftIndices)
+                || !samePattern(B.rowPointers, B.columnIndices, rightPointers, rightIndices)) {
+            throw new IllegalArgumentException("Operand sparsity pattern differs from the symbolic product.");
+        }
+        if (C.rowPointers != resultRowPointers || C.columnIndices != resultColumnIndices) {
+            throw new IllegalArgumentException("Result was not created by this symbolic product.");
+        }
+    }
+
+    // Shared arrays are the common case and cost nothing to check; copies are compared entry by entry
+    private static boolean samePattern(int[] pointers, int[] indices, int[] expectedPointers, int[] expectedIndices) {
+        return (pointers == expectedPointers || Arrays.equals(pointers, expectedPointers))
+                && (indices == expectedIndices || Arrays.equals(indices, expectedIndices));
+    }
+
+    // Processes chunks [from, to), splitting recursively until a single chunk is left
+    private class NumericTask extends RecursiveAction {
+        private final double[] aValues, bValues, cValues;
+        private final int[] chunks;
+        private final int from, to;
+
+        NumericTask(double[] aValues, double[] bValues, double[] cValues, int[] chunks, int from, int to) {
+            this.aValues = aValues;
+            this.bValues = bValues;
+            this.cValues = cValues;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NumericTask(aValues, bValues, cValues, chunks, from, middle),
+                        new NumericTask(aValues, bValues, cValues, chunks, middle, to));
+                return;
+            }
+            multiplyRows(aValues, bValues, cValues, chunks[from], chunks[to]);
+        }
+    }
+}
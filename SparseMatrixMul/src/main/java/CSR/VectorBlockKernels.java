@@ -0,0 +1,111 @@
+package CSR;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD kernels for the blocked formats, built on the incubating Vector API like VectorSpMV and only loaded
+// when SparseMatrixCSRMul.VECTOR_ENABLED holds.
+final class VectorBlockKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    private static final VectorSpecies<Double> SPECIES_2 = DoubleVector.SPECIES_128;
+    private static final VectorSpecies<Double> SPECIES_4 = DoubleVector.SPECIES_256;
+    private static final VectorSpecies<Double> SPECIES_8 = DoubleVector.SPECIES_512;
+
+    private VectorBlockKernels() {
+    }
+
+    // Block heights with a vector of exactly r doubles that the hardware provides natively
+    static boolean supports(int blockHeight) {
+        return (blockHeight == 2 || blockHeight == 4 || blockHeight == 8)
+                && blockHeight * Double.SIZE <= SPECIES.vectorBitSize();
+    }
+
+    // y = A * x for a BCSR matrix whose block height is supported. One column of a block is a vector of r
+    // doubles, so every block is c broadcast fused multiply-adds into a single accumulator. Each height has its
+    // own loop with a constant species, which the JIT needs to intrinsify the vector operations; the clipped
+    // last block row goes to the scalar kernel.
+    static void multiply(BCSRMatrix A, double[] x, double[] y) {
+        int fullBlockRows = A.rows / A.blockHeight;
+        switch (A.blockHeight) {
+            case 2 -> multiply2(A, x, y, fullBlockRows);
+            case 4 -> multiply4(A, x, y, fullBlockRows);
+            default -> multiply8(A, x, y, fullBlockRows);
+        }
+        A.multiplyScalar(x, y, fullBlockRows, A.blockRowCount);
+    }
+
+    private static void multiply2(BCSRMatrix A, double[] x, double[] y, int blockRowEnd) {
+        int c = A.blockWidth, blockSize = 2 * c;
+        for (int I = 0; I < blockRowEnd; I++) {
+            DoubleVector accumulator = DoubleVector.zero(SPECIES_2);
+            for (int b = A.blockPointers[I]; b < A.blockPointers[I + 1]; b++) {
+                int column = A.blockColumns[b] * c;
+                int width = Math.min(c, A.cols - column);
+                for (int k = 0, offset = b * blockSize; k < width; k++, offset += 2) {
+                    accumulator = DoubleVector.fromArray(SPECIES_2, A.values, offset)
+                            .fma(DoubleVector.broadcast(SPECIES_2, x[column + k]), accumulator);
+                }
+            }
+            accumulator.intoArray(y, I * 2);
+        }
+    }
+
+    private static void multiply4(BCSRMatrix A, double[] x, double[] y, int blockRowEnd) {
+        int c = A.blockWidth, blockSize = 4 * c;
+        for (int I = 0; I < blockRowEnd; I++) {
+            DoubleVector accumulator = DoubleVector.zero(SPECIES_4);
+            for (int b = A.blockPointers[I]; b < A.blockPointers[I + 1]; b++) {
+                int column = A.blockColumns[b] * c;
+                int width = Math.min(c, A.cols - column);
+                for (int k = 0, offset = b * blockSize; k < width; k++, offset += 4) {
+                    accumulator = DoubleVector.fromArray(SPECIES_4, A.values, offset)
+                            .fma(DoubleVector.broadcast(SPECIES_4, x[column + k]), accumulator);
+                }
+            }
+            accumulator.intoArray(y, I * 4);
+        }
+    }
+
+    private static void multiply8(BCSRMatrix A, double[] x, double[] y, int blockRowEnd) {
+        int c = A.blockWidth, blockSize = 8 * c;
+        for (int I = 0; I < blockRowEnd; I++) {
+            DoubleVector accumulator = DoubleVector.zero(SPECIES_8);
+            for (int b = A.blockPointers[I]; b < A.blockPointers[I + 1]; b++) {
+                int column = A.blockColumns[b] * c;
+                int width = Math.min(c, A.cols - column);
+                for (int k = 0, offset = b * blockSize; k < width; k++, offset += 8) {
+                    accumulator = DoubleVector.fromArray(SPECIES_8, A.values, offset)
+                            .fma(DoubleVector.broadcast(SPECIES_8, x[column + k]), accumulator);
+                }
+            }
+            accumulator.intoArray(y, I * 8);
+        }
+    }
+
+    // y = A * x for a SELL-C-sigma matrix whose slice height is the preferred vector length. Lane l of a slice
+    // is one row, so a step down the slice is one vector of values, one gather from x and one fused multiply-add.
+    static void multiply(SellCSigmaMatrix A, double[] x, double[] y) {
+        int fullSlices = A.rows / LANES;
+        double[] sums = new double[LANES];
+        for (int s = 0; s < fullSlices; s++) {
+            DoubleVector accumulator = DoubleVector.zero(SPECIES);
+            for (int p = A.slicePointers[s]; p < A.slicePointers[s + 1]; p += LANES) {
+                DoubleVector a = DoubleVector.fromArray(SPECIES, A.values, p);
+                DoubleVector gathered = DoubleVector.fromArray(SPECIES, x, 0, A.columnIndices, p);
+                accumulator = a.fma(gathered, accumulator);
+            }
+            if (A.rowOrder == null) {
+                accumulator.intoArray(y, s * LANES);
+            } else {
+                accumulator.intoArray(sums, 0);
+                for (int l = 0; l < LANES; l++) {
+                    y[A.rowOrder[s * LANES + l]] = sums[l];
+                }
+            }
+        }
+        A.multiplyScalar(x, y, fullSlices, A.sliceCount);
+    }
+}
@@ -0,0 +1,45 @@
+package CSR;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD sparse matrix x dense vector kernel built on the incubating Vector API (jdk.incubator.vector).
+// This class is only loaded when the module is present, see SparseMatrixCSRMul.VECTOR_ENABLED.
+final class VectorSpMV {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // Gathers are only issued on 256-bit or wider vectors (AVX2 vgatherdpd, AVX-512); on narrower
+    // hardware they are emulated lane by lane and lose to the scalar loop
+    static final boolean SUPPORTED = SPECIES.vectorBitSize() >= 256;
+
+    private VectorSpMV() {
+    }
+
+    // y[rowStart:rowEnd] = A[rowStart:rowEnd, :] * x, gathering x through the column indices of each row
+    static void multiply(int[] rowPointers, int[] columnIndices, double[] values,
+                         double[] x, double[] y, int rowStart, int rowEnd) {
+        for (int i = rowStart; i < rowEnd; i++) {
+            int j = rowPointers[i];
+            int end = rowPointers[i + 1];
+            double sum = 0.0;
+
+            if (end - j >= LANES) {
+                DoubleVector accumulator = DoubleVector.zero(SPECIES);
+                for (; j + LANES <= end; j += LANES) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, values, j);
+                    DoubleVector gathered = DoubleVector.fromArray(SPECIES, x, 0, columnIndices, j);
+                    accumulator = a.fma(gathered, accumulator);
+                }
+                sum = accumulator.reduceLanes(VectorOperators.ADD);
+            }
+
+            // Remainder of the row
+            for (; j < end; j++) {
+                sum += values[j] * x[columnIndices[j]];
+            }
+            y[i] = sum;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package Cache;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Cache of products, transposes and CSR/CSC conversions of sparse matrices, bounded by the bytes of the
+// cached results rather than by their number.
+//
+// Operands are matched either by identity (the same CSRMatrix/CSCMatrix object) or by content (equal
+// dimensions and arrays, found through a hash of them). Identity keys reach their operands through weak
+// references, so the cache never keeps a matrix alive that its caller dropped; entries whose operand was
+// collected are purged on the next call. Content keys hold the operand arrays, so a match is confirmed entry
+// by entry and never returns a result for a colliding hash; those arrays count towards the entry's bytes.
+//
+// Two eviction policies are offered: plain LRU, and GreedyDual-Size, which weighs the time a result took to
+// compute against the bytes it occupies and ages entries so that ones not used for a while still leave.
+//
+// Cached matrices are shared between callers and must not be modified.
+public class MatrixCache {
+
+    public enum KeyMode { IDENTITY, CONTENT }
+
+    public enum Policy { LRU, COST_WEIGHTED }
+
+    private enum Operation { MULTIPLY_CSR, MULTIPLY_CSC, TRANSPOSE_CSR, TRANSPOSE_CSC, CSR_TO_CSC, CSC_TO_CSR }
+
+    private static final long ENTRY_OVERHEAD = 96;     // Object headers, key and map node of one entry
+
+    private final long maxBytes;
+    private final KeyMode keyMode;
+    private final Policy policy;
+
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();   // Identity operands gone
+    private long bytes;
+    private double inflation;                           // GreedyDual-Size clock: priority of the last victim
+
+    private long hits, misses, evictions, rejections;
+
+    public MatrixCache(long maxBytes, KeyMode keyMode, Policy policy) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        }
+        this.maxBytes = maxBytes;
+        this.keyMode = keyMode;
+        this.policy = policy;
+    }
+
+    public MatrixCache(long maxBytes) {
+        this(maxBytes, KeyMode.IDENTITY, Policy.LRU);
+    }
+
+    // Method to return A * B for two CSR matrices, computing it on a miss
+    public CSRMatrix multiply(CSRMatrix A, CSRMatrix B) {
+        return get(new Key(Operation.MULTIPLY_CSR, operand(A), operand(B)), () -> A.multiply(B));
+    }
+
+    // Method to return A * B for two CSC matrices, computing it on a miss
+    public CSCMatrix multiply(CSCMatrix A, CSCMatrix B) {
+        return get(new Key(Operation.MULTIPLY_CSC, operand(A), operand(B)), () -> A.multiply(B));
+    }
+
+    // Method to return the transpose of A in CSR. The CSC arrays of A are the CSR arrays of its transpose.
+    public CSRMatrix transpose(CSRMatrix A) {
+        return get(new Key(Operation.TRANSPOSE_CSR, operand(A), null), () -> {
+            CSCMatrix csc = A.toCSC();
+            return new CSRMatrix(csc.getValues(), csc.getRowIndices(), csc.getColPointers(), A.getCols(), A.getRows());
+        });
+    }
+
+    // Method to return the transpose of A in CSC
+    public CSCMatrix transpose(CSCMatrix A) {
+        return get(new Key(Operation.TRANSPOSE_CSC, operand(A), null), () -> {
+            CSRMatrix csr = A.toCSR();
+            return new CSCMatrix(csr.getValues(), csr.getColumnIndices(), csr.getRowPointers(), A.getCols(), A.getRows());
+        });
+    }
+
+    public CSCMatrix toCSC(CSRMatrix A) {
+        return get(new Key(Operation.CSR_TO_CSC, operand(A), null), A::toCSC);
+    }
+
+    public CSRMatrix toCSR(CSCMatrix A) {
+        return get(new Key(Operation.CSC_TO_CSR, operand(A), null), A::toCSR);
+    }
+
+    // Looks the key up and computes the value outside the lock on a miss, so a long product does not block
+    // other callers. Two threads missing on the same key both compute; the second result replaces the first.
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> compute) {
+        synchronized (this) {
+            purgeCollected();
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                entry.priority = inflation + entry.costPerByte;
+                return (T) entry.value;
+            }
+            misses++;
+        }
+
+        long start = System.nanoTime();
+        T value = compute.get();
+        long elapsed = System.nanoTime() - start;
+
+        long size = sizeOf(value) + key.left.bytes() + (key.right == null ? 0 : key.right.bytes())
+                + ENTRY_OVERHEAD;
+        synchronized (this) {
+            if (size > maxBytes) {
+                rejections++;
+                return value;
+            }
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            while (bytes + size > maxBytes) {
+                evict();
+            }
+            Entry entry = new Entry(value, size, (double) elapsed / size);
+            entry.priority = inflation + entry.costPerByte;
+            entries.put(key, entry);
+            bytes += size;
+        }
+        return value;
+    }
+
+    // Removes one entry: the least recently used one, or the one with the lowest GreedyDual-Size priority
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        Map.Entry<Key, Entry> victim = it.next();
+        if (policy == Policy.COST_WEIGHTED) {
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> candidate = it.next();
+                if (candidate.getValue().priority < victim.getValue().priority) {
+                    victim = candidate;
+                }
+            }
+            inflation = victim.getValue().priority;
+        }
+        entries.remove(victim.getKey());
+        bytes -= victim.getValue().bytes;
+        evictions++;
+    }
+
+    // Drops the entries of operands the garbage collector has reclaimed, once any was
+    private void purgeCollected() {
+        boolean any = false;
+        while (collected.poll() != null) {
+            any = true;
+        }
+        if (!any) {
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().left.isCollected()
+                    || (entry.getKey().right != null && entry.getKey().right.isCollected())) {
+                bytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    // Method to drop every cached result
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+        inflation = 0;
+    }
+
+    public synchronized Stats getStats() {
+        purgeCollected();
+        return new Stats(hits, misses, evictions, rejections, entries.size(), bytes, maxBytes);
+    }
+
+    private static long sizeOf(Object matrix) {
+        if (matrix instanceof CSRMatrix csr) {
+            return 8L * csr.getValues().length + 4L * csr.getColumnIndices().length + 4L * csr.getRowPointers().length;
+        }
+        CSCMatrix csc = (CSCMatrix) matrix;
+        return 8L * csc.getValues().length + 4L * csc.getRowIndices().length + 4L * csc.getColPointers().length;
+    }
+
+    private Operand operand(CSRMatrix m) {
+        return new Operand(m, m.getRows(), m.getCols(), m.getRowPointers(), m.getColumnIndices(), m.getValues());
+    }
+
+    private Operand operand(CSCMatrix m) {
+        return new Operand(m, m.getRows(), m.getCols(), m.getColPointers(), m.getRowIndices(), m.getValues());
+    }
+
+    // Snapshot of the cache counters
+    public static class Stats {
+        public final long hits, misses, evictions, rejections;
+        public final int entries;
+        public final long bytes, maxBytes;
+
+        Stats(long hits, long misses, long evictions, long rejections, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d (hit rate %.1f%%) evictions=%d rejected=%d entries=%d bytes=%d/%d",
+                    hits, misses, 100 * hitRate(), evictions, rejections, entries, bytes, maxBytes);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+        final double costPerByte;                       // Compute nanoseconds per cached byte
+        double priority;
+
+        Entry(Object value, long bytes, double costPerByte) {
+            this.value = value;
+            this.bytes = bytes;
+            this.costPerByte = costPerByte;
+        }
+    }
+
+    private record Key(Operation operation, Operand left, Operand right) {
+    }
+
+    // One operand of a cached operation. In identity mode it equals only the same matrix object, which it does
+    // not keep alive; in content mode it equals any matrix of the same type with the same dimensions and arrays.
+    private final class Operand {
+        final WeakReference<Object> matrix;             // Identity mode only
+        final Class<?> type;
+        final int rows, cols;
+        final int[] pointers, indices;                  // Content mode only
+        final double[] values;
+        final int hash;
+
+        Operand(Object matrix, int rows, int cols, int[] pointers, int[] indices, double[] values) {
+            this.type = matrix.getClass();
+            this.rows = rows;
+            this.cols = cols;
+            if (keyMode == KeyMode.IDENTITY) {
+                this.matrix = new WeakReference<>(matrix, collected);
+                this.pointers = this.indices = null;
+                this.values = null;
+                this.hash = System.identityHashCode(matrix);
+            } else {
+                this.matrix = null;
+                this.pointers = pointers;
+                this.indices = indices;
+                this.values = values;
+                this.hash = contentHash();
+            }
+        }
+
+        private int contentHash() {
+            long h = 31L * rows + cols;
+            h = 31 * h + type.hashCode();
+            h = 31 * h + Arrays.hashCode(pointers);
+            h = 31 * h + Arrays.hashCode(indices);
+            h = 31 * h + Arrays.hashCode(values);
+            return (int) (h ^ (h >>> 32));
+        }
+
+        boolean isCollected() {
+            return matrix != null && matrix.get() == null;
+        }
+
+        // Heap the key keeps reachable on top of the result
+        long bytes() {
+            return values == null ? 0 : 8L * values.length + 4L * indices.length + 4L * pointers.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Operand other)) {
+                return false;
+            }
+            if (keyMode == KeyMode.IDENTITY) {
+                Object referent = matrix.get();
+                return referent != null && referent == other.matrix.get();
+            }
+            return hash == other.hash && rows == other.rows && cols == other.cols && type == other.type
+                    && Arrays.equals(pointers, other.pointers)
+                    && Arrays.equals(indices, other.indices)
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package Distributed;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+// Blocking socket between two processes of a distributed product. Primitives and CSR blocks are staged in
+// direct buffers and moved in bulk, little-endian like BinarySparseFormat. One thread may write while another
+// reads, as the two directions have their own buffers and counters.
+final class Connection implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long bytesSent, bytesReceived;
+
+    Connection(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.limit(0);
+    }
+
+    static Connection connect(InetSocketAddress address) throws IOException {
+        return new Connection(SocketChannel.open(address));
+    }
+
+    long getBytesSent() {
+        return bytesSent;
+    }
+
+    long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    void writeInt(int value) throws IOException {
+        reserve(Integer.BYTES);
+        out.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        reserve(Long.BYTES);
+        out.putLong(value);
+    }
+
+    void writeInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            reserve(Integer.BYTES);
+            int chunk = Math.min(length, out.remaining() / Integer.BYTES);
+            out.asIntBuffer().put(values, offset, chunk);
+            out.position(out.position() + chunk * Integer.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    void writeLongs(long[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            reserve(Long.BYTES);
+            int chunk = Math.min(length, out.remaining() / Long.BYTES);
+            out.asLongBuffer().put(values, offset, chunk);
+            out.position(out.position() + chunk * Long.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    void writeDoubles(double[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            reserve(Double.BYTES);
+            int chunk = Math.min(length, out.remaining() / Double.BYTES);
+            out.asDoubleBuffer().put(values, offset, chunk);
+            out.position(out.position() + chunk * Double.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // Header (rows, cols, nnz) followed by the three CSR arrays
+    void writeMatrix(CSRMatrix matrix) throws IOException {
+        int nnz = matrix.getRowPointers()[matrix.getRows()];
+        writeInt(matrix.getRows());
+        writeInt(matrix.getCols());
+        writeInt(nnz);
+        writeInts(matrix.getRowPointers(), 0, matrix.getRows() + 1);
+        writeInts(matrix.getColumnIndices(), 0, nnz);
+        writeDoubles(matrix.getValues(), 0, nnz);
+    }
+
+    void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            bytesSent += channel.write(out);
+        }
+        out.clear();
+    }
+
+    int readInt() throws IOException {
+        require(Integer.BYTES);
+        return in.getInt();
+    }
+
+    long readLong() throws IOException {
+        require(Long.BYTES);
+        return in.getLong();
+    }
+
+    void readInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(Integer.BYTES);
+            int chunk = Math.min(length, in.remaining() / Integer.BYTES);
+            in.asIntBuffer().get(values, offset, chunk);
+            in.position(in.position() + chunk * Integer.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    void readLongs(long[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(Long.BYTES);
+            int chunk = Math.min(length, in.remaining() / Long.BYTES);
+            in.asLongBuffer().get(values, offset, chunk);
+            in.position(in.position() + chunk * Long.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    void readDoubles(double[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(Double.BYTES);
+            int chunk = Math.min(length, in.remaining() / Double.BYTES);
+            in.asDoubleBuffer().get(values, offset, chunk);
+            in.position(in.position() + chunk * Double.BYTES);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    CSRMatrix readMatrix() throws IOException {
+        int rows = readInt(), cols = readInt(), nnz = readInt();
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[nnz];
+        double[] values = new double[nnz];
+        readInts(rowPointers, 0, rows + 1);
+        readInts(columnIndices, 0, nnz);
+        readDoubles(values, 0, nnz);
+        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols);
+    }
+
+    // Makes room for at least bytes more in the output buffer
+    private void reserve(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    // Makes at least bytes available in the input buffer
+    private void require(int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return;
+        }
+        in.compact();
+        while (in.position() < bytes) {
+            int read = channel.read(in);
+            if (read < 0) {
+                throw new EOFException("Connection closed by the other process.");
+            }
+            bytesReceived += read;
+        }
+        in.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,508 @@
+package Distributed;
+
+import CSR.SparseMatrixCSRMul;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Coordinator of a sparse product spread over g x g worker processes (SUMMA). A and B are cut into a g x g grid
+// of CSR blocks, with the inner dimension cut the same way for both; worker (i, j) receives A(i, j) and B(i, j)
+// and computes C(i, j) with the local CSRMatrix.multiply kernel, see SummaWorker for the rounds. C stays with
+// the workers until it is gathered or released, so a caller that only needs its statistics or block sizes never
+// moves it to this process; every product still takes its operands from this process.
+//
+// launch() starts the workers as child JVMs on this machine with the same class path and JVM options, talking
+// over loopback sockets; the only limit to a single box is the peer addresses, which are all loopback.
+public final class DistributedSpGEMM implements Closeable {
+
+    // Commands from the coordinator to a worker
+    static final int MULTIPLY = 1;
+    static final int GATHER = 2;
+    static final int RELEASE = 3;
+    static final int SHUTDOWN = 4;
+
+    private static final long START_TIMEOUT_MILLIS = 60_000;
+
+    private final int grid;
+    private final Connection[] workers;                   // By rank; rank = row * grid + col
+    private final List<Process> processes;
+    private final ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+    private int nextId;
+
+    private DistributedSpGEMM(int grid, Connection[] workers, List<Process> processes) {
+        this.grid = grid;
+        this.workers = workers;
+        this.processes = processes;
+    }
+
+    // Communication and time of one distributed product, per stage
+    public static class Stats {
+        public final int workers;
+        public final long distributeBytes;      // Blocks of A and B sent by the coordinator
+        public final long distributeNanos;
+        public final long broadcastBytes;       // Panels sent between workers in the SUMMA rounds
+        public final long[] roundWaitNanos;     // Per round, the longest time a worker waited for its panels
+        public final long[] roundComputeNanos;  // Per round, the longest local multiply and accumulate
+        public final long summaNanos;           // From the end of the distribution to the last worker's report
+        public final long gatherBytes;          // Blocks of C sent back, 0 when C was kept distributed
+        public final long gatherNanos;
+        public final long elapsedNanos;
+
+        Stats(int workers, long distributeBytes, long distributeNanos, long broadcastBytes, long[] roundWaitNanos,
+              long[] roundComputeNanos, long summaNanos, long gatherBytes, long gatherNanos, long elapsedNanos) {
+            this.workers = workers;
+            this.distributeBytes = distributeBytes;
+            this.distributeNanos = distributeNanos;
+            this.broadcastBytes = broadcastBytes;
+            this.roundWaitNanos = roundWaitNanos;
+            this.roundComputeNanos = roundComputeNanos;
+            this.summaNanos = summaNanos;
+            this.gatherBytes = gatherBytes;
+            this.gatherNanos = gatherNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format(
+                    "%d workers, total %.1f ms%n  distribute %6.1f MB in %7.1f ms%n  SUMMA      %6.1f MB in %7.1f ms",
+                    workers, elapsedNanos / 1e6, distributeBytes / 1e6, distributeNanos / 1e6,
+                    broadcastBytes / 1e6, summaNanos / 1e6));
+            for (int k = 0; k < roundWaitNanos.length; k++) {
+                report.append(String.format("%n    round %d: wait %.1f ms, compute %.1f ms",
+                        k, roundWaitNanos[k] / 1e6, roundComputeNanos[k] / 1e6));
+            }
+            report.append(String.format("%n  gather     %6.1f MB in %7.1f ms", gatherBytes / 1e6, gatherNanos / 1e6));
+            return report.toString();
+        }
+    }
+
+    // Handle on a product whose blocks are held by the workers
+    public static class Product {
+        final int id;
+        final int rows, cols;
+        final int[] rowBounds, colBounds;
+        final long[] blockNonZeros;               // By worker rank
+        Stats stats;
+        CSRMatrix matrix;                         // Set once gathered
+
+        Product(int id, int rows, int cols, int[] rowBounds, int[] colBounds, long[] blockNonZeros) {
+            this.id = id;
+            this.rows = rows;
+            this.cols = cols;
+            this.rowBounds = rowBounds;
+            this.colBounds = colBounds;
+            this.blockNonZeros = blockNonZeros;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+
+        // The assembled product, or null while it is only held by the workers
+        public CSRMatrix getMatrix() {
+            return matrix;
+        }
+
+        public long getNonZeros() {
+            return Arrays.stream(blockNonZeros).sum();
+        }
+
+        public long[] getBlockNonZeros() {
+            return blockNonZeros.clone();
+        }
+    }
+
+    // Method to start workers as local child processes; their count must be a perfect square. Extra JVM
+    // options (e.g. -Xmx4g) are added after the ones this JVM was started with.
+    public static DistributedSpGEMM launch(int workerCount, String... jvmOptions) throws IOException {
+        int grid = (int) Math.round(Math.sqrt(workerCount));
+        if (workerCount < 1 || grid * grid != workerCount) {
+            throw new IllegalArgumentException("Worker count must be a perfect square for the 2D grid, got "
+                    + workerCount + ".");
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                // A debugger or agent would try to bind the same port or attach twice
+                if (!option.startsWith("-agentlib") && !option.startsWith("-javaagent")
+                        && !option.startsWith("-Xrunjdwp")) {
+                    command.add(option);
+                }
+            }
+            command.addAll(Arrays.asList(jvmOptions));
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), SummaWorker.class.getName(),
+                    address.getHostString(), String.valueOf(address.getPort())));
+
+            List<Process> processes = new ArrayList<>();
+            try {
+                for (int w = 0; w < workerCount; w++) {
+                    processes.add(new ProcessBuilder(command).inheritIO().start());
+                }
+                Connection[] workers = accept(server, workerCount, processes);
+
+                // Ranks follow the order of arrival; every worker learns all peer ports, then meshes
+                int[] ports = new int[workerCount];
+                for (int w = 0; w < workerCount; w++) {
+                    ports[w] = workers[w].readInt();
+                }
+                for (int w = 0; w < workerCount; w++) {
+                    workers[w].writeInt(w);
+                    workers[w].writeInt(grid);
+                    workers[w].writeInts(ports, 0, workerCount);
+                    workers[w].flush();
+                }
+                for (Connection worker : workers) {
+                    worker.readInt();
+                }
+                return new DistributedSpGEMM(grid, workers, processes);
+            } catch (IOException | RuntimeException e) {
+                processes.forEach(Process::destroyForcibly);
+                throw e;
+            }
+        }
+    }
+
+    // Waits for every child to connect, failing early if one of them dies
+    private static Connection[] accept(ServerSocketChannel server, int count, List<Process> processes)
+            throws IOException {
+        server.configureBlocking(false);
+        Connection[] workers = new Connection[count];
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        int accepted = 0;
+        while (accepted < count) {
+            SocketChannel channel = server.accept();
+            if (channel != null) {
+                workers[accepted++] = new Connection(channel);
+                continue;
+            }
+            for (Process process : processes) {
+                if (!process.isAlive()) {
+                    throw new IOException("Worker process exited with code " + process.exitValue()
+                            + " before connecting.");
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Only " + accepted + " of " + count + " workers connected in time.");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for workers.", e);
+            }
+        }
+        return workers;
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public int getGridSize() {
+        return grid;
+    }
+
+    // Method to multiply A * B on the workers, keeping the blocks of C there unless gather is set
+    public Product multiply(CSRMatrix A, CSRMatrix B, boolean gather) throws IOException {
+        if (A.getCols() != B.getRows()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        long start = System.nanoTime();
+        int[] rowBounds = bounds(A.getRows(), grid);
+        int[] innerBounds = bounds(A.getCols(), grid);
+        int[] colBounds = bounds(B.getCols(), grid);
+        int id = nextId++;
+
+        // Distribute: each block row of A and of B is cut into its g blocks in one pass
+        CSRMatrix[][] aBlocks = new CSRMatrix[grid][];
+        CSRMatrix[][] bBlocks = new CSRMatrix[grid][];
+        for (int i = 0; i < grid; i++) {
+            aBlocks[i] = splitRowBlock(A, rowBounds[i], rowBounds[i + 1], innerBounds);
+            bBlocks[i] = splitRowBlock(B, innerBounds[i], innerBounds[i + 1], colBounds);
+        }
+        long[] sentBefore = bytesSent();
+        forEachWorker((rank, worker) -> {
+            worker.writeInt(MULTIPLY);
+            worker.writeInt(id);
+            worker.writeMatrix(aBlocks[rank / grid][rank % grid]);
+            worker.writeMatrix(bBlocks[rank / grid][rank % grid]);
+            worker.flush();
+        });
+        long distributed = System.nanoTime();
+        long distributeBytes = total(bytesSent()) - total(sentBefore);
+
+        // SUMMA rounds run on the workers; each reports its block size, traffic and round times
+        long[] blockNonZeros = new long[workers.length];
+        long[] broadcast = new long[workers.length];
+        long[][] wait = new long[workers.length][grid];
+        long[][] compute = new long[workers.length][grid];
+        forEachWorker((rank, worker) -> {
+            blockNonZeros[rank] = worker.readInt();
+            broadcast[rank] = worker.readLong();
+            worker.readLongs(wait[rank], 0, grid);
+            worker.readLongs(compute[rank], 0, grid);
+        });
+        long multiplied = System.nanoTime();
+
+        Product product = new Product(id, A.getRows(), B.getCols(), rowBounds, colBounds, blockNonZeros);
+        long[] receivedBefore = bytesReceived();
+        if (gather) {
+            product.matrix = gather(product);
+        }
+        long gathered = System.nanoTime();
+
+        long[] roundWait = new long[grid], roundCompute = new long[grid];
+        for (int rank = 0; rank < workers.length; rank++) {
+            for (int k = 0; k < grid; k++) {
+                roundWait[k] = Math.max(roundWait[k], wait[rank][k]);
+                roundCompute[k] = Math.max(roundCompute[k], compute[rank][k]);
+            }
+        }
+        product.stats = new Stats(workers.length, distributeBytes, distributed - start, total(broadcast),
+                roundWait, roundCompute, multiplied - distributed, total(bytesReceived()) - total(receivedBefore),
+                gathered - multiplied, gathered - start);
+        return product;
+    }
+
+    // Method to fetch the blocks of a product from the workers and assemble them into one CSR matrix
+    public CSRMatrix gather(Product product) throws IOException {
+        CSRMatrix[] blocks = new CSRMatrix[workers.length];
+        forEachWorker((rank, worker) -> {
+            worker.writeInt(GATHER);
+            worker.writeInt(product.id);
+            worker.flush();
+            blocks[rank] = worker.readMatrix();
+        });
+
+        // Blocks of a block row are laid side by side; their rows are sorted, so the rows of C are too
+        long nnz = product.getNonZeros();
+        if (nnz > Integer.MAX_VALUE - 8) {
+            throw new ArithmeticException("Product has too many non-zeros for CSR.");
+        }
+        int[] rowPointers = new int[product.rows + 1];
+        int[] columnIndices = new int[(int) nnz];
+        double[] values = new double[(int) nnz];
+        int count = 0;
+        for (int i = 0; i < grid; i++) {
+            for (int r = 0; r < product.rowBounds[i + 1] - product.rowBounds[i]; r++) {
+                for (int j = 0; j < grid; j++) {
+                    CSRMatrix block = blocks[i * grid + j];
+                    int[] pointers = block.getRowPointers();
+                    int[] indices = block.getColumnIndices();
+                    int offset = product.colBounds[j];
+                    for (int p = pointers[r]; p < pointers[r + 1]; p++) {
+                        columnIndices[count] = indices[p] + offset;
+                        values[count++] = block.getValues()[p];
+                    }
+                }
+                rowPointers[product.rowBounds[i] + r + 1] = count;
+            }
+        }
+        return new CSRMatrix(values, columnIndices, rowPointers, product.rows, product.cols);
+    }
+
+    // Method to drop the blocks of a product from the workers
+    public void release(Product product) throws IOException {
+        forEachWorker((rank, worker) -> {
+            worker.writeInt(RELEASE);
+            worker.writeInt(product.id);
+            worker.flush();
+        });
+    }
+
+    private interface WorkerTask {
+        void run(int rank, Connection worker) throws IOException;
+    }
+
+    // Runs the task against every worker concurrently, each on its own virtual thread
+    private void forEachWorker(WorkerTask task) throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int rank = 0; rank < workers.length; rank++) {
+            int r = rank;
+            futures.add(io.submit(() -> {
+                task.run(r, workers[r]);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while talking to the workers.", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Boundaries of g nearly equal parts of [0, n)
+    static int[] bounds(int n, int parts) {
+        int[] bounds = new int[parts + 1];
+        for (int t = 0; t <= parts; t++) {
+            bounds[t] = (int) ((long) n * t / parts);
+        }
+        return bounds;
+    }
+
+    // Rows [rowStart, rowEnd) of M cut at the column bounds into blocks with local indices
+    static CSRMatrix[] splitRowBlock(CSRMatrix M, int rowStart, int rowEnd, int[] colBounds) {
+        int parts = colBounds.length - 1;
+        int height = rowEnd - rowStart;
+        int[] pointers = M.getRowPointers(), indices = M.getColumnIndices();
+        double[] values = M.getValues();
+
+        int[][] rowPointers = new int[parts][height + 1];
+        for (int r = 0; r < height; r++) {
+            for (int p = pointers[rowStart + r]; p < pointers[rowStart + r + 1]; p++) {
+                rowPointers[part(colBounds, indices[p])][r + 1]++;
+            }
+        }
+        int[][] blockIndices = new int[parts][];
+        double[][] blockValues = new double[parts][];
+        for (int t = 0; t < parts; t++) {
+            for (int r = 0; r < height; r++) {
+                rowPointers[t][r + 1] += rowPointers[t][r];
+            }
+            blockIndices[t] = new int[rowPointers[t][height]];
+            blockValues[t] = new double[rowPointers[t][height]];
+        }
+        int[] next = new int[parts];
+        for (int r = 0; r < height; r++) {
+            for (int p = pointers[rowStart + r]; p < pointers[rowStart + r + 1]; p++) {
+                int t = part(colBounds, indices[p]);
+                blockIndices[t][next[t]] = indices[p] - colBounds[t];
+                blockValues[t][next[t]++] = values[p];
+            }
+        }
+
+        CSRMatrix[] blocks = new CSRMatrix[parts];
+        for (int t = 0; t < parts; t++) {
+            blocks[t] = new CSRMatrix(blockValues[t], blockIndices[t], rowPointers[t], height,
+                    colBounds[t + 1] - colBounds[t]);
+        }
+        return blocks;
+    }
+
+    // Part t with bounds[t] <= index < bounds[t + 1]
+    private static int part(int[] bounds, int index) {
+        int t = Arrays.binarySearch(bounds, index);
+        if (t < 0) {
+            return -t - 2;
+        }
+        // Empty parts repeat a bound; the entry belongs to the last part that starts there
+        while (t + 1 < bounds.length - 1 && bounds[t + 1] == index) {
+            t++;
+        }
+        return t;
+    }
+
+    private long[] bytesSent() {
+        long[] sent = new long[workers.length];
+        for (int w = 0; w < workers.length; w++) {
+            sent[w] = workers[w].getBytesSent();
+        }
+        return sent;
+    }
+
+    private long[] bytesReceived() {
+        long[] received = new long[workers.length];
+        for (int w = 0; w < workers.length; w++) {
+            received[w] = workers[w].getBytesReceived();
+        }
+        return received;
+    }
+
+    private static long total(long[] counts) {
+        return Arrays.stream(counts).sum();
+    }
+
+    // Stops the workers and waits for their processes to exit
+    @Override
+    public void close() throws IOException {
+        try {
+            forEachWorker((rank, worker) -> {
+                worker.writeInt(SHUTDOWN);
+                worker.flush();
+                worker.close();
+            });
+        } finally {
+            io.shutdown();
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        CSRMatrix A = SparseMatrixCSRMul.generateRandomCSR(n, n, 8, new Random(1));
+        CSRMatrix B = SparseMatrixCSRMul.generateRandomCSR(n, n, 8, new Random(2));
+
+        long start = System.nanoTime();
+        CSRMatrix local = A.multiply(B);
+        System.out.printf("Local multiply: %.1f ms, %d non-zeros%n", (System.nanoTime() - start) / 1e6,
+                local.getRowPointers()[n]);
+
+        try (DistributedSpGEMM cluster = launch(workerCount)) {
+            for (int run = 0; run < 3; run++) {
+                Product product = cluster.multiply(A, B, true);
+                CSRMatrix C = product.getMatrix();
+                double error = 0.0;
+                boolean sameStructure = Arrays.equals(C.getRowPointers(), local.getRowPointers())
+                        && Arrays.equals(C.getColumnIndices(), local.getColumnIndices());
+                for (int p = 0; sameStructure && p < C.getValues().length; p++) {
+                    error = Math.max(error, Math.abs(C.getValues()[p] - local.getValues()[p]));
+                }
+                System.out.println("Distributed multiply, same structure " + sameStructure
+                        + ", max difference " + error + ":");
+                System.out.println(product.getStats());
+                cluster.release(product);
+            }
+
+            // Keep C on the workers, fetch it later and feed it to a second product
+            Product kept = cluster.multiply(A, B, false);
+            System.out.println("Kept distributed: " + kept.getNonZeros() + " non-zeros in blocks of "
+                    + Arrays.toString(kept.getBlockNonZeros()));
+            long gatherStart = System.nanoTime();
+            CSRMatrix C = cluster.gather(kept);
+            System.out.printf("Gathered later in %.1f ms%n", (System.nanoTime() - gatherStart) / 1e6);
+            cluster.release(kept);
+            System.out.println(cluster.multiply(C, B, false).getStats());
+        }
+    }
+}
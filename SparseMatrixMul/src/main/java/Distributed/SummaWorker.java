@@ -0,0 +1,235 @@
+package Distributed;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// One process of the 2D grid of DistributedSpGEMM. Worker (i, j) holds the blocks A(i, j) and B(i, j) and
+// computes C(i, j) = sum over k of A(i, k) * B(k, j) in g SUMMA rounds: in round k, the workers of column k
+// broadcast their A block along their grid row and the workers of row k their B block along their grid column.
+//
+// Every worker keeps one socket to each peer of its row and column. Its own broadcasts are queued at once on a
+// sender thread in round order, so they go out while the worker is still receiving and multiplying earlier
+// rounds; a receiver always reads its panels in round order, A before B, which keeps the exchange free of
+// deadlock whatever the socket buffer sizes are.
+//
+// Started by DistributedSpGEMM.launch as: java -cp ... Distributed.SummaWorker <coordinator host> <port>
+public final class SummaWorker implements Closeable {
+    private final Connection coordinator;
+    private final int rank, grid, row, col;
+    private final Connection[] peers;                     // By rank; null for itself and workers off its row and column
+    private final Map<Integer, CSRMatrix> products = new HashMap<>();
+    private final ExecutorService sender;
+
+    private SummaWorker(Connection coordinator, int rank, int grid, Connection[] peers) {
+        this.coordinator = coordinator;
+        this.rank = rank;
+        this.grid = grid;
+        this.row = rank / grid;
+        this.col = rank % grid;
+        this.peers = peers;
+        this.sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "summa-sender-" + rank);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Method to join the coordinator at the given address: report the peer port, receive a rank and the ports
+    // of all workers, then connect to every peer of the same grid row or column
+    static SummaWorker join(InetSocketAddress address) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            Connection coordinator = Connection.connect(address);
+            coordinator.writeInt(((InetSocketAddress) server.getLocalAddress()).getPort());
+            coordinator.flush();
+
+            int rank = coordinator.readInt(), grid = coordinator.readInt();
+            int[] ports = new int[grid * grid];
+            coordinator.readInts(ports, 0, ports.length);
+
+            // The lower rank of every pair connects and introduces itself; the pending ones wait in the backlog
+            Connection[] peers = new Connection[grid * grid];
+            int lowerPeers = 0;
+            for (int other = 0; other < grid * grid; other++) {
+                if (other == rank || (other / grid != rank / grid && other % grid != rank % grid)) {
+                    continue;
+                }
+                if (other > rank) {
+                    peers[other] = Connection.connect(
+                            new InetSocketAddress(InetAddress.getLoopbackAddress(), ports[other]));
+                    peers[other].writeInt(rank);
+                    peers[other].flush();
+                } else {
+                    lowerPeers++;
+                }
+            }
+            for (int p = 0; p < lowerPeers; p++) {
+                Connection peer = new Connection(server.accept());
+                peers[peer.readInt()] = peer;
+            }
+
+            coordinator.writeInt(rank);
+            coordinator.flush();
+            return new SummaWorker(coordinator, rank, grid, peers);
+        }
+    }
+
+    // Method to answer the coordinator's commands until it sends SHUTDOWN
+    void serve() throws IOException {
+        while (true) {
+            int command = coordinator.readInt();
+            switch (command) {
+                case DistributedSpGEMM.MULTIPLY -> multiply();
+                case DistributedSpGEMM.GATHER -> {
+                    coordinator.writeMatrix(products.get(coordinator.readInt()));
+                    coordinator.flush();
+                }
+                case DistributedSpGEMM.RELEASE -> products.remove(coordinator.readInt());
+                case DistributedSpGEMM.SHUTDOWN -> {
+                    return;
+                }
+                default -> throw new IOException("Unknown command " + command + " from the coordinator.");
+            }
+        }
+    }
+
+    // Receives A(i, j) and B(i, j), runs the SUMMA rounds and reports the size of C(i, j) and the time every
+    // round spent waiting for panels and multiplying
+    private void multiply() throws IOException {
+        int id = coordinator.readInt();
+        CSRMatrix A = coordinator.readMatrix();
+        CSRMatrix B = coordinator.readMatrix();
+
+        long sentBefore = peerBytesSent();
+        List<Future<?>> sends = new ArrayList<>();
+        // A goes out in round col and B in round row; the earlier round first, A first on a tie
+        if (col <= row) {
+            sends.add(sender.submit(() -> broadcast(A, true)));
+        }
+        sends.add(sender.submit(() -> broadcast(B, false)));
+        if (col > row) {
+            sends.add(sender.submit(() -> broadcast(A, true)));
+        }
+
+        long[] waitNanos = new long[grid];
+        long[] computeNanos = new long[grid];
+        CSRMatrix C = null;
+        for (int k = 0; k < grid; k++) {
+            long start = System.nanoTime();
+            CSRMatrix left = col == k ? A : peers[row * grid + k].readMatrix();
+            CSRMatrix right = row == k ? B : peers[k * grid + col].readMatrix();
+            long received = System.nanoTime();
+            CSRMatrix part = left.multiply(right);
+            C = C == null ? part : add(C, part);
+            waitNanos[k] = received - start;
+            computeNanos[k] = System.nanoTime() - received;
+        }
+        for (Future<?> send : sends) {
+            try {
+                send.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Broadcast from worker " + rank + " failed.", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while broadcasting.", e);
+            }
+        }
+        products.put(id, C);
+
+        coordinator.writeInt(C.getRowPointers()[C.getRows()]);
+        coordinator.writeLong(peerBytesSent() - sentBefore);
+        coordinator.writeLongs(waitNanos, 0, grid);
+        coordinator.writeLongs(computeNanos, 0, grid);
+        coordinator.flush();
+    }
+
+    // Sends a block to every other worker of this row (A) or column (B)
+    private Void broadcast(CSRMatrix block, boolean alongRow) throws IOException {
+        for (int t = 0; t < grid; t++) {
+            int target = alongRow ? row * grid + t : t * grid + col;
+            if (target != rank) {
+                peers[target].writeMatrix(block);
+                peers[target].flush();
+            }
+        }
+        return null;
+    }
+
+    private long peerBytesSent() {
+        long sent = 0;
+        for (Connection peer : peers) {
+            if (peer != null) {
+                sent += peer.getBytesSent();
+            }
+        }
+        return sent;
+    }
+
+    // X + Y for matrices with sorted rows, by merging each pair of rows
+    static CSRMatrix add(CSRMatrix X, CSRMatrix Y) {
+        int rows = X.getRows();
+        int[] xPointers = X.getRowPointers(), yPointers = Y.getRowPointers();
+        int[] xIndices = X.getColumnIndices(), yIndices = Y.getColumnIndices();
+        double[] xValues = X.getValues(), yValues = Y.getValues();
+
+        int[] rowPointers = new int[rows + 1];
+        int[] columnIndices = new int[Math.addExact(xPointers[rows], yPointers[rows])];
+        double[] values = new double[columnIndices.length];
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            int p = xPointers[i], q = yPointers[i];
+            while (p < xPointers[i + 1] || q < yPointers[i + 1]) {
+                int x = p < xPointers[i + 1] ? xIndices[p] : Integer.MAX_VALUE;
+                int y = q < yPointers[i + 1] ? yIndices[q] : Integer.MAX_VALUE;
+                if (x < y) {
+                    columnIndices[count] = x;
+                    values[count++] = xValues[p++];
+                } else if (y < x) {
+                    columnIndices[count] = y;
+                    values[count++] = yValues[q++];
+                } else {
+                    columnIndices[count] = x;
+                    values[count++] = xValues[p++] + yValues[q++];
+                }
+            }
+            rowPointers[i + 1] = count;
+        }
+        return new CSRMatrix(Arrays.copyOf(values, count), Arrays.copyOf(columnIndices, count),
+                rowPointers, rows, X.getCols());
+    }
+
+    @Override
+    public void close() throws IOException {
+        sender.shutdownNow();
+        for (Connection peer : peers) {
+            if (peer != null) {
+                peer.close();
+            }
+        }
+        coordinator.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SummaWorker <coordinator host> <coordinator port>");
+            System.exit(2);
+        }
+        try (SummaWorker worker = join(new InetSocketAddress(args[0], Integer.parseInt(args[1])))) {
+            worker.serve();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package IO;
+
+import CSC.OffHeapCSCMatrix;
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.OffHeapCSRMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import OffHeap.SparseStorage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Versioned binary container for compressed sparse matrices (CSR or CSC).
+//
+// Layout, little-endian, every section starting on a 64-byte boundary:
+//   header   64 bytes  magic "SPMX", version, format, pointer width (8), rows, cols, nnz,
+//                      and the byte offsets of the three sections
+//   pointers (major + 1) x int64   row pointers (CSR) or column pointers (CSC)
+//   indices  nnz x int32           column indices (CSR) or row indices (CSC)
+//   values   nnz x float64
+//
+// Pointers are stored as 64-bit values so the same file can back matrices with more than 2^31
+// non-zeros. Because the sections are aligned and fixed-width, map() exposes them as memory
+// segments without parsing or copying; read*() copies them onto the heap in bulk.
+public class BinarySparseFormat {
+
+    public static final int MAGIC = 0x584D5053;        // "SPMX" in little-endian byte order
+    public static final int VERSION = 1;
+    public static final int FORMAT_CSR = 1;
+    public static final int FORMAT_CSC = 2;
+
+    static final int HEADER_BYTES = 64;
+    static final int ALIGNMENT = 64;
+
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Header field offsets
+    private static final long MAGIC_OFFSET = 0;
+    private static final long VERSION_OFFSET = 4;
+    private static final long FORMAT_OFFSET = 8;
+    private static final long POINTER_WIDTH_OFFSET = 12;
+    private static final long ROWS_OFFSET = 16;
+    private static final long COLS_OFFSET = 20;
+    private static final long NNZ_OFFSET = 24;
+    private static final long POINTERS_OFFSET = 32;
+    private static final long INDICES_OFFSET = 40;
+    private static final long VALUES_OFFSET = 48;
+
+    // A binary sparse file mapped into memory; the segments alias the page cache and stay valid
+    // until the arena passed to map() is closed
+    public static class MappedMatrix {
+        final int format;
+        final int rows, cols;
+        final long nnz;
+        final MemorySegment pointers;    // int64 per major index plus one
+        final MemorySegment indices;     // int32 per non-zero
+        final MemorySegment values;      // float64 per non-zero
+
+        MappedMatrix(int format, int rows, int cols, long nnz,
+                     MemorySegment pointers, MemorySegment indices, MemorySegment values) {
+            this.format = format;
+            this.rows = rows;
+            this.cols = cols;
+            this.nnz = nnz;
+            this.pointers = pointers;
+            this.indices = indices;
+            this.values = values;
+        }
+
+        public int getFormat() {
+            return format;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public long getNonZeros() {
+            return nnz;
+        }
+
+        public MemorySegment getPointers() {
+            return pointers;
+        }
+
+        public MemorySegment getIndices() {
+            return indices;
+        }
+
+        public MemorySegment getValues() {
+            return values;
+        }
+
+        // Copies the mapped sections onto the heap as a CSR matrix
+        public CSRMatrix toCSR() {
+            requireFormat(FORMAT_CSR);
+            return new CSRMatrix(copyValues(), copyIndices(), copyPointers(rows), rows, cols);
+        }
+
+        // Copies the mapped sections onto the heap as a CSC matrix
+        public CSCMatrix toCSC() {
+            requireFormat(FORMAT_CSC);
+            return new CSCMatrix(copyValues(), copyIndices(), copyPointers(cols), rows, cols);
+        }
+
+        private void requireFormat(int expected) {
+            if (format != expected) {
+                throw new IllegalStateException("Binary sparse file holds format " + format + ", expected " + expected);
+            }
+        }
+
+        private int[] copyPointers(int major) {
+            if (nnz > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Matrix has too many non-zeros for int-indexed storage: " + nnz);
+            }
+            int[] result = new int[major + 1];
+            for (int i = 0; i <= major; i++) {
+                result[i] = (int) pointers.getAtIndex(LONG, i);
+            }
+            return result;
+        }
+
+        private int[] copyIndices() {
+            int[] result = new int[(int) nnz];
+            MemorySegment.copy(indices, INT, 0, result, 0, result.length);
+            return result;
+        }
+
+        private double[] copyValues() {
+            double[] result = new double[(int) nnz];
+            MemorySegment.copy(values, DOUBLE, 0, result, 0, result.length);
+            return result;
+        }
+    }
+
+    // Method to write a CSR matrix to a binary sparse file
+    public static void write(CSRMatrix matrix, Path path) throws IOException {
+        write(path, FORMAT_CSR, matrix.getRows(), matrix.getCols(),
+                matrix.getRowPointers(), matrix.getColumnIndices(), matrix.getValues());
+    }
+
+    // Method to write a CSC matrix to a binary sparse file
+    public static void write(CSCMatrix matrix, Path path) throws IOException {
+        write(path, FORMAT_CSC, matrix.getRows(), matrix.getCols(),
+                matrix.getColPointers(), matrix.getRowIndices(), matrix.getValues());
+    }
+
+    // Method to write an off-heap CSR matrix; the sections are copied segment to segment
+    public static void write(OffHeapCSRMatrix matrix, Path path) throws IOException {
+        write(path, FORMAT_CSR, matrix.getRows(), matrix.getCols(), matrix.getStorage());
+    }
+
+    // Method to write an off-heap CSC matrix; the sections are copied segment to segment
+    public static void write(OffHeapCSCMatrix matrix, Path path) throws IOException {
+        write(path, FORMAT_CSC, matrix.getRows(), matrix.getCols(), matrix.getStorage());
+    }
+
+    private static void write(Path path, int format, int rows, int cols, SparseStorage storage) throws IOException {
+        long nnz = storage.getNonZeros();
+        long pointerBytes = 8L * (storage.getMajor() + 1);
+        long pointersOffset = HEADER_BYTES;
+        long indicesOffset = align(pointersOffset + pointerBytes);
+        long valuesOffset = align(indicesOffset + 4L * nnz);
+        long size = valuesOffset + 8L * nnz;
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+
+            writeHeader(file, format, rows, cols, nnz, pointersOffset, indicesOffset, valuesOffset);
+            MemorySegment.copy(storage.getPointers(), 0, file, pointersOffset, pointerBytes);
+            MemorySegment.copy(storage.getIndices(), 0, file, indicesOffset, 4L * nnz);
+            MemorySegment.copy(storage.getValues(), 0, file, valuesOffset, 8L * nnz);
+            file.force();
+        }
+    }
+
+    private static void write(Path path, int format, int rows, int cols,
+                              int[] pointers, int[] indices, double[] values) throws IOException {
+        long nnz = pointers[pointers.length - 1];
+        long pointersOffset = HEADER_BYTES;
+        long indicesOffset = align(pointersOffset + 8L * pointers.length);
+        long valuesOffset = align(indicesOffset + 4L * nnz);
+        long size = valuesOffset + 8L * nnz;
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+
+            writeHeader(file, format, rows, cols, nnz, pointersOffset, indicesOffset, valuesOffset);
+            for (int i = 0; i < pointers.length; i++) {
+                file.set(LONG, pointersOffset + 8L * i, pointers[i]);
+            }
+            MemorySegment.copy(indices, 0, file, INT, indicesOffset, (int) nnz);
+            MemorySegment.copy(values, 0, file, DOUBLE, valuesOffset, (int) nnz);
+            file.force();
+        }
+    }
+
+    static void writeHeader(MemorySegment file, int format, int rows, int cols, long nnz,
+                            long pointersOffset, long indicesOffset, long valuesOffset) {
+        file.set(INT, MAGIC_OFFSET, MAGIC);
+        file.set(INT, VERSION_OFFSET, VERSION);
+        file.set(INT, FORMAT_OFFSET, format);
+        file.set(INT, POINTER_WIDTH_OFFSET, 8);
+        file.set(INT, ROWS_OFFSET, rows);
+        file.set(INT, COLS_OFFSET, cols);
+        file.set(LONG, NNZ_OFFSET, nnz);
+        file.set(LONG, POINTERS_OFFSET, pointersOffset);
+        file.set(LONG, INDICES_OFFSET, indicesOffset);
+        file.set(LONG, VALUES_OFFSET, valuesOffset);
+    }
+
+    // Byte offset of the next section boundary at or after position
+    static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    // Method to map a binary sparse file read-only. Opening costs O(1) regardless of the matrix size;
+    // pages are loaded on first access and shared with the OS page cache.
+    public static MappedMatrix map(Path path, Arena arena) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("File too small for a binary sparse header: " + path);
+            }
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            if (file.get(INT, MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a binary sparse file: " + path);
+            }
+            int version = file.get(INT, VERSION_OFFSET);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary sparse file version " + version + ": " + path);
+            }
+            int format = file.get(INT, FORMAT_OFFSET);
+            if (format != FORMAT_CSR && format != FORMAT_CSC) {
+                throw new IOException("Unknown binary sparse format " + format + ": " + path);
+            }
+            if (file.get(INT, POINTER_WIDTH_OFFSET) != 8) {
+                throw new IOException("Unsupported pointer width in binary sparse file: " + path);
+            }
+
+            int rows = file.get(INT, ROWS_OFFSET);
+            int cols = file.get(INT, COLS_OFFSET);
+            long nnz = file.get(LONG, NNZ_OFFSET);
+            long pointersOffset = file.get(LONG, POINTERS_OFFSET);
+            long indicesOffset = file.get(LONG, INDICES_OFFSET);
+            long valuesOffset = file.get(LONG, VALUES_OFFSET);
+            long major = (format == FORMAT_CSR ? rows : cols) + 1L;
+
+            if (rows < 0 || cols < 0 || nnz < 0
+                    || pointersOffset + 8 * major > size || indicesOffset + 4 * nnz > size
+                    || valuesOffset + 8 * nnz > size) {
+                throw new IOException("Corrupt binary sparse header: " + path);
+            }
+
+            return new MappedMatrix(format, rows, cols, nnz,
+                    file.asSlice(pointersOffset, 8 * major),
+                    file.asSlice(indicesOffset, 4 * nnz),
+                    file.asSlice(valuesOffset, 8 * nnz));
+        }
+    }
+
+    // Method to read a binary CSR file onto the heap
+    public static CSRMatrix readCSR(Path path) throws IOException {
+        try (Arena arena = Arena.ofConfined()) {
+            return map(path, arena).toCSR();
+        }
+    }
+
+    // Method to read a binary CSC file onto the heap
+    public static CSCMatrix readCSC(Path path) throws IOException {
+        try (Arena arena = Arena.ofConfined()) {
+            return map(path, arena).toCSC();
+        }
+    }
+
+    // Method to convert a Matrix Market file into a binary sparse file of the given format
+    public static void convert(Path mtx, Path output, int format) throws IOException {
+        if (format == FORMAT_CSR) {
+            write(MatrixMarketReader.readCSR(mtx), output);
+        } else if (format == FORMAT_CSC) {
+            write(MatrixMarketReader.readCSC(mtx), output);
+        } else {
+            throw new IllegalArgumentException("Unknown binary sparse format: " + format);
+        }
+    }
+
+    // Converter: java IO.BinarySparseFormat <input.mtx> <output.spmx> [csr|csc]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: BinarySparseFormat <input.mtx> <output.spmx> [csr|csc]");
+            return;
+        }
+        int format = args.length > 2 && args[2].equalsIgnoreCase("csc") ? FORMAT_CSC : FORMAT_CSR;
+
+        long startTime = System.nanoTime();
+        convert(Path.of(args[0]), Path.of(args[1]), format);
+        long duration = (System.nanoTime() - startTime) / 1_000_000;
+        System.out.println("Converted " + args[0] + " to " + args[1] + " in " + duration + " ms");
+    }
+}
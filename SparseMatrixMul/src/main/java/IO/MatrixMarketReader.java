@@ -0,0 +1,465 @@
+package IO;
+
+import COO.CompressedSort;
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+// Reader for Matrix Market coordinate files (.mtx).
+// The file is memory-mapped and split into newline-aligned chunks that are parsed in parallel
+// straight from the mapped bytes, without creating a String per line or boxing entries.
+// Entries may appear in any order: CSR and CSC are built with a counting sort on the major index
+// followed by a per-row (per-column) sort of the minor index where needed.
+// Supports real, integer and pattern fields with general, symmetric and skew-symmetric storage.
+public class MatrixMarketReader {
+
+    enum Field {REAL, INTEGER, PATTERN}
+
+    enum Symmetry {GENERAL, SYMMETRIC, SKEW_SYMMETRIC}
+
+    private static final int MIN_CHUNK_BYTES = 1 << 20;   // Smallest file region worth a parallel task
+    private static final int MAX_FAST_DIGITS = 15;        // Decimal digits that always fit a double exactly
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Coordinate entries exactly as stored in the file, 0-based, before symmetric expansion
+    static class Entries {
+        int rows, cols;
+        Symmetry symmetry;
+        int[] rowIndices;
+        int[] colIndices;
+        double[] values;
+    }
+
+    // Method to read a Matrix Market file into CSR format on the common fork-join pool
+    public static CSRMatrix readCSR(Path path) throws IOException {
+        return readCSR(path, ForkJoinPool.commonPool());
+    }
+
+    public static CSRMatrix readCSR(Path path, ForkJoinPool pool) throws IOException {
+        Entries entries = readEntries(path, pool);
+        CompressedSort.Compressed csr = compress(entries.rows, entries.rowIndices, entries.colIndices, entries.values,
+                entries.symmetry, pool);
+        return new CSRMatrix(csr.values, csr.indices, csr.pointers, entries.rows, entries.cols);
+    }
+
+    // Method to read a Matrix Market file into CSC format on the common fork-join pool
+    public static CSCMatrix readCSC(Path path) throws IOException {
+        return readCSC(path, ForkJoinPool.commonPool());
+    }
+
+    public static CSCMatrix readCSC(Path path, ForkJoinPool pool) throws IOException {
+        Entries entries = readEntries(path, pool);
+        CompressedSort.Compressed csc = compress(entries.cols, entries.colIndices, entries.rowIndices, entries.values,
+                entries.symmetry, pool);
+        return new CSCMatrix(csc.values, csc.indices, csc.pointers, entries.rows, entries.cols);
+    }
+
+    // Maps the file and parses the banner, the size line and all coordinate entries
+    static Entries readEntries(Path path, ForkJoinPool pool) throws IOException {
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            long size = data.byteSize();
+
+            // Banner: %%MatrixMarket matrix coordinate <field> <symmetry>
+            long lineEnd = lineEnd(data, 0, size);
+            String[] banner = text(data, 0, lineEnd).trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (banner.length < 5 || !banner[0].equals("%%matrixmarket") || !banner[1].equals("matrix")) {
+                throw new IOException("Not a Matrix Market file: " + path);
+            }
+            if (!banner[2].equals("coordinate")) {
+                throw new IOException("Only coordinate Matrix Market files are supported, found " + banner[2]);
+            }
+            Field field = switch (banner[3]) {
+                case "real", "double" -> Field.REAL;
+                case "integer" -> Field.INTEGER;
+                case "pattern" -> Field.PATTERN;
+                default -> throw new IOException("Unsupported Matrix Market field: " + banner[3]);
+            };
+            Symmetry symmetry = switch (banner[4]) {
+                case "general" -> Symmetry.GENERAL;
+                case "symmetric" -> Symmetry.SYMMETRIC;
+                case "skew-symmetric" -> Symmetry.SKEW_SYMMETRIC;
+                default -> throw new IOException("Unsupported Matrix Market symmetry: " + banner[4]);
+            };
+
+            // Skip comments and blank lines up to the size line: rows cols entries
+            long position = lineEnd + 1;
+            String sizeLine = "";
+            int lineNumber = 1;
+            while (position < size) {
+                lineEnd = lineEnd(data, position, size);
+                sizeLine = text(data, position, lineEnd).trim();
+                position = lineEnd + 1;
+                lineNumber++;
+                if (!sizeLine.isEmpty() && !sizeLine.startsWith("%")) {
+                    break;
+                }
+            }
+            String[] dimensions = sizeLine.split("\\s+");
+            if (dimensions.length != 3) {
+                throw new IOException("Missing size line in Matrix Market file: " + path);
+            }
+
+            Entries entries = new Entries();
+            long declared;
+            try {
+                entries.rows = Integer.parseInt(dimensions[0]);
+                entries.cols = Integer.parseInt(dimensions[1]);
+                declared = Long.parseLong(dimensions[2]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid size line at line " + lineNumber + " of " + path + ": " + sizeLine);
+            }
+            if (entries.rows < 0 || entries.cols < 0 || declared < 0) {
+                throw new IOException("Negative size at line " + lineNumber + " of " + path + ": " + sizeLine);
+            }
+            if (declared > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too many entries for int-indexed storage: " + declared);
+            }
+            if (symmetry != Symmetry.GENERAL && entries.rows != entries.cols) {
+                throw new IOException("Symmetric Matrix Market file must be square: " + path);
+            }
+            entries.symmetry = symmetry;
+            entries.rowIndices = new int[(int) declared];
+            entries.colIndices = new int[(int) declared];
+            entries.values = new double[(int) declared];
+
+            parseEntries(data, Math.min(position, size), size, field, entries, pool);
+            return entries;
+        }
+    }
+
+    // Splits [start, end) into newline-aligned chunks, counts the entry lines of each chunk,
+    // then parses every chunk into its own slice of the entry arrays
+    private static void parseEntries(MemorySegment data, long start, long end, Field field,
+                                     Entries entries, ForkJoinPool pool) throws IOException {
+        int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, (end - start) / MIN_CHUNK_BYTES));
+        long[] boundaries = new long[chunks + 1];
+        boundaries[0] = start;
+        boundaries[chunks] = end;
+        for (int c = 1; c < chunks; c++) {
+            long nominal = Math.max(boundaries[c - 1], start + (end - start) * c / chunks);
+            boundaries[c] = Math.min(end, lineEnd(data, nominal, end) + 1);
+        }
+
+        // Pass 1: entry lines per chunk, turned into each chunk's first output slot
+        int[] offsets = new int[chunks + 1];
+        CompressedSort.forEach(pool, chunks, c -> offsets[c + 1] = countEntries(data, boundaries[c], boundaries[c + 1]));
+        for (int c = 0; c < chunks; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        if (offsets[chunks] != entries.values.length) {
+            throw new IOException("Matrix Market file declares " + entries.values.length
+                    + " entries but contains " + offsets[chunks]);
+        }
+
+        // Pass 2: parse numbers directly from the mapped bytes; the first bad line in the file is reported
+        ParseError[] errors = new ParseError[chunks];
+        CompressedSort.forEach(pool, chunks, c ->
+                errors[c] = parseChunk(data, boundaries[c], boundaries[c + 1], field, entries, offsets[c]));
+        for (ParseError error : errors) {
+            if (error != null) {
+                long lineStart = error.position;
+                throw new IOException(error.message + " at line " + lineNumber(data, lineStart) + ": "
+                        + text(data, lineStart, lineEnd(data, lineStart, end)).trim());
+            }
+        }
+    }
+
+    // A malformed entry line, by the position where it starts
+    private record ParseError(long position, String message) {
+    }
+
+    // 1-based number of the line starting at position; only used to report errors
+    private static long lineNumber(MemorySegment data, long position) {
+        long line = 1;
+        for (long p = 0; p < position; p++) {
+            if (byteAt(data, p) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private static int countEntries(MemorySegment data, long position, long end) {
+        int count = 0;
+        while (position < end) {
+            long lineEnd = lineEnd(data, position, end);
+            long first = skipBlanks(data, position, lineEnd);
+            if (first < lineEnd && byteAt(data, first) != '%') {
+                count++;
+            }
+            position = lineEnd + 1;
+        }
+        return count;
+    }
+
+    // Parses one chunk; returns the first malformed line instead of throwing so that workers never fail silently
+    private static ParseError parseChunk(MemorySegment data, long position, long end, Field field,
+                                         Entries entries, int slot) {
+        while (position < end) {
+            try {
+                slot = parseLine(data, position, end, field, entries, slot);
+            } catch (NumberFormatException | ArithmeticException e) {
+                return new ParseError(position, "Invalid number in Matrix Market entry");
+            } catch (IllegalArgumentException e) {
+                return new ParseError(position, e.getMessage());
+            }
+            position = lineEnd(data, position, end) + 1;
+        }
+        return null;
+    }
+
+    // Parses the line starting at position into the given slot and returns the next free slot
+    private static int parseLine(MemorySegment data, long position, long end, Field field,
+                                 Entries entries, int slot) {
+        long lineEnd = lineEnd(data, position, end);
+        long tokenStart = skipBlanks(data, position, lineEnd);
+        if (tokenStart >= lineEnd || byteAt(data, tokenStart) == '%') {
+            return slot;
+        }
+
+        long tokenEnd = tokenEnd(data, tokenStart, lineEnd);
+        long row = parseLong(data, tokenStart, tokenEnd) - 1;
+        tokenStart = skipBlanks(data, tokenEnd, lineEnd);
+        tokenEnd = tokenEnd(data, tokenStart, lineEnd);
+        long col = parseLong(data, tokenStart, tokenEnd) - 1;
+        if (row < 0 || row >= entries.rows || col < 0 || col >= entries.cols) {
+            throw new IllegalArgumentException("Matrix Market entry out of range");
+        }
+
+        double value = 1.0;
+        if (field != Field.PATTERN) {
+            tokenStart = skipBlanks(data, tokenEnd, lineEnd);
+            tokenEnd = tokenEnd(data, tokenStart, lineEnd);
+            if (tokenStart >= tokenEnd) {
+                throw new IllegalArgumentException("Missing value in Matrix Market entry");
+            }
+            value = field == Field.INTEGER
+                    ? parseLong(data, tokenStart, tokenEnd)
+                    : parseDouble(data, tokenStart, tokenEnd);
+        }
+
+        entries.rowIndices[slot] = (int) row;
+        entries.colIndices[slot] = (int) col;
+        entries.values[slot] = value;
+        return slot + 1;
+    }
+
+    // Counting sort of the entries by major index, parallel for general storage. Symmetric storage
+    // also emits the mirrored entry (negated for skew-symmetric). Minor indices are then sorted inside
+    // every major slice that is not already in order, which for the usual column-sorted files is none.
+    static CompressedSort.Compressed compress(int majorCount, int[] major, int[] minor, double[] values,
+                                              Symmetry symmetry, ForkJoinPool pool) {
+        if (symmetry == Symmetry.GENERAL) {
+            CompressedSort.Compressed compressed = CompressedSort.byMajor(majorCount, major, minor, values,
+                    major.length, pool);
+            CompressedSort.sortSlices(compressed.pointers, compressed.indices, compressed.values, pool);
+            return compressed;
+        }
+
+        // Symmetric storage: every off-diagonal entry lands in two slices
+        double mirrorSign = symmetry == Symmetry.SKEW_SYMMETRIC ? -1.0 : 1.0;
+
+        int[] pointers = new int[majorCount + 1];
+        for (int e = 0; e < major.length; e++) {
+            pointers[major[e] + 1]++;
+            if (major[e] != minor[e]) {
+                pointers[minor[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < majorCount; i++) {
+            pointers[i + 1] = Math.addExact(pointers[i + 1], pointers[i]);
+        }
+
+        int nnz = pointers[majorCount];
+        int[] indices = new int[nnz];
+        double[] sortedValues = new double[nnz];
+        int[] next = Arrays.copyOf(pointers, majorCount);
+        for (int e = 0; e < major.length; e++) {
+            int slot = next[major[e]]++;
+            indices[slot] = minor[e];
+            sortedValues[slot] = values[e];
+            if (major[e] != minor[e]) {
+                slot = next[minor[e]]++;
+                indices[slot] = major[e];
+                sortedValues[slot] = mirrorSign * values[e];
+            }
+        }
+
+        CompressedSort.sortSlices(pointers, indices, sortedValues, pool);
+
+        CompressedSort.Compressed compressed = new CompressedSort.Compressed();
+        compressed.pointers = pointers;
+        compressed.indices = indices;
+        compressed.values = sortedValues;
+        return compressed;
+    }
+
+    // ---- Byte-level scanning on the mapped file ----
+
+    private static byte byteAt(MemorySegment data, long position) {
+        return data.get(ValueLayout.JAVA_BYTE, position);
+    }
+
+    // Position of the '\n' ending the line that contains position, or end
+    private static long lineEnd(MemorySegment data, long position, long end) {
+        while (position < end && byteAt(data, position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static long skipBlanks(MemorySegment data, long position, long end) {
+        while (position < end && isBlank(byteAt(data, position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static long tokenEnd(MemorySegment data, long position, long end) {
+        while (position < end && !isBlank(byteAt(data, position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static String text(MemorySegment data, long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, start, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static long parseLong(MemorySegment data, long start, long end) {
+        long position = start;
+        boolean negative = false;
+        if (position < end && (byteAt(data, position) == '-' || byteAt(data, position) == '+')) {
+            negative = byteAt(data, position) == '-';
+            position++;
+        }
+        if (position >= end) {
+            throw new NumberFormatException("Invalid integer: " + text(data, start, end));
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = byteAt(data, position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid integer: " + text(data, start, end));
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), digit);
+        }
+        return negative ? -value : value;
+    }
+
+    // Parses decimal and scientific notation. Numbers with at most 15 significant digits and a
+    // decimal exponent within +-22 are exact in a long and in a power of ten, so a single
+    // multiplication or division gives the correctly rounded double. Anything else goes
+    // through Double.parseDouble.
+    static double parseDouble(MemorySegment data, long start, long end) {
+        long position = start;
+        boolean negative = false;
+        if (position < end && (byteAt(data, position) == '-' || byteAt(data, position) == '+')) {
+            negative = byteAt(data, position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        for (; position < end; position++) {
+            int digit = byteAt(data, position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (mantissa != 0 || digit != 0) {
+                significant++;
+            }
+            if (significant <= MAX_FAST_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+            }
+        }
+        if (significant > MAX_FAST_DIGITS) {
+            return Double.parseDouble(text(data, start, end));
+        }
+
+        if (position < end && byteAt(data, position) == '.') {
+            position++;
+            for (; position < end; position++) {
+                int digit = byteAt(data, position) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                anyDigit = true;
+                if (mantissa != 0 || digit != 0) {
+                    significant++;
+                }
+                mantissa = mantissa * 10 + digit;
+                exponent--;
+                if (significant > MAX_FAST_DIGITS) {
+                    return Double.parseDouble(text(data, start, end));
+                }
+            }
+        }
+
+        if (anyDigit && position < end && (byteAt(data, position) == 'e' || byteAt(data, position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (byteAt(data, position) == '-' || byteAt(data, position) == '+')) {
+                negativeExponent = byteAt(data, position) == '-';
+                position++;
+            }
+            int explicitExponent = 0;
+            boolean anyExponentDigit = false;
+            for (; position < end; position++) {
+                int digit = byteAt(data, position) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                anyExponentDigit = true;
+                explicitExponent = Math.min(explicitExponent * 10 + digit, 100_000);
+            }
+            if (!anyExponentDigit) {
+                return Double.parseDouble(text(data, start, end));
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        // Unexpected characters (inf, nan, hex floats, garbage) are left to the JDK parser
+        if (!anyDigit || position != end) {
+            return Double.parseDouble(text(data, start, end));
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.parseDouble(text(data, start, end));
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,145 @@
+package IO;
+
+import CSR.StreamingSpGEMM.RowBlock;
+import CSR.StreamingSpGEMM.RowBlockSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes a binary CSR file (see BinarySparseFormat) from row blocks that arrive in order, without ever holding
+// the whole matrix. The pointer section has a known size, so row pointers are written in place and column
+// indices are appended right after it; values are appended to a side file, because their section starts after
+// the indices and its offset is only known once nnz is. close() moves the values into place and writes the header.
+public class StreamingCSRWriter implements RowBlockSink, Closeable {
+    private final Path path, valuesPath;
+    private final FileChannel file, valuesFile;
+    private final int rows, cols;
+    private final long indicesOffset;
+
+    private int rowsWritten;
+    private long nnz;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+    private boolean closed;
+
+    public StreamingCSRWriter(Path path, int rows, int cols) throws IOException {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+        }
+        this.path = path;
+        this.valuesPath = path.resolveSibling(path.getFileName() + ".values");
+        this.rows = rows;
+        this.cols = cols;
+        this.indicesOffset = BinarySparseFormat.align(BinarySparseFormat.HEADER_BYTES + 8L * (rows + 1));
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.valuesFile = FileChannel.open(valuesPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        // Pointer of row 0
+        write(file, buffer(8).putLong(0), BinarySparseFormat.HEADER_BYTES);
+    }
+
+    // Method to append the next block of rows
+    @Override
+    public void accept(RowBlock block) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed.");
+        }
+        if (block.getFirstRow() != rowsWritten || block.getCols() != cols
+                || rowsWritten + block.getRowCount() > rows) {
+            throw new IllegalArgumentException("Block of rows " + block.getFirstRow() + ".."
+                    + (block.getFirstRow() + block.getRowCount()) + " does not continue a " + rows + " x " + cols
+                    + " matrix at row " + rowsWritten + ".");
+        }
+        int count = block.getRowCount();
+        int blockNnz = block.getNnz();
+        int[] pointers = block.getRowPointers();
+
+        ByteBuffer out = buffer(8L * count);
+        for (int r = 1; r <= count; r++) {
+            out.putLong(nnz + pointers[r]);
+        }
+        write(file, out, BinarySparseFormat.HEADER_BYTES + 8L * (rowsWritten + 1));
+
+        out = buffer(4L * blockNnz);
+        out.asIntBuffer().put(block.getColumnIndices(), 0, blockNnz);
+        out.position(4 * blockNnz);
+        write(file, out, indicesOffset + 4 * nnz);
+
+        out = buffer(8L * blockNnz);
+        out.asDoubleBuffer().put(block.getValues(), 0, blockNnz);
+        out.position(8 * blockNnz);
+        write(valuesFile, out, 8 * nnz);
+
+        rowsWritten += count;
+        nnz += blockNnz;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getNonZeros() {
+        return nnz;
+    }
+
+    // Method to finish the file: values are copied after the indices, then the header is written and the file
+    // forced to storage. Fails if fewer rows than declared were written.
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (file; valuesFile) {
+            if (rowsWritten != rows) {
+                throw new IllegalStateException("Only " + rowsWritten + " of " + rows + " rows were written to " + path);
+            }
+            long valuesOffset = BinarySparseFormat.align(indicesOffset + 4 * nnz);
+            long end = valuesOffset + 8 * nnz;
+            for (long copied = 0; copied < 8 * nnz; ) {
+                copied += valuesFile.transferTo(copied, 8 * nnz - copied, file.position(valuesOffset + copied));
+            }
+            if (file.size() < end) {
+                // No values: the alignment gap must still exist for the header offsets to be in range
+                write(file, buffer(1).put((byte) 0), end - 1);
+            }
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment header = file.map(FileChannel.MapMode.READ_WRITE, 0, BinarySparseFormat.HEADER_BYTES, arena);
+                BinarySparseFormat.writeHeader(header, BinarySparseFormat.FORMAT_CSR, rows, cols, nnz,
+                        BinarySparseFormat.HEADER_BYTES, indicesOffset, valuesOffset);
+            }
+            file.force(true);
+        } finally {
+            Files.deleteIfExists(valuesPath);
+        }
+    }
+
+    // Cleared little-endian buffer of at least the given size, reused between blocks
+    private ByteBuffer buffer(long bytes) {
+        if (bytes > buffer.capacity()) {
+            buffer = ByteBuffer.allocateDirect(Math.toIntExact(Math.max(bytes, 2L * buffer.capacity())))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return buffer.clear().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        data.flip();
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package OffHeap;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Off-heap compressed sparse storage shared by CSR (major = rows) and CSC (major = columns).
+// Pointers are 64-bit, so the number of non-zeros is only bounded by memory, and the arrays live in
+// MemorySegments owned by an Arena: they add nothing to the GC heap and are freed when the arena closes.
+// The byte layout matches the sections of IO.BinarySparseFormat, so a mapped file is usable as is.
+public class SparseStorage {
+
+    public static final ValueLayout.OfLong POINTER = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+    public static final ValueLayout.OfInt INDEX = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    public static final ValueLayout.OfDouble VALUE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ALIGNMENT = 64;
+
+    final int major, minor;           // Number of compressed slices and width of each slice
+    final long nnz;                   // Number of stored entries
+    final MemorySegment pointers;     // (major + 1) x int64
+    final MemorySegment indices;      // nnz x int32
+    final MemorySegment values;       // nnz x float64
+
+    public SparseStorage(int major, int minor, MemorySegment pointers, MemorySegment indices, MemorySegment values) {
+        if (pointers.byteSize() < 8L * (major + 1)) {
+            throw new IllegalArgumentException("Pointer segment too small for " + major + " slices.");
+        }
+        this.major = major;
+        this.minor = minor;
+        this.pointers = pointers;
+        this.nnz = pointers.getAtIndex(POINTER, major);
+        if (indices.byteSize() < 4 * nnz || values.byteSize() < 8 * nnz) {
+            throw new IllegalArgumentException("Index or value segment too small for " + nnz + " entries.");
+        }
+        this.indices = indices;
+        this.values = values;
+    }
+
+    // Method to copy heap compressed arrays into off-heap memory owned by the arena
+    public static SparseStorage copyOf(Arena arena, int major, int minor, int[] pointers, int[] indices, double[] values) {
+        int nnz = pointers[major];
+        MemorySegment pointerSegment = arena.allocate(8L * (major + 1), ALIGNMENT);
+        for (int i = 0; i <= major; i++) {
+            pointerSegment.setAtIndex(POINTER, i, pointers[i]);
+        }
+        MemorySegment indexSegment = arena.allocate(4L * nnz, ALIGNMENT);
+        MemorySegment.copy(indices, 0, indexSegment, INDEX, 0, nnz);
+        MemorySegment valueSegment = arena.allocate(8L * nnz, ALIGNMENT);
+        MemorySegment.copy(values, 0, valueSegment, VALUE, 0, nnz);
+        return new SparseStorage(major, minor, pointerSegment, indexSegment, valueSegment);
+    }
+
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    public long getNonZeros() {
+        return nnz;
+    }
+
+    public MemorySegment getPointers() {
+        return pointers;
+    }
+
+    public MemorySegment getIndices() {
+        return indices;
+    }
+
+    public MemorySegment getValues() {
+        return values;
+    }
+
+    public long pointer(int slice) {
+        return pointers.getAtIndex(POINTER, slice);
+    }
+
+    public int index(long entry) {
+        return indices.getAtIndex(INDEX, entry);
+    }
+
+    public double value(long entry) {
+        return values.getAtIndex(VALUE, entry);
+    }
+
+    // Heap copies of the three arrays; only possible while nnz fits an int
+    public int[] pointersToHeap() {
+        checkHeapSize();
+        int[] result = new int[major + 1];
+        for (int i = 0; i <= major; i++) {
+            result[i] = (int) pointer(i);
+        }
+        return result;
+    }
+
+    public int[] indicesToHeap() {
+        checkHeapSize();
+        int[] result = new int[(int) nnz];
+        MemorySegment.copy(indices, INDEX, 0, result, 0, result.length);
+        return result;
+    }
+
+    public double[] valuesToHeap() {
+        checkHeapSize();
+        double[] result = new double[(int) nnz];
+        MemorySegment.copy(values, VALUE, 0, result, 0, result.length);
+        return result;
+    }
+
+    private void checkHeapSize() {
+        if (nnz > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Matrix has too many non-zeros for heap arrays: " + nnz);
+        }
+    }
+
+    // Gustavson product of two compressed operands: slice i of the result combines the slices of
+    // `right` selected by slice i of this storage. Row-major view: (this * right) for CSR;
+    // for CSC pass the right-hand matrix as `this`. Output indices are sorted within every slice.
+    // The accumulator is the only heap allocation and is sized by the output width, not by nnz.
+    public SparseStorage multiply(SparseStorage right, Arena arena) {
+        if (this.minor != right.major) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        int width = right.minor;
+        int[] marker = new int[width];
+        double[] accumulator = new double[width];
+        int[] touched = new int[width];
+        int stamp = 0;
+
+        // Symbolic phase: exact entries per slice, stored as 64-bit pointers
+        MemorySegment resultPointers = arena.allocate(8L * (major + 1), ALIGNMENT);
+        long total = 0;
+        resultPointers.setAtIndex(POINTER, 0, 0);
+        for (int i = 0; i < major; i++) {
+            stamp = nextStamp(marker, stamp);
+            int count = 0;
+            for (long j = pointer(i); j < pointer(i + 1); j++) {
+                int inner = index(j);
+                for (long k = right.pointer(inner); k < right.pointer(inner + 1); k++) {
+                    int column = right.index(k);
+                    if (marker[column] != stamp) {
+                        marker[column] = stamp;
+                        count++;
+                    }
+                }
+            }
+            total += count;
+            resultPointers.setAtIndex(POINTER, i + 1, total);
+        }
+
+        // Numeric phase: each slice is sorted and written straight into its place off-heap
+        MemorySegment resultIndices = arena.allocate(4 * total, ALIGNMENT);
+        MemorySegment resultValues = arena.allocate(8 * total, ALIGNMENT);
+        for (int i = 0; i < major; i++) {
+            stamp = nextStamp(marker, stamp);
+            int count = 0;
+            for (long j = pointer(i); j < pointer(i + 1); j++) {
+                int inner = index(j);
+                double leftValue = value(j);
+                for (long k = right.pointer(inner); k < right.pointer(inner + 1); k++) {
+                    int column = right.index(k);
+                    if (marker[column] != stamp) {
+                        marker[column] = stamp;
+                        accumulator[column] = leftValue * right.value(k);
+                        touched[count++] = column;
+                    } else {
+                        accumulator[column] += leftValue * right.value(k);
+                    }
+                }
+            }
+            Arrays.sort(touched, 0, count);
+
+            long offset = resultPointers.getAtIndex(POINTER, i);
+            for (int p = 0; p < count; p++) {
+                resultIndices.setAtIndex(INDEX, offset + p, touched[p]);
+                resultValues.setAtIndex(VALUE, offset + p, accumulator[touched[p]]);
+            }
+        }
+
+        return new SparseStorage(major, width, resultPointers, resultIndices, resultValues);
+    }
+
+    private static int nextStamp(int[] marker, int stamp) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(marker, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    // y[i] = sum over slice i of value * x[index]: the CSR product A * x
+    public void gather(double[] x, double[] y) {
+        for (int i = 0; i < major; i++) {
+            double sum = 0.0;
+            for (long j = pointer(i); j < pointer(i + 1); j++) {
+                sum += value(j) * x[index(j)];
+            }
+            y[i] = sum;
+        }
+    }
+
+    // y[index] += value * x[i] over every slice i: the CSC product A * x (y is cleared first)
+    public void scatter(double[] x, double[] y) {
+        Arrays.fill(y, 0.0);
+        for (int i = 0; i < major; i++) {
+            double xValue = x[i];
+            if (xValue == 0.0) {
+                continue;
+            }
+            for (long j = pointer(i); j < pointer(i + 1); j++) {
+                y[index(j)] += value(j) * xValue;
+            }
+        }
+    }
+}
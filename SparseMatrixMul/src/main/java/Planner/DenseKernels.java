@@ -0,0 +1,76 @@
+package Planner;
+
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+// Dense and dense x sparse kernels used by the planner. All arrays are row-major.
+final class DenseKernels {
+    private static final int BLOCK = 64;   // Rows of B per tile; a 64 x 256 tile of B is 128 KB and stays in L2
+
+    private DenseKernels() {
+    }
+
+    // C = A * B for dense A (m x k) and B (k x n), blocked i-k-j so the inner loop streams rows of B and C.
+    // Four rows of C are updated per pass over a row of B, which the JIT turns into packed multiply-adds.
+    static double[] multiply(double[] a, double[] b, int m, int k, int n) {
+        double[] c = new double[Math.multiplyExact(m, n)];
+        for (int kk = 0; kk < k; kk += BLOCK) {
+            int kEnd = Math.min(kk + BLOCK, k);
+            for (int jj = 0; jj < n; jj += BLOCK * 4) {
+                int jEnd = Math.min(jj + BLOCK * 4, n);
+                int i = 0;
+                for (; i + 3 < m; i += 4) {
+                    int c0 = i * n, c1 = c0 + n, c2 = c1 + n, c3 = c2 + n;
+                    for (int p = kk; p < kEnd; p++) {
+                        double a0 = a[i * k + p];
+                        double a1 = a[(i + 1) * k + p];
+                        double a2 = a[(i + 2) * k + p];
+                        double a3 = a[(i + 3) * k + p];
+                        int bRow = p * n;
+                        for (int j = jj; j < jEnd; j++) {
+                            double bValue = b[bRow + j];
+                            c[c0 + j] += a0 * bValue;
+                            c[c1 + j] += a1 * bValue;
+                            c[c2 + j] += a2 * bValue;
+                            c[c3 + j] += a3 * bValue;
+                        }
+                    }
+                }
+                // Remaining rows when m is not a multiple of four
+                for (; i < m; i++) {
+                    int cRow = i * n;
+                    for (int p = kk; p < kEnd; p++) {
+                        double aValue = a[i * k + p];
+                        int bRow = p * n;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[cRow + j] += aValue * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+        return c;
+    }
+
+    // C = A * B for dense A (m x k) and sparse B in CSR: every non-zero a(i, p) scales row p of B into row i of C
+    static double[] multiply(double[] a, int m, CSRMatrix b) {
+        int k = b.getRows();
+        int n = b.getCols();
+        int[] rowPointers = b.getRowPointers();
+        int[] columnIndices = b.getColumnIndices();
+        double[] values = b.getValues();
+        double[] c = new double[Math.multiplyExact(m, n)];
+        for (int i = 0; i < m; i++) {
+            int cRow = i * n;
+            for (int p = 0; p < k; p++) {
+                double aValue = a[i * k + p];
+                if (aValue == 0.0) {
+                    continue;
+                }
+                for (int j = rowPointers[p]; j < rowPointers[p + 1]; j++) {
+                    c[cRow + columnIndices[j]] += aValue * values[j];
+                }
+            }
+        }
+        return c;
+    }
+}
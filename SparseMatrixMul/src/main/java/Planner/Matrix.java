@@ -0,0 +1,221 @@
+package Planner;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+// Matrix that can be held as dense row-major, CSR or CSC. The format it was created with is kept, and other
+// formats are produced on demand and cached, so the planner only pays for a conversion once and only when
+// the chosen kernel needs it.
+public class Matrix {
+
+    public enum Format { DENSE, CSR, CSC }
+
+    private final int rows, cols;
+    private double[] dense;       // Row-major values, rows * cols
+    private CSRMatrix csr;
+    private CSCMatrix csc;
+    private long nnz = -1;        // Stored non-zeros, measured lazily for dense input
+
+    private Matrix(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static Matrix of(CSRMatrix csr) {
+        Matrix m = new Matrix(csr.getRows(), csr.getCols());
+        m.csr = csr;
+        m.nnz = csr.getRowPointers()[csr.getRows()];
+        return m;
+    }
+
+    public static Matrix of(CSCMatrix csc) {
+        Matrix m = new Matrix(csc.getRows(), csc.getCols());
+        m.csc = csc;
+        m.nnz = csc.getColPointers()[csc.getCols()];
+        return m;
+    }
+
+    // Method to wrap a dense row-major array without copying it
+    public static Matrix dense(double[] values, int rows, int cols) {
+        if (values.length != (long) rows * cols) {
+            throw new IllegalArgumentException("Dense array does not match a " + rows + "x" + cols + " matrix.");
+        }
+        Matrix m = new Matrix(rows, cols);
+        m.dense = values;
+        return m;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getNnz() {
+        if (nnz < 0) {
+            long count = 0;
+            for (double v : dense) {
+                if (v != 0.0) {
+                    count++;
+                }
+            }
+            nnz = count;
+        }
+        return nnz;
+    }
+
+    public double density() {
+        long size = (long) rows * cols;
+        return size == 0 ? 0.0 : (double) getNnz() / size;
+    }
+
+    public boolean has(Format format) {
+        return switch (format) {
+            case DENSE -> dense != null;
+            case CSR -> csr != null;
+            case CSC -> csc != null;
+        };
+    }
+
+    // Format the matrix was created in (or the first one available)
+    public Format format() {
+        return csr != null ? Format.CSR : csc != null ? Format.CSC : Format.DENSE;
+    }
+
+    public CSRMatrix asCSR() {
+        if (csr == null) {
+            csr = csc != null ? csc.toCSR() : denseToCSR();
+        }
+        return csr;
+    }
+
+    public CSCMatrix asCSC() {
+        if (csc == null) {
+            csc = csr != null ? csr.toCSC() : asCSR().toCSC();
+        }
+        return csc;
+    }
+
+    public double[] asDense() {
+        if (dense == null) {
+            double[] values = new double[Math.multiplyExact(rows, cols)];
+            if (csr != null) {
+                int[] rowPointers = csr.getRowPointers();
+                int[] columnIndices = csr.getColumnIndices();
+                double[] csrValues = csr.getValues();
+                for (int i = 0; i < rows; i++) {
+                    for (int j = rowPointers[i]; j < rowPointers[i + 1]; j++) {
+                        values[i * cols + columnIndices[j]] += csrValues[j];
+                    }
+                }
+            } else {
+                int[] colPointers = csc.getColPointers();
+                int[] rowIndices = csc.getRowIndices();
+                double[] cscValues = csc.getValues();
+                for (int j = 0; j < cols; j++) {
+                    for (int p = colPointers[j]; p < colPointers[j + 1]; p++) {
+                        values[rowIndices[p] * cols + j] += cscValues[p];
+                    }
+                }
+            }
+            dense = values;
+        }
+        return dense;
+    }
+
+    // Number of stored non-zeros in every column, used for the exact flop count of A * B
+    int[] columnCounts() {
+        int[] counts = new int[cols];
+        if (csc != null) {
+            int[] colPointers = csc.getColPointers();
+            for (int j = 0; j < cols; j++) {
+                counts[j] = colPointers[j + 1] - colPointers[j];
+            }
+        } else if (csr != null) {
+            int[] columnIndices = csr.getColumnIndices();
+            int nonZeros = csr.getRowPointers()[rows];
+            for (int p = 0; p < nonZeros; p++) {
+                counts[columnIndices[p]]++;
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    if (dense[i * cols + j] != 0.0) {
+                        counts[j]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    // Number of stored non-zeros in every row
+    int[] rowCounts() {
+        int[] counts = new int[rows];
+        if (csr != null) {
+            int[] rowPointers = csr.getRowPointers();
+            for (int i = 0; i < rows; i++) {
+                counts[i] = rowPointers[i + 1] - rowPointers[i];
+            }
+        } else if (csc != null) {
+            int[] rowIndices = csc.getRowIndices();
+            int nonZeros = csc.getColPointers()[cols];
+            for (int p = 0; p < nonZeros; p++) {
+                counts[rowIndices[p]]++;
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    if (dense[i * cols + j] != 0.0) {
+                        counts[i]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    private CSRMatrix denseToCSR() {
+        int nonZeros = Math.toIntExact(getNnz());
+        double[] values = new double[nonZeros];
+        int[] columnIndices = new int[nonZeros];
+        int[] rowPointers = new int[rows + 1];
+        int k = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                double v = dense[i * cols + j];
+                if (v != 0.0) {
+                    values[k] = v;
+                    columnIndices[k] = j;
+                    k++;
+                }
+            }
+            rowPointers[i + 1] = k;
+        }
+        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols);
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + " " + format() + " nnz=" + getNnz()
+                + String.format(" (density %.4f)", density());
+    }
+
+    // Method to compare two matrices entry by entry within a relative tolerance
+    public boolean approxEquals(Matrix other, double tolerance) {
+        if (rows != other.rows || cols != other.cols) {
+            return false;
+        }
+        double[] a = asDense();
+        double[] b = other.asDense();
+        for (int i = 0; i < a.length; i++) {
+            double scale = Math.max(1.0, Math.max(Math.abs(a[i]), Math.abs(b[i])));
+            if (Math.abs(a[i] - b[i]) > tolerance * scale) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+package Planner;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import Planner.Matrix.Format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Cost-based planner for C = A * B. It measures the non-zeros of both inputs, computes the exact number of
+// multiply-adds of a sparse product (sum over k of nnz(A(:, k)) * nnz(B(k, :))), estimates the fill of C and
+// prices every kernel, including the format conversions each one needs. The cheapest plan is kept and can be
+// printed to see why it was chosen.
+public class MultiplyPlanner {
+
+    public enum Kernel {
+        DENSE_BLOCKED,        // Dense A x dense B, blocked i-k-j
+        CSR_GUSTAVSON,        // CSR A x CSR B, row-by-row accumulation
+        CSC_GUSTAVSON,        // CSC A x CSC B, column-by-column accumulation
+        SPARSE_X_DENSE,       // CSR A x dense B -> dense C
+        DENSE_X_SPARSE        // Dense A x CSR B -> dense C
+    }
+
+    // Cost of one operation in nanoseconds, measured on a single core with the JIT warmed up.
+    // Only the ratios matter for the choice; the absolute values make the reported estimate readable.
+    private static final double DENSE_FMA = 0.8;         // Multiply-add in the blocked dense kernel
+    private static final double STREAM_FMA = 0.9;        // Multiply-add streaming a dense row of B in SpMM
+    private static final double SCATTER_FMA = 2.0;       // Multiply-add scattering a sparse row of B into C
+    private static final double SPARSE_FMA = 6.0;        // Multiply-add through the accumulator, both phases
+    private static final double SPARSE_SORT = 6.0;       // One comparison sorting the column indices of C
+    private static final double SPARSE_MAJOR = 10.0;     // Per row (CSR) or column (CSC) overhead
+    private static final double DENSE_SCAN = 1.0;        // Testing one dense entry for zero
+    private static final double DENSE_ALLOCATE = 2.0;    // One entry of a fresh dense array, page faults included
+    private static final double CONVERT_NNZ = 4.0;       // Moving one non-zero between formats
+
+    private MultiplyPlanner() {
+    }
+
+    // Method to plan and run C = A * B in one step
+    public static Matrix multiply(Matrix A, Matrix B) {
+        return plan(A, B).execute();
+    }
+
+    // Method to price every kernel for A * B and return the cheapest plan
+    public static Plan plan(Matrix A, Matrix B) {
+        if (A.getCols() != B.getRows()) {
+            throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+        }
+        int m = A.getRows();
+        int k = A.getCols();
+        int n = B.getCols();
+
+        // Exact multiply-add count of any sparse product
+        int[] aColumnCounts = A.columnCounts();
+        int[] bRowCounts = B.rowCounts();
+        long flops = 0;
+        for (int p = 0; p < k; p++) {
+            flops += (long) aColumnCounts[p] * bRowCounts[p];
+        }
+
+        // Expected fill of C when the flops land uniformly on its m * n entries, never more than the flops
+        double outputSize = (double) m * n;
+        double estimatedNnz = outputSize == 0 ? 0 : Math.min(flops, outputSize * -Math.expm1(-flops / outputSize));
+
+        double nnzA = A.getNnz();
+        Map<Kernel, Double> costs = new EnumMap<>(Kernel.class);
+        costs.put(Kernel.DENSE_BLOCKED, conversionCost(A, Format.DENSE) + conversionCost(B, Format.DENSE)
+                + DENSE_FMA * m * (double) k * n + DENSE_ALLOCATE * outputSize);
+        // Every output row (CSR) or column (CSC) is sorted, so an entry of C costs about log2 of its row length
+        double sparseCost = SPARSE_FMA * flops
+                + SPARSE_SORT * estimatedNnz * log2(2 + estimatedNnz / Math.max(1, Math.min(m, n)));
+        costs.put(Kernel.CSR_GUSTAVSON, conversionCost(A, Format.CSR) + conversionCost(B, Format.CSR)
+                + sparseCost + SPARSE_MAJOR * m);
+        costs.put(Kernel.CSC_GUSTAVSON, conversionCost(A, Format.CSC) + conversionCost(B, Format.CSC)
+                + sparseCost + SPARSE_MAJOR * n);
+        costs.put(Kernel.SPARSE_X_DENSE, conversionCost(A, Format.CSR) + conversionCost(B, Format.DENSE)
+                + STREAM_FMA * nnzA * n + DENSE_ALLOCATE * outputSize);
+        costs.put(Kernel.DENSE_X_SPARSE, conversionCost(A, Format.DENSE) + conversionCost(B, Format.CSR)
+                + DENSE_SCAN * m * (double) k + SCATTER_FMA * flops + DENSE_ALLOCATE * outputSize);
+
+        // Ties go to the earlier kernel in declaration order
+        Kernel best = Kernel.DENSE_BLOCKED;
+        for (Map.Entry<Kernel, Double> entry : costs.entrySet()) {
+            if (entry.getValue() < costs.get(best)) {
+                best = entry.getKey();
+            }
+        }
+        return new Plan(A, B, best, flops, (long) estimatedNnz, costs);
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    // Cost of making the given format available for a matrix; zero when it already holds it
+    private static double conversionCost(Matrix matrix, Format target) {
+        if (matrix.has(target)) {
+            return 0.0;
+        }
+        double size = (double) matrix.getRows() * matrix.getCols();
+        double nnz = matrix.getNnz();
+        double majors = matrix.getRows() + matrix.getCols();
+        if (target == Format.DENSE) {
+            return DENSE_ALLOCATE * size + CONVERT_NNZ * nnz;
+        }
+        if (matrix.has(Format.CSR) || matrix.has(Format.CSC)) {
+            return CONVERT_NNZ * nnz + DENSE_SCAN * majors;
+        }
+        // Dense input: scan it into CSR, then transpose once more if CSC is wanted
+        double toCSR = DENSE_SCAN * size + CONVERT_NNZ * nnz;
+        return target == Format.CSR ? toCSR : toCSR + CONVERT_NNZ * nnz + DENSE_SCAN * majors;
+    }
+
+    // Chosen kernel for one product, with the estimates it was chosen on
+    public static class Plan {
+        private final Matrix A, B;
+        private final Kernel kernel;
+        private final long flops;
+        private final long estimatedNnz;
+        private final Map<Kernel, Double> costs;
+        private final List<String> conversions;
+
+        Plan(Matrix A, Matrix B, Kernel kernel, long flops, long estimatedNnz, Map<Kernel, Double> costs) {
+            this.A = A;
+            this.B = B;
+            this.kernel = kernel;
+            this.flops = flops;
+            this.estimatedNnz = estimatedNnz;
+            this.costs = costs;
+            this.conversions = conversionsFor(A, B, kernel);
+        }
+
+        public Kernel getKernel() {
+            return kernel;
+        }
+
+        public long getFlops() {
+            return flops;
+        }
+
+        public long getEstimatedNnz() {
+            return estimatedNnz;
+        }
+
+        public double getEstimatedCost(Kernel candidate) {
+            return costs.get(candidate);
+        }
+
+        // Conversions the chosen kernel needs, e.g. "B CSC->CSR", as seen when the plan was made
+        public List<String> getConversions() {
+            return conversions;
+        }
+
+        private static List<String> conversionsFor(Matrix A, Matrix B, Kernel kernel) {
+            List<String> conversions = new ArrayList<>();
+            Format[] inputs = switch (kernel) {
+                case DENSE_BLOCKED -> new Format[]{Format.DENSE, Format.DENSE};
+                case CSR_GUSTAVSON -> new Format[]{Format.CSR, Format.CSR};
+                case CSC_GUSTAVSON -> new Format[]{Format.CSC, Format.CSC};
+                case SPARSE_X_DENSE -> new Format[]{Format.CSR, Format.DENSE};
+                case DENSE_X_SPARSE -> new Format[]{Format.DENSE, Format.CSR};
+            };
+            if (!A.has(inputs[0])) {
+                conversions.add("A " + A.format() + "->" + inputs[0]);
+            }
+            if (!B.has(inputs[1])) {
+                conversions.add("B " + B.format() + "->" + inputs[1]);
+            }
+            return conversions;
+        }
+
+        // Method to run the chosen kernel, converting inputs first where the plan says so
+        public Matrix execute() {
+            int m = A.getRows();
+            int k = A.getCols();
+            int n = B.getCols();
+            return switch (kernel) {
+                case DENSE_BLOCKED -> Matrix.dense(DenseKernels.multiply(A.asDense(), B.asDense(), m, k, n), m, n);
+                case CSR_GUSTAVSON -> Matrix.of(A.asCSR().multiply(B.asCSR()));
+                case CSC_GUSTAVSON -> Matrix.of(A.asCSC().multiply(B.asCSC()));
+                case SPARSE_X_DENSE -> Matrix.dense(
+                        A.asCSR().multiply(B.asDense(), n, new double[Math.multiplyExact(m, n)]), m, n);
+                case DENSE_X_SPARSE -> Matrix.dense(DenseKernels.multiply(A.asDense(), m, B.asCSR()), m, n);
+            };
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(kernel);
+            sb.append(conversions.isEmpty() ? " (no conversions)" : " (convert " + String.join(", ", conversions) + ")");
+            sb.append(String.format("%n  A: %s%n  B: %s%n  flops=%d, estimated nnz(C)=%d%n  estimated cost:",
+                    A, B, flops, estimatedNnz));
+            for (Map.Entry<Kernel, Double> entry : costs.entrySet()) {
+                sb.append(String.format(" %s=%.3f ms", entry.getKey(), entry.getValue() / 1e6));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Method to generate a random CSR matrix where every entry is non-zero with the given probability
+    public static CSRMatrix generateRandomCSR(int rows, int cols, double density, long seed) {
+        Random random = new Random(seed);
+        int[] rowPointers = new int[rows + 1];
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) (rows * (double) cols * density * 1.1) + 16);
+        int[] columnIndices = new int[capacity];
+        double[] values = new double[capacity];
+        int nnz = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (random.nextDouble() < density) {
+                    if (nnz == values.length) {
+                        columnIndices = Arrays.copyOf(columnIndices, nnz * 2);
+                        values = Arrays.copyOf(values, nnz * 2);
+                    }
+                    columnIndices[nnz] = j;
+                    values[nnz] = random.nextDouble() * 10;
+                    nnz++;
+                }
+            }
+            rowPointers[i + 1] = nnz;
+        }
+        return new CSRMatrix(Arrays.copyOf(values, nnz), Arrays.copyOf(columnIndices, nnz),
+                rowPointers, rows, cols);
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        for (double density : new double[]{0.0005, 0.005, 0.05, 0.5}) {
+            Matrix A = Matrix.of(generateRandomCSR(size, size, density, 1));
+            Matrix B = Matrix.of(generateRandomCSR(size, size, density, 2).toCSC());
+            Plan plan = plan(A, B);
+            long start = System.nanoTime();
+            Matrix C = plan.execute();
+            double elapsed = (System.nanoTime() - start) / 1e6;
+            System.out.printf("density %.4f -> %s%n  result %s in %.3f ms%n%n", density, plan, C, elapsed);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Semiring;
+
+// Semiring over primitive doubles for MaskedSpGEMM: an additive monoid (add, zero) that combines the products of
+// a multiply. The product of the sparse kernels then computes C(i, j) = add over k of multiply(A(i, k), B(k, j)).
+//
+// Operations take and return primitives, so nothing is boxed. The two row loops below are what the kernel calls;
+// the built-in semirings are final classes that override them with a call to the shared loop, so the JIT
+// compiles a separate copy for each one with its add and multiply inlined. A custom semiring only implements
+// the three operations and runs the same loops through a virtual call per operation.
+public abstract class DoubleSemiring {
+
+    // Identity of add; the value of an empty sum
+    public abstract double zero();
+
+    public abstract double add(double x, double y);
+
+    public abstract double multiply(double x, double y);
+
+    // (+, x): ordinary matrix product
+    public static final DoubleSemiring PLUS_TIMES = new PlusTimes();
+
+    // (min, +): one relaxation step of all-pairs or single-source shortest paths
+    public static final DoubleSemiring MIN_PLUS = new MinPlus();
+
+    // (max, x): most reliable path when entries are probabilities
+    public static final DoubleSemiring MAX_TIMES = new MaxTimes();
+
+    // Adds a * B(k, from:to) into the accumulator of one output row, see scatterLoop
+    int scatter(double a, int[] indices, double[] values, int from, int to, double[] accumulator,
+                int[] state, int open, int probe, boolean admit, int[] list, int count) {
+        return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+    }
+
+    // Sparse dot product of two sorted index ranges; writes it to out[slot] and returns false if they do not meet
+    boolean dot(int[] leftIndices, double[] leftValues, int leftFrom, int leftTo,
+                int[] rightIndices, double[] rightValues, int rightFrom, int rightTo, double[] out, int slot) {
+        return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                out, slot);
+    }
+
+    // Entries whose state is open already hold a partial sum. Any other entry is admitted when (state == probe)
+    // equals admit: a mask marks its allowed entries with probe and admits them, a complemented mask marks its
+    // excluded entries with probe and admits the rest.
+    final int scatterLoop(double a, int[] indices, double[] values, int from, int to, double[] accumulator,
+                          int[] state, int open, int probe, boolean admit, int[] list, int count) {
+        for (int q = from; q < to; q++) {
+            int j = indices[q];
+            int s = state[j];
+            if (s == open) {
+                accumulator[j] = add(accumulator[j], multiply(a, values[q]));
+            } else if ((s == probe) == admit) {
+                state[j] = open;
+                accumulator[j] = multiply(a, values[q]);
+                list[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    final boolean dotLoop(int[] leftIndices, double[] leftValues, int leftFrom, int leftTo,
+                          int[] rightIndices, double[] rightValues, int rightFrom, int rightTo, double[] out, int slot) {
+        int p = leftFrom, q = rightFrom;
+        boolean found = false;
+        double sum = zero();
+        while (p < leftTo && q < rightTo) {
+            int left = leftIndices[p], right = rightIndices[q];
+            if (left < right) {
+                p++;
+            } else if (left > right) {
+                q++;
+            } else {
+                double product = multiply(leftValues[p++], rightValues[q++]);
+                sum = found ? add(sum, product) : product;
+                found = true;
+            }
+        }
+        if (found) {
+            out[slot] = sum;
+        }
+        return found;
+    }
+
+    private static final class PlusTimes extends DoubleSemiring {
+        public double zero() { return 0.0; }
+        public double add(double x, double y) { return x + y; }
+        public double multiply(double x, double y) { return x * y; }
+
+        @Override
+        int scatter(double a, int[] indices, double[] values, int from, int to, double[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, double[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, double[] rightValues, int rightFrom, int rightTo, double[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+
+    private static final class MinPlus extends DoubleSemiring {
+        public double zero() { return Double.POSITIVE_INFINITY; }
+        public double add(double x, double y) { return Math.min(x, y); }
+        public double multiply(double x, double y) { return x + y; }
+
+        @Override
+        int scatter(double a, int[] indices, double[] values, int from, int to, double[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, double[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, double[] rightValues, int rightFrom, int rightTo, double[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+
+    private static final class MaxTimes extends DoubleSemiring {
+        public double zero() { return Double.NEGATIVE_INFINITY; }
+        public double add(double x, double y) { return Math.max(x, y); }
+        public double multiply(double x, double y) { return x * y; }
+
+        @Override
+        int scatter(double a, int[] indices, double[] values, int from, int to, double[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, double[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, double[] rightValues, int rightFrom, int rightTo, double[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package Semiring;
+
+// Semiring over primitive longs for MaskedSpGEMM, the counting and graph counterpart of DoubleSemiring: path and
+// triangle counts stay exact past 2^53, and boolean reachability is just 0/1. Built-ins are specialized the same
+// way, by final subclasses overriding the row loops.
+public abstract class LongSemiring {
+
+    // Identity of add; the value of an empty sum
+    public abstract long zero();
+
+    public abstract long add(long x, long y);
+
+    public abstract long multiply(long x, long y);
+
+    // (+, x): ordinary integer matrix product, e.g. walk counts
+    public static final LongSemiring PLUS_TIMES = new PlusTimes();
+
+    // (min, +) on integer weights: shortest paths without rounding
+    public static final LongSemiring MIN_PLUS = new MinPlus();
+
+    // (+, pair): pair(x, y) = 1, so C(i, j) counts the common k of A(i, :) and B(:, j); triangle counting
+    public static final LongSemiring PLUS_PAIR = new PlusPair();
+
+    // (any, pair): 1 wherever some path exists, the first one found wins; BFS frontier expansion
+    public static final LongSemiring ANY_PAIR = new AnyPair();
+
+    // (or, and) on 0/1 values: boolean reachability that also respects stored zeros
+    public static final LongSemiring LOR_LAND = new LorLand();
+
+    // Adds a * B(k, from:to) into the accumulator, see DoubleSemiring.scatter
+    int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                int[] state, int open, int probe, boolean admit, int[] list, int count) {
+        return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+    }
+
+    // Sparse dot product of two sorted index ranges; writes it to out[slot] and returns false if they do not meet
+    boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+        return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                out, slot);
+    }
+
+    final int scatterLoop(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                          int[] state, int open, int probe, boolean admit, int[] list, int count) {
+        for (int q = from; q < to; q++) {
+            int j = indices[q];
+            int s = state[j];
+            if (s == open) {
+                accumulator[j] = add(accumulator[j], multiply(a, values[q]));
+            } else if ((s == probe) == admit) {
+                state[j] = open;
+                accumulator[j] = multiply(a, values[q]);
+                list[count++] = j;
+            }
+        }
+        return count;
+    }
+
+    final boolean dotLoop(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                          int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+        int p = leftFrom, q = rightFrom;
+        boolean found = false;
+        long sum = zero();
+        while (p < leftTo && q < rightTo) {
+            int left = leftIndices[p], right = rightIndices[q];
+            if (left < right) {
+                p++;
+            } else if (left > right) {
+                q++;
+            } else {
+                long product = multiply(leftValues[p++], rightValues[q++]);
+                sum = found ? add(sum, product) : product;
+                found = true;
+            }
+        }
+        if (found) {
+            out[slot] = sum;
+        }
+        return found;
+    }
+
+    private static final class PlusTimes extends LongSemiring {
+        public long zero() { return 0L; }
+        public long add(long x, long y) { return x + y; }
+        public long multiply(long x, long y) { return x * y; }
+
+        @Override
+        int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+
+    private static final class MinPlus extends LongSemiring {
+        public long zero() { return Long.MAX_VALUE; }
+        public long add(long x, long y) { return Math.min(x, y); }
+        public long multiply(long x, long y) { return x + y; }
+
+        @Override
+        int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+
+    private static final class PlusPair extends LongSemiring {
+        public long zero() { return 0L; }
+        public long add(long x, long y) { return x + y; }
+        public long multiply(long x, long y) { return 1L; }
+
+        @Override
+        int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+
+    private static final class AnyPair extends LongSemiring {
+        public long zero() { return 0L; }
+        public long add(long x, long y) { return x; }
+        public long multiply(long x, long y) { return 1L; }
+
+        @Override
+        int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        // Any common index settles the entry, so the merge stops at the first one
+        @Override
+        boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+            int p = leftFrom, q = rightFrom;
+            while (p < leftTo && q < rightTo) {
+                int left = leftIndices[p], right = rightIndices[q];
+                if (left < right) {
+                    p++;
+                } else if (left > right) {
+                    q++;
+                } else {
+                    out[slot] = 1L;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class LorLand extends LongSemiring {
+        public long zero() { return 0L; }
+        public long add(long x, long y) { return x | y; }
+        public long multiply(long x, long y) { return (x != 0 && y != 0) ? 1L : 0L; }
+
+        @Override
+        int scatter(long a, int[] indices, long[] values, int from, int to, long[] accumulator,
+                    int[] state, int open, int probe, boolean admit, int[] list, int count) {
+            return scatterLoop(a, indices, values, from, to, accumulator, state, open, probe, admit, list, count);
+        }
+
+        @Override
+        boolean dot(int[] leftIndices, long[] leftValues, int leftFrom, int leftTo,
+                    int[] rightIndices, long[] rightValues, int rightFrom, int rightTo, long[] out, int slot) {
+            return dotLoop(leftIndices, leftValues, leftFrom, leftTo, rightIndices, rightValues, rightFrom, rightTo,
+                    out, slot);
+        }
+    }
+}
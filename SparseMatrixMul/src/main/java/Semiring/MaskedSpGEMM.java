@@ -0,0 +1,580 @@
+package Semiring;
+
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Masked sparse product over a semiring, as in GraphBLAS: C<M> = A * B computes only the entries whose position
+// is stored in the mask M (structural mask, its values are ignored), or with a complemented mask only those that
+// are not. Triangle counting (A * A masked by A), BFS (frontier * A masked by the unvisited vertices) and
+// shortest-path relaxations (min-plus) all need a small part of the full product.
+//
+// Each row picks one of two methods. Gustavson scatters the rows of B into a dense accumulator, but positions
+// outside the mask are rejected before any add is done. When the mask row is short compared to that work, and A
+// has sorted rows, the row is computed instead as one sparse dot product of A(i, :) with B(:, j) per mask entry,
+// over a CSC copy of B built on first use. Complemented masks always use Gustavson.
+public final class MaskedSpGEMM {
+
+    private MaskedSpGEMM() {
+    }
+
+    // Row counts of the two methods and the work they take, against the unmasked product
+    public static class Stats {
+        public final int gustavsonRows, dotRows;
+        public final long unmaskedFlops;    // Multiplies of the full product
+        public final long maskedWork;       // Scattered entries plus merge steps of the chosen methods
+
+        Stats(int gustavsonRows, int dotRows, long unmaskedFlops, long maskedWork) {
+            this.gustavsonRows = gustavsonRows;
+            this.dotRows = dotRows;
+            this.unmaskedFlops = unmaskedFlops;
+            this.maskedWork = maskedWork;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d Gustavson rows, %d dot rows, work %d of %d unmasked flops (%.1f%%)",
+                    gustavsonRows, dotRows, maskedWork, unmaskedFlops,
+                    unmaskedFlops == 0 ? 0.0 : 100.0 * maskedWork / unmaskedFlops);
+        }
+    }
+
+    // Product with long values, for counts and 0/1 reachability
+    public static class LongMatrix {
+        final int rows, cols;
+        final int[] rowPointers;
+        final int[] columnIndices;
+        final long[] values;
+        final boolean sortedIndices;
+
+        LongMatrix(int rows, int cols, int[] rowPointers, int[] columnIndices, long[] values, boolean sortedIndices) {
+            this.rows = rows;
+            this.cols = cols;
+            this.rowPointers = rowPointers;
+            this.columnIndices = columnIndices;
+            this.values = values;
+            this.sortedIndices = sortedIndices;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+
+        public int[] getRowPointers() {
+            return rowPointers;
+        }
+
+        public int[] getColumnIndices() {
+            return columnIndices;
+        }
+
+        public long[] getValues() {
+            return values;
+        }
+
+        public boolean hasSortedIndices() {
+            return sortedIndices;
+        }
+
+        // Sum of all stored values
+        public long sum() {
+            long sum = 0;
+            for (int p = 0; p < rowPointers[rows]; p++) {
+                sum += values[p];
+            }
+            return sum;
+        }
+
+        // Method to convert to a double CSR matrix sharing the structure arrays
+        public CSRMatrix toCSR() {
+            double[] converted = new double[rowPointers[rows]];
+            for (int p = 0; p < converted.length; p++) {
+                converted[p] = values[p];
+            }
+            return new CSRMatrix(converted, columnIndices, rowPointers, rows, cols);
+        }
+    }
+
+    // Method to compute C<M> = A * B over a double semiring; complement selects the positions outside M
+    public static CSRMatrix multiply(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement,
+                                     DoubleSemiring semiring) {
+        DoubleProduct product = new DoubleProduct(A, B, mask, complement, semiring);
+        product.run();
+        return new CSRMatrix(Arrays.copyOf(product.outValues, product.count),
+                Arrays.copyOf(product.outColumns, product.count), product.outPointers,
+                A.getRows(), B.getCols());
+    }
+
+    // Method to compute A * B over a double semiring without a mask
+    public static CSRMatrix multiply(CSRMatrix A, CSRMatrix B, DoubleSemiring semiring) {
+        return multiply(A, B, null, false, semiring);
+    }
+
+    // Method to compute C<M> = A * B over a long semiring; the values of A and B are truncated to longs
+    public static LongMatrix multiply(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement,
+                                      LongSemiring semiring) {
+        LongProduct product = new LongProduct(A, B, mask, complement, semiring);
+        product.run();
+        return new LongMatrix(A.getRows(), B.getCols(), product.outPointers,
+                Arrays.copyOf(product.outColumns, product.count), Arrays.copyOf(product.outValues, product.count),
+                product.sortedOutput());
+    }
+
+    // Method to compute A * B over a long semiring without a mask
+    public static LongMatrix multiply(CSRMatrix A, CSRMatrix B, LongSemiring semiring) {
+        return multiply(A, B, null, false, semiring);
+    }
+
+    // Method to count the triangles of an undirected graph given by its symmetric adjacency matrix: with L the
+    // strictly lower triangle, every triangle k < j < i is counted once by sum(L * L masked by L)
+    public static long countTriangles(CSRMatrix A) {
+        CSRMatrix L = lowerTriangle(A);
+        return multiply(L, L, L, false, LongSemiring.PLUS_PAIR).sum();
+    }
+
+    // Method to report how C<M> = A * B would be computed, without computing it
+    public static Stats analyze(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement) {
+        Product plan = new DoubleProduct(A, B, mask, complement, DoubleSemiring.PLUS_TIMES);
+        int dotRows = 0;
+        long unmasked = 0, work = 0;
+        for (int i = 0; i < plan.rows; i++) {
+            long flops = plan.rowFlops(i);
+            long dotCost = plan.dotCost(i);
+            unmasked += flops;
+            if (dotCost < flops) {
+                dotRows++;
+                work += dotCost;
+            } else {
+                work += flops;
+            }
+        }
+        return new Stats(plan.rows - dotRows, dotRows, unmasked, work);
+    }
+
+    // Strictly lower triangle of A, rows kept in their order
+    static CSRMatrix lowerTriangle(CSRMatrix A) {
+        int[] pointers = A.getRowPointers(), indices = A.getColumnIndices();
+        double[] values = A.getValues();
+        int[] rowPointers = new int[A.getRows() + 1];
+        for (int i = 0; i < A.getRows(); i++) {
+            int count = 0;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                if (indices[p] < i) {
+                    count++;
+                }
+            }
+            rowPointers[i + 1] = rowPointers[i] + count;
+        }
+        int[] columnIndices = new int[rowPointers[A.getRows()]];
+        double[] lowerValues = new double[columnIndices.length];
+        int slot = 0;
+        for (int i = 0; i < A.getRows(); i++) {
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                if (indices[p] < i) {
+                    columnIndices[slot] = indices[p];
+                    lowerValues[slot++] = values[p];
+                }
+            }
+        }
+        return new CSRMatrix(lowerValues, columnIndices, rowPointers, A.getRows(), A.getCols());
+    }
+
+    // Row-by-row masked product. The structure (masks, method choice, output layout) lives here; subclasses hold
+    // the typed values and the semiring, and each of their hooks runs a whole row loop of the semiring.
+    //
+    // The accumulator state of every column is a tag. Row i owns two fresh tags: probe, stamped on the mask
+    // columns before the row starts, and open, stamped on the columns that hold a partial sum. Tags of earlier
+    // rows are simply stale, so the state is never cleared. A column outside the open set is admitted when
+    // (state == probe) == admit, with admit true for a mask and false for a complemented mask or no mask.
+    private abstract static class Product {
+        final int rows, cols;
+        final int[] aPointers, aIndices;
+        final int[] bPointers, bIndices;
+        final int[] maskPointers, maskIndices;       // Null without a mask
+        final boolean complement;
+        final boolean dotAllowed;                    // Sorted A rows and a plain mask
+        final int[] columnCounts;                    // Non-zeros of every column of B, when dot is allowed
+        CSCMatrix transposed;                        // B by columns, built on first use
+
+        final int[] state;
+        final int[] list;
+        int tag;
+
+        int[] outPointers;
+        int[] outColumns;
+        int count;
+
+        Product(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement) {
+            if (A.getCols() != B.getRows()) {
+                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
+            }
+            if (mask != null && (mask.getRows() != A.getRows() || mask.getCols() != B.getCols())) {
+                throw new IllegalArgumentException("Mask dimensions do not match the product.");
+            }
+            this.rows = A.getRows();
+            this.cols = B.getCols();
+            this.aPointers = A.getRowPointers();
+            this.aIndices = A.getColumnIndices();
+            this.bPointers = B.getRowPointers();
+            this.bIndices = B.getColumnIndices();
+            this.maskPointers = mask == null ? null : mask.getRowPointers();
+            this.maskIndices = mask == null ? null : mask.getColumnIndices();
+            this.complement = mask != null && complement;
+            this.dotAllowed = mask != null && !complement && A.hasSortedIndices();
+            this.state = new int[cols];
+            this.list = new int[cols];
+            if (dotAllowed) {
+                columnCounts = new int[cols];
+                for (int p = 0; p < bPointers[B.getRows()]; p++) {
+                    columnCounts[bIndices[p]]++;
+                }
+            } else {
+                columnCounts = null;
+            }
+        }
+
+        // Multiplies of row i in the Gustavson method
+        final long rowFlops(int i) {
+            long flops = 0;
+            for (int p = aPointers[i]; p < aPointers[i + 1]; p++) {
+                int k = aIndices[p];
+                flops += bPointers[k + 1] - bPointers[k];
+            }
+            return flops;
+        }
+
+        // Merge steps of row i in the dot method, at most the two lengths summed per mask entry
+        final long dotCost(int i) {
+            if (!dotAllowed) {
+                return Long.MAX_VALUE;
+            }
+            long length = aPointers[i + 1] - aPointers[i];
+            long cost = 0;
+            for (int p = maskPointers[i]; p < maskPointers[i + 1]; p++) {
+                cost += length + columnCounts[maskIndices[p]];
+            }
+            return cost;
+        }
+
+        // Output rows come out in mask order for a mask and sorted otherwise
+        final boolean sortedOutput() {
+            if (maskIndices == null || complement) {
+                return true;
+            }
+            for (int i = 0; i < rows; i++) {
+                for (int p = maskPointers[i] + 1; p < maskPointers[i + 1]; p++) {
+                    if (maskIndices[p] <= maskIndices[p - 1]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        final void run() {
+            outPointers = new int[rows + 1];
+            outColumns = new int[16];
+            growValues(16);
+            for (int i = 0; i < rows; i++) {
+                long flops = rowFlops(i);
+                boolean masked = maskIndices != null && !complement;
+                if (masked && dotCost(i) < flops) {
+                    ensureCapacity(maskPointers[i + 1] - maskPointers[i]);
+                    dotRow(i);
+                } else {
+                    long bound = Math.min(flops, cols);
+                    if (masked) {
+                        bound = Math.min(bound, maskPointers[i + 1] - maskPointers[i]);
+                    }
+                    ensureCapacity((int) bound);
+                    gustavsonRow(i);
+                }
+                outPointers[i + 1] = count;
+            }
+        }
+
+        private void dotRow(int i) {
+            if (transposed == null) {
+                transposed = toCSC();
+            }
+            int[] colPointers = transposed.getColPointers();
+            int from = aPointers[i], to = aPointers[i + 1];
+            for (int p = maskPointers[i]; p < maskPointers[i + 1]; p++) {
+                int j = maskIndices[p];
+                if (dot(from, to, colPointers[j], colPointers[j + 1], count)) {
+                    outColumns[count++] = j;
+                }
+            }
+        }
+
+        private void gustavsonRow(int i) {
+            if (tag > Integer.MAX_VALUE - 2) {
+                Arrays.fill(state, 0);
+                tag = 0;
+            }
+            int probe = ++tag, open = ++tag;
+            boolean admit = maskIndices != null && !complement;
+            if (maskIndices != null) {
+                for (int p = maskPointers[i]; p < maskPointers[i + 1]; p++) {
+                    state[maskIndices[p]] = probe;
+                }
+            }
+
+            int found = 0;
+            for (int p = aPointers[i]; p < aPointers[i + 1]; p++) {
+                int k = aIndices[p];
+                found = scatter(p, bPointers[k], bPointers[k + 1], open, probe, admit, found);
+            }
+
+            if (admit) {
+                // Emit in mask order, which costs the mask row instead of a sort
+                for (int p = maskPointers[i]; p < maskPointers[i + 1] && found > 0; p++) {
+                    int j = maskIndices[p];
+                    if (state[j] == open) {
+                        state[j] = probe;
+                        gather(j, count);
+                        outColumns[count++] = j;
+                        found--;
+                    }
+                }
+            } else {
+                Arrays.sort(list, 0, found);
+                for (int t = 0; t < found; t++) {
+                    gather(list[t], count);
+                    outColumns[count++] = list[t];
+                }
+            }
+        }
+
+        private void ensureCapacity(int rowBound) {
+            long needed = (long) count + rowBound;
+            if (needed > outColumns.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * outColumns.length));
+                if (needed > capacity) {
+                    throw new ArithmeticException("Product has too many non-zeros for CSR.");
+                }
+                outColumns = Arrays.copyOf(outColumns, capacity);
+                growValues(capacity);
+            }
+        }
+
+        abstract CSCMatrix toCSC();
+
+        abstract void growValues(int capacity);
+
+        // Scatters A(i, k) at aSlot times B(k, from:to) into the accumulator; returns the new list length
+        abstract int scatter(int aSlot, int from, int to, int open, int probe, boolean admit, int listLength);
+
+        // Copies the accumulated value of column j to output slot
+        abstract void gather(int column, int slot);
+
+        // Dot product of A(i, aFrom:aTo) with B(:, j) stored at bFrom:bTo of the CSC copy, into output slot
+        abstract boolean dot(int aFrom, int aTo, int bFrom, int bTo, int slot);
+    }
+
+    private static final class DoubleProduct extends Product {
+        final DoubleSemiring semiring;
+        final CSRMatrix B;
+        final double[] aValues, bValues;
+        final double[] accumulator;
+        double[] outValues;
+
+        DoubleProduct(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement, DoubleSemiring semiring) {
+            super(A, B, mask, complement);
+            this.semiring = semiring;
+            this.B = B;
+            this.aValues = A.getValues();
+            this.bValues = B.getValues();
+            this.accumulator = new double[cols];
+        }
+
+        CSCMatrix toCSC() {
+            return B.toCSC();
+        }
+
+        void growValues(int capacity) {
+            outValues = outValues == null ? new double[capacity] : Arrays.copyOf(outValues, capacity);
+        }
+
+        int scatter(int aSlot, int from, int to, int open, int probe, boolean admit, int listLength) {
+            return semiring.scatter(aValues[aSlot], bIndices, bValues, from, to, accumulator,
+                    state, open, probe, admit, list, listLength);
+        }
+
+        void gather(int column, int slot) {
+            outValues[slot] = accumulator[column];
+        }
+
+        boolean dot(int aFrom, int aTo, int bFrom, int bTo, int slot) {
+            return semiring.dot(aIndices, aValues, aFrom, aTo, transposed.getRowIndices(), transposed.getValues(),
+                    bFrom, bTo, outValues, slot);
+        }
+    }
+
+    private static final class LongProduct extends Product {
+        final LongSemiring semiring;
+        final CSRMatrix B;
+        final long[] aValues, bValues;
+        final long[] accumulator;
+        long[] columnValues;                          // Values of the CSC copy of B
+        long[] outValues;
+
+        LongProduct(CSRMatrix A, CSRMatrix B, CSRMatrix mask, boolean complement, LongSemiring semiring) {
+            super(A, B, mask, complement);
+            this.semiring = semiring;
+            this.B = B;
+            this.aValues = toLongs(A.getValues(), A.getRowPointers()[A.getRows()]);
+            this.bValues = A == B ? aValues : toLongs(B.getValues(), B.getRowPointers()[B.getRows()]);
+            this.accumulator = new long[cols];
+        }
+
+        private static long[] toLongs(double[] values, int length) {
+            long[] converted = new long[length];
+            for (int p = 0; p < length; p++) {
+                converted[p] = (long) values[p];
+            }
+            return converted;
+        }
+
+        CSCMatrix toCSC() {
+            CSCMatrix csc = B.toCSC();
+            columnValues = toLongs(csc.getValues(), csc.getValues().length);
+            return csc;
+        }
+
+        void growValues(int capacity) {
+            outValues = outValues == null ? new long[capacity] : Arrays.copyOf(outValues, capacity);
+        }
+
+        int scatter(int aSlot, int from, int to, int open, int probe, boolean admit, int listLength) {
+            return semiring.scatter(aValues[aSlot], bIndices, bValues, from, to, accumulator,
+                    state, open, probe, admit, list, listLength);
+        }
+
+        void gather(int column, int slot) {
+            outValues[slot] = accumulator[column];
+        }
+
+        boolean dot(int aFrom, int aTo, int bFrom, int bTo, int slot) {
+            return semiring.dot(aIndices, aValues, aFrom, aTo, transposed.getRowIndices(), columnValues,
+                    bFrom, bTo, outValues, slot);
+        }
+    }
+
+    // Random symmetric graph with the given average degree, no self loops
+    static CSRMatrix randomGraph(int vertices, int degree, long seed) {
+        Random random = new Random(seed);
+        long[] edges = new long[(int) ((long) vertices * degree)];
+        int count = 0;
+        for (int e = 0; e < (long) vertices * degree / 2; e++) {
+            int u = random.nextInt(vertices), v = random.nextInt(vertices);
+            if (u != v) {
+                edges[count++] = ((long) u << 32) | v;
+                edges[count++] = ((long) v << 32) | u;
+            }
+        }
+        Arrays.sort(edges, 0, count);
+        int[] rowPointers = new int[vertices + 1];
+        int[] columnIndices = new int[count];
+        int nnz = 0;
+        for (int e = 0; e < count; e++) {
+            if (e > 0 && edges[e] == edges[e - 1]) {
+                continue;
+            }
+            rowPointers[(int) (edges[e] >>> 32) + 1]++;
+            columnIndices[nnz++] = (int) edges[e];
+        }
+        for (int i = 0; i < vertices; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+        double[] values = new double[nnz];
+        Arrays.fill(values, 1.0);
+        return new CSRMatrix(values, Arrays.copyOf(columnIndices, nnz), rowPointers, vertices, vertices);
+    }
+
+    public static void main(String[] args) {
+        int vertices = 200_000;
+        CSRMatrix A = randomGraph(vertices, 16, 42);
+        CSRMatrix L = lowerTriangle(A);
+        System.out.println("Graph: " + vertices + " vertices, " + A.getRowPointers()[vertices] / 2 + " edges");
+        System.out.println("L * L masked by L: " + analyze(L, L, L, false));
+
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            long triangles = countTriangles(A);
+            long masked = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CSRMatrix full = L.multiply(L);
+            double unmaskedTriangles = 0;
+            int[] pointers = full.getRowPointers(), indices = full.getColumnIndices();
+            int[] lPointers = L.getRowPointers(), lIndices = L.getColumnIndices();
+            double[] values = full.getValues();
+            for (int i = 0; i < vertices; i++) {
+                // Both rows are sorted, so the mask is applied by a merge
+                int p = pointers[i], q = lPointers[i];
+                while (p < pointers[i + 1] && q < lPointers[i + 1]) {
+                    if (indices[p] < lIndices[q]) {
+                        p++;
+                    } else if (indices[p] > lIndices[q]) {
+                        q++;
+                    } else {
+                        unmaskedTriangles += values[p++];
+                        q++;
+                    }
+                }
+            }
+            long unmasked = System.nanoTime() - start;
+            System.out.printf("Triangles: %d masked in %.1f ms, %.0f via full product in %.1f ms%n",
+                    triangles, masked / 1e6, unmaskedTriangles, unmasked / 1e6);
+        }
+
+        // One min-plus relaxation from the distances of paths of at most two edges, kept where no edge exists
+        long start = System.nanoTime();
+        CSRMatrix twoHops = multiply(A, A, A, true, DoubleSemiring.MIN_PLUS);
+        System.out.printf("Min-plus A * A outside A: %d entries in %.1f ms%n",
+                twoHops.getRowPointers()[vertices], (System.nanoTime() - start) / 1e6);
+
+        // BFS from vertex 0: the next frontier is frontier * A restricted to the vertices not visited yet
+        boolean[] visited = new boolean[vertices];
+        visited[0] = true;
+        int[] frontier = {0};
+        int levels = 0;
+        long reached = 1;
+        start = System.nanoTime();
+        while (true) {
+            int[] seen = new int[(int) reached];
+            for (int v = 0, slot = 0; v < vertices; v++) {
+                if (visited[v]) {
+                    seen[slot++] = v;
+                }
+            }
+            LongMatrix next = multiply(rowVector(frontier, vertices), A, rowVector(seen, vertices), true,
+                    LongSemiring.ANY_PAIR);
+            frontier = Arrays.copyOf(next.getColumnIndices(), next.getRowPointers()[1]);
+            if (frontier.length == 0) {
+                break;
+            }
+            for (int v : frontier) {
+                visited[v] = true;
+            }
+            reached += frontier.length;
+            levels++;
+        }
+        System.out.printf("BFS: %d vertices reached in %d levels, %.1f ms%n", reached, levels,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    // Single-row matrix with ones at the given sorted columns
+    private static CSRMatrix rowVector(int[] columns, int cols) {
+        double[] ones = new double[columns.length];
+        Arrays.fill(ones, 1.0);
+        return new CSRMatrix(ones, columns, new int[]{0, columns.length}, 1, cols);
+    }
+}
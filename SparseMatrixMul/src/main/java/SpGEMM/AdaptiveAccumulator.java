@@ -0,0 +1,65 @@
+package SpGEMM;
+
+// Picks an accumulator per output row from that row's upper-bound flop count.
+// Heavy rows go to a dense SPA, short rows to a k-way heap merge (when the left row has few
+// entries and the right operand is sorted) or to a small open-addressing hash table.
+public class AdaptiveAccumulator implements RowAccumulator {
+    private static final int HEAP_MAX_WAYS = 8;       // Longest left row merged through the heap
+    private static final int HASH_MAX_FLOPS = 4096;   // Largest row kept in the hash table
+    private static final int DENSE_WIDTH_RATIO = 16;  // Rows with flops >= width / ratio use the dense SPA
+
+    private final int width;
+    private final boolean rightSorted;
+    private final long denseThreshold;
+
+    private SparseAccumulator dense;                  // Created on the first heavy row
+    private final HashAccumulator hash = new HashAccumulator();
+    private final HeapAccumulator heap = new HeapAccumulator();
+
+    // rightSorted tells whether every row of the right operand has ascending indices
+    public AdaptiveAccumulator(int width, boolean rightSorted) {
+        this.width = width;
+        this.rightSorted = rightSorted;
+        this.denseThreshold = Math.min(HASH_MAX_FLOPS, Math.max(1, width / DENSE_WIDTH_RATIO));
+    }
+
+    // Upper bound on the number of multiply-adds (and output entries) of one row
+    public static long rowFlops(int[] leftPointers, int[] leftIndices, int row, int[] rightPointers) {
+        long flops = 0;
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            flops += rightPointers[inner + 1] - rightPointers[inner];
+        }
+        return flops;
+    }
+
+    private RowAccumulator select(int[] leftPointers, int[] leftIndices, int row, int[] rightPointers) {
+        long flops = rowFlops(leftPointers, leftIndices, row, rightPointers);
+        if (flops >= denseThreshold) {
+            if (dense == null) {
+                dense = new SparseAccumulator(width);
+            }
+            return dense;
+        }
+        if (rightSorted && leftPointers[row + 1] - leftPointers[row] <= HEAP_MAX_WAYS) {
+            return heap;
+        }
+        return hash;
+    }
+
+    @Override
+    public int symbolic(int[] leftPointers, int[] leftIndices, int row,
+                        int[] rightPointers, int[] rightIndices) {
+        return select(leftPointers, leftIndices, row, rightPointers)
+                .symbolic(leftPointers, leftIndices, row, rightPointers, rightIndices);
+    }
+
+    @Override
+    public int numeric(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                       int[] rightPointers, int[] rightIndices, double[] rightValues,
+                       int[] outIndices, double[] outValues, int offset, boolean sorted) {
+        return select(leftPointers, leftIndices, row, rightPointers)
+                .numeric(leftPointers, leftIndices, leftValues, row, rightPointers, rightIndices, rightValues,
+                        outIndices, outValues, offset, sorted);
+    }
+}
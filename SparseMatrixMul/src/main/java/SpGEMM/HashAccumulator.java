@@ -0,0 +1,120 @@
+package SpGEMM;
+
+import java.util.Arrays;
+
+// Open-addressing hash accumulator for short output rows.
+// The table is sized to twice the row's flop bound, so clearing and probing stay proportional
+// to the row's work and independent of the output width.
+class HashAccumulator implements RowAccumulator {
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY = -1;
+
+    private int[] keys = new int[MIN_CAPACITY];      // Output index stored in each slot, EMPTY if unused
+    private double[] sums = new double[MIN_CAPACITY]; // Partial sum stored in each slot
+    private int mask;                                // Capacity of the active part of the table minus one
+
+    // Prepare an empty table large enough for `flops` insertions
+    private void reset(long flops) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * flops) {
+            capacity <<= 1;
+        }
+        if (keys.length < capacity) {
+            keys = new int[capacity];
+            sums = new double[capacity];
+        }
+        Arrays.fill(keys, 0, capacity, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int slot(int index) {
+        int h = index * 0x9E3779B1;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Insert index with value; returns true when the index was not yet in the table
+    private boolean add(int index, double value) {
+        int s = slot(index);
+        while (true) {
+            int key = keys[s];
+            if (key == index) {
+                sums[s] += value;
+                return false;
+            }
+            if (key == EMPTY) {
+                keys[s] = index;
+                sums[s] = value;
+                return true;
+            }
+            s = (s + 1) & mask;
+        }
+    }
+
+    private boolean mark(int index) {
+        int s = slot(index);
+        while (true) {
+            int key = keys[s];
+            if (key == index) {
+                return false;
+            }
+            if (key == EMPTY) {
+                keys[s] = index;
+                return true;
+            }
+            s = (s + 1) & mask;
+        }
+    }
+
+    private double get(int index) {
+        int s = slot(index);
+        while (keys[s] != index) {
+            s = (s + 1) & mask;
+        }
+        return sums[s];
+    }
+
+    @Override
+    public int symbolic(int[] leftPointers, int[] leftIndices, int row,
+                        int[] rightPointers, int[] rightIndices) {
+        reset(AdaptiveAccumulator.rowFlops(leftPointers, leftIndices, row, rightPointers));
+        int nonZeroCount = 0;
+
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            for (int k = rightPointers[inner]; k < rightPointers[inner + 1]; k++) {
+                if (mark(rightIndices[k])) {
+                    nonZeroCount++;
+                }
+            }
+        }
+        return nonZeroCount;
+    }
+
+    @Override
+    public int numeric(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                       int[] rightPointers, int[] rightIndices, double[] rightValues,
+                       int[] outIndices, double[] outValues, int offset, boolean sorted) {
+        reset(AdaptiveAccumulator.rowFlops(leftPointers, leftIndices, row, rightPointers));
+        int position = offset;
+
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            double leftValue = leftValues[j];
+            for (int k = rightPointers[inner]; k < rightPointers[inner + 1]; k++) {
+                int index = rightIndices[k];
+                if (add(index, leftValue * rightValues[k])) {
+                    outIndices[position++] = index;
+                }
+            }
+        }
+
+        if (sorted) {
+            Arrays.sort(outIndices, offset, position);
+        }
+
+        for (int p = offset; p < position; p++) {
+            outValues[p] = get(outIndices[p]);
+        }
+        return position - offset;
+    }
+}
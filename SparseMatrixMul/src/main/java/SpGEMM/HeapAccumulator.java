@@ -0,0 +1,120 @@
+package SpGEMM;
+
+// k-way heap merge accumulator for rows whose left operand row has only a few entries.
+// Each entry of the left row opens a cursor on the matching right row; cursors are merged by
+// index through a binary min-heap, so the output comes out sorted without any scratch of the
+// output width. Requires the right operand's rows to have ascending indices.
+class HeapAccumulator implements RowAccumulator {
+    private int[] heap = new int[8];            // Cursor ids ordered by their current index
+    private int[] position = new int[8];        // Current position of each cursor in the right operand
+    private int[] end = new int[8];             // End position of each cursor
+    private double[] scale = new double[8];     // Left value that scales each cursor
+    private int size;
+
+    private int[] rightIndices;                 // Right operand indices of the row being merged
+
+    // Open one cursor per non-empty right row selected by the left row
+    private void open(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                      int[] rightPointers, int[] rightIndices) {
+        int ways = leftPointers[row + 1] - leftPointers[row];
+        if (heap.length < ways) {
+            heap = new int[ways];
+            position = new int[ways];
+            end = new int[ways];
+            scale = new double[ways];
+        }
+        this.rightIndices = rightIndices;
+
+        size = 0;
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            if (rightPointers[inner] < rightPointers[inner + 1]) {
+                position[size] = rightPointers[inner];
+                end[size] = rightPointers[inner + 1];
+                scale[size] = leftValues == null ? 0.0 : leftValues[j];
+                heap[size] = size;
+                size++;
+            }
+        }
+        for (int h = size / 2 - 1; h >= 0; h--) {
+            siftDown(h);
+        }
+    }
+
+    private int key(int cursor) {
+        return rightIndices[position[cursor]];
+    }
+
+    private void siftDown(int h) {
+        int cursor = heap[h];
+        int cursorKey = key(cursor);
+        while (true) {
+            int child = 2 * h + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && key(heap[child + 1]) < key(heap[child])) {
+                child++;
+            }
+            if (key(heap[child]) >= cursorKey) {
+                break;
+            }
+            heap[h] = heap[child];
+            h = child;
+        }
+        heap[h] = cursor;
+    }
+
+    // Move the top cursor forward, dropping it when its row is exhausted
+    private void advanceTop() {
+        int cursor = heap[0];
+        if (++position[cursor] == end[cursor]) {
+            heap[0] = heap[--size];
+        }
+        if (size > 0) {
+            siftDown(0);
+        }
+    }
+
+    @Override
+    public int symbolic(int[] leftPointers, int[] leftIndices, int row,
+                        int[] rightPointers, int[] rightIndices) {
+        open(leftPointers, leftIndices, null, row, rightPointers, rightIndices);
+        int nonZeroCount = 0;
+        int lastIndex = -1;
+
+        while (size > 0) {
+            int index = key(heap[0]);
+            if (index != lastIndex) {
+                lastIndex = index;
+                nonZeroCount++;
+            }
+            advanceTop();
+        }
+        return nonZeroCount;
+    }
+
+    @Override
+    public int numeric(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                       int[] rightPointers, int[] rightIndices, double[] rightValues,
+                       int[] outIndices, double[] outValues, int offset, boolean sorted) {
+        open(leftPointers, leftIndices, leftValues, row, rightPointers, rightIndices);
+        int position = offset - 1;
+        int lastIndex = -1;
+
+        while (size > 0) {
+            int cursor = heap[0];
+            int index = key(cursor);
+            double product = scale[cursor] * rightValues[this.position[cursor]];
+            if (index != lastIndex) {
+                lastIndex = index;
+                outIndices[++position] = index;
+                outValues[position] = product;
+            } else {
+                outValues[position] += product;
+            }
+            advanceTop();
+        }
+        return position + 1 - offset;
+    }
+}
@@ -0,0 +1,16 @@
+package SpGEMM;
+
+// Accumulates one output row of a sparse product given in compressed form (pointers, indices, values).
+// Row `row` of the left operand selects rows of the right operand, which are scaled and summed.
+public interface RowAccumulator {
+
+    // Symbolic phase: number of distinct output indices of the row
+    int symbolic(int[] leftPointers, int[] leftIndices, int row,
+                 int[] rightPointers, int[] rightIndices);
+
+    // Numeric phase: write the row into outIndices/outValues starting at offset and return the entry count.
+    // Indices are emitted in ascending order when sorted is true.
+    int numeric(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                int[] rightPointers, int[] rightIndices, double[] rightValues,
+                int[] outIndices, double[] outValues, int offset, boolean sorted);
+}
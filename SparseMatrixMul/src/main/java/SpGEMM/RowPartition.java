@@ -0,0 +1,77 @@
+package SpGEMM;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Splits the rows of a sparse product into contiguous chunks of roughly equal work.
+// Work is measured in flops, so a few heavy rows do not end up in the same chunk as
+// thousands of light ones, which a split by row count would do on power-law matrices.
+public final class RowPartition {
+    private static final int CHUNKS_PER_THREAD = 4;   // Extra chunks so work stealing can even out the estimate
+
+    private RowPartition() {
+    }
+
+    // Prefix sum of the per-row flop bound: flops of rows [a, b) = prefix[b] - prefix[a]
+    public static long[] flopPrefix(int[] leftPointers, int[] leftIndices, int rows, int[] rightPointers) {
+        long[] prefix = new long[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            prefix[i + 1] = prefix[i] + AdaptiveAccumulator.rowFlops(leftPointers, leftIndices, i, rightPointers);
+        }
+        return prefix;
+    }
+
+    // Number of chunks to cut for the given pool
+    public static int chunks(ForkJoinPool pool) {
+        return pool.getParallelism() * CHUNKS_PER_THREAD;
+    }
+
+    // Chunk boundaries over rows balanced by flops, with the chunk count the given pool should be fed
+    public static int[] split(long[] workPrefix, ForkJoinPool pool) {
+        return split(workPrefix, chunks(pool));
+    }
+
+    // Chunk boundaries over rows balanced by stored non-zeros, with the chunk count the given pool should be fed
+    public static int[] split(int[] rowPointers, ForkJoinPool pool) {
+        return split(rowPointers, chunks(pool));
+    }
+
+    // Chunk boundaries over rows so that each of the `parts` chunks holds about the same share of the work.
+    // Every row is also counted as one unit of work so that empty rows still spread out.
+    public static int[] split(long[] workPrefix, int parts) {
+        int rows = workPrefix.length - 1;
+        parts = Math.max(1, Math.min(parts, rows));
+        long total = workPrefix[rows] + rows;
+
+        int[] boundaries = new int[parts + 1];
+        boundaries[parts] = rows;
+        int row = 0;
+        for (int p = 1; p < parts; p++) {
+            long target = total * p / parts;
+            while (row < rows && workPrefix[row] + row < target) {
+                row++;
+            }
+            boundaries[p] = row;
+        }
+        return boundaries;
+    }
+
+    // Chunk boundaries over rows balanced by stored non-zeros, for kernels whose work per row is its length
+    // (sparse x dense products). The compressed row pointers already are the work prefix.
+    public static int[] split(int[] rowPointers, int parts) {
+        int rows = rowPointers.length - 1;
+        parts = Math.max(1, Math.min(parts, rows));
+        long total = (long) rowPointers[rows] + rows;
+
+        int[] boundaries = new int[parts + 1];
+        boundaries[parts] = rows;
+        int row = 0;
+        for (int p = 1; p < parts; p++) {
+            long target = total * p / parts;
+            while (row < rows && (long) rowPointers[row] + row < target) {
+                row++;
+            }
+            boundaries[p] = row;
+        }
+        return boundaries;
+    }
+}
@@ -0,0 +1,85 @@
+package SpGEMM;
+
+import java.util.Arrays;
+
+// Gustavson-style sparse accumulator (SPA) for one output row of a sparse product.
+// The operands are given in compressed form (pointers, indices, values), so the same
+// accumulator serves CSR (row of A times B) and CSC (column of B times A).
+// A generation-stamped marker array and a list of touched indices keep the work per row
+// proportional to the flops of that row instead of the full output width.
+public class SparseAccumulator implements RowAccumulator {
+    private final double[] accumulator;   // Dense partial sums, valid only where marker == generation
+    private final int[] marker;           // Generation in which each index was last touched
+    private int generation;               // Current row stamp
+
+    public SparseAccumulator(int width) {
+        this.accumulator = new double[width];
+        this.marker = new int[width];
+        this.generation = 0;
+    }
+
+    // Start a new row; the marker array is only cleared when the stamp wraps around
+    private int nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(marker, 0);
+            generation = 1;
+        }
+        return generation;
+    }
+
+    // Symbolic phase: count the distinct output indices of row `row` of the left operand times the right operand
+    @Override
+    public int symbolic(int[] leftPointers, int[] leftIndices, int row,
+                        int[] rightPointers, int[] rightIndices) {
+        int stamp = nextGeneration();
+        int nonZeroCount = 0;
+
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            for (int k = rightPointers[inner]; k < rightPointers[inner + 1]; k++) {
+                int index = rightIndices[k];
+                if (marker[index] != stamp) {
+                    marker[index] = stamp;
+                    nonZeroCount++;
+                }
+            }
+        }
+        return nonZeroCount;
+    }
+
+    // Numeric phase: compute row `row` of the product and write it into the output arrays starting at offset.
+    // Returns the number of entries written; indices are emitted in ascending order when sorted is true.
+    @Override
+    public int numeric(int[] leftPointers, int[] leftIndices, double[] leftValues, int row,
+                       int[] rightPointers, int[] rightIndices, double[] rightValues,
+                       int[] outIndices, double[] outValues, int offset, boolean sorted) {
+        int stamp = nextGeneration();
+        int position = offset;
+
+        // Scatter the products, recording each index the first time it is touched
+        for (int j = leftPointers[row]; j < leftPointers[row + 1]; j++) {
+            int inner = leftIndices[j];
+            double leftValue = leftValues[j];
+            for (int k = rightPointers[inner]; k < rightPointers[inner + 1]; k++) {
+                int index = rightIndices[k];
+                if (marker[index] != stamp) {
+                    marker[index] = stamp;
+                    accumulator[index] = leftValue * rightValues[k];
+                    outIndices[position++] = index;
+                } else {
+                    accumulator[index] += leftValue * rightValues[k];
+                }
+            }
+        }
+
+        if (sorted) {
+            Arrays.sort(outIndices, offset, position);
+        }
+
+        // Gather only the touched entries
+        for (int p = offset; p < position; p++) {
+            outValues[p] = accumulator[outIndices[p]];
+        }
+        return position - offset;
+    }
+}
@@ -0,0 +1,147 @@
+package testBenchmarkSparseMatrix;
+import CSR.BCSRMatrix;
+import CSR.SellCSigmaMatrix;
+import CSR.SparseFormatSelector;
+import CSR.SparseMatrixCSRMul.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// Compara CSR con BCSR y SELL-C-sigma en SpMV y SpGEMM; los parámetros de cada formato los elige
+// SparseFormatSelector a partir de la estructura de la matriz
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class SparseFormatsBenchmark {
+
+    private CSRMatrix csrMatrix;
+    private BCSRMatrix bcsrMatrix;
+    private BCSRMatrix bcsrRight;      // Operando derecho de A * A con los bloques traspuestos
+    private SellCSigmaMatrix sellMatrix;
+    private double[] x;
+    private double[] y;
+
+    // blocks3/blocks4: malla 2D con 3 o 4 incógnitas por nodo (bloques densos);
+    // shortRows: filas cortas de longitud irregular; uniform: 8 entradas aleatorias por fila
+    @Param({"blocks3", "blocks4", "shortRows", "uniform"})
+    private String structure;
+
+    @Param({"40000", "250000"})  // Número aproximado de filas
+    private int rows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        csrMatrix = switch (structure) {
+            case "blocks3" -> generateBlockGrid((int) Math.sqrt(rows / 3.0), 3);
+            case "blocks4" -> generateBlockGrid((int) Math.sqrt(rows / 4.0), 4);
+            case "shortRows" -> generateRows(rows, true);
+            default -> generateRows(rows, false);
+        };
+        SparseFormatSelector.Choice choice = SparseFormatSelector.choose(csrMatrix);
+        System.out.println("\n" + structure + ": " + choice);
+
+        bcsrMatrix = csrMatrix.toBCSR(choice.blockHeight, choice.blockWidth);
+        // El producto por bloques necesita que el alto de bloque de B sea el ancho de bloque de A; se convierte
+        // aquí para que la conversión no entre en la medida
+        bcsrRight = choice.blockHeight == choice.blockWidth
+                ? bcsrMatrix : csrMatrix.toBCSR(choice.blockWidth, choice.blockHeight);
+        sellMatrix = csrMatrix.toSellCSigma(choice.sliceHeight, choice.sigma);
+        x = new double[csrMatrix.getCols()];
+        Arrays.fill(x, 1.0);
+        y = new double[csrMatrix.getRows()];
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkSpMVCSR() {
+        return csrMatrix.multiply(x, y);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkSpMVBCSR() {
+        return bcsrMatrix.multiply(x, y);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public double[] benchmarkSpMVSELL() {
+        return sellMatrix.multiply(x, y);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    public CSRMatrix benchmarkSpGEMMCSR() {
+        return csrMatrix.multiply(csrMatrix);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    @Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    public BCSRMatrix benchmarkSpGEMMBCSR() {
+        return bcsrMatrix.multiply(bcsrRight);
+    }
+
+    // Método para generar la matriz de una malla side x side con dof incógnitas por nodo y 5 vecinos
+    private CSRMatrix generateBlockGrid(int side, int dof) {
+        int n = side * side * dof;
+        int[] rowPointers = new int[n + 1];
+        int[] columnIndices = new int[n * 5 * dof];
+        double[] values = new double[columnIndices.length];
+        Random random = new Random(side);
+        int nnz = 0;
+        for (int node = 0; node < side * side; node++) {
+            int px = node % side, py = node / side;
+            int[] neighbours = {py > 0 ? node - side : -1, px > 0 ? node - 1 : -1, node,
+                    px + 1 < side ? node + 1 : -1, py + 1 < side ? node + side : -1};
+            for (int d = 0; d < dof; d++) {
+                for (int neighbour : neighbours) {
+                    for (int e = 0; neighbour >= 0 && e < dof; e++) {
+                        columnIndices[nnz] = neighbour * dof + e;
+                        values[nnz++] = random.nextDouble();
+                    }
+                }
+                rowPointers[node * dof + d + 1] = nnz;
+            }
+        }
+        return new CSRMatrix(Arrays.copyOf(values, nnz), Arrays.copyOf(columnIndices, nnz), rowPointers, n, n);
+    }
+
+    // Método para generar filas aleatorias: longitud 8 fija o exponencial de media 4
+    private CSRMatrix generateRows(int n, boolean irregular) {
+        Random random = new Random(n);
+        int[] rowPointers = new int[n + 1];
+        int[] columnIndices = new int[n * 8];
+        double[] values = new double[n * 8];
+        int nnz = 0;
+        for (int i = 0; i < n; i++) {
+            int length = irregular ? Math.min(n, 1 + (int) (-Math.log(1 - random.nextDouble()) * 4)) : Math.min(n, 8);
+            TreeSet<Integer> columns = new TreeSet<>();
+            while (columns.size() < length) {
+                columns.add(random.nextInt(n));
+            }
+            if (nnz + length > columnIndices.length) {
+                columnIndices = Arrays.copyOf(columnIndices, (nnz + length) * 2);
+                values = Arrays.copyOf(values, (nnz + length) * 2);
+            }
+            for (int column : columns) {
+                columnIndices[nnz] = column;
+                values[nnz++] = random.nextDouble();
+            }
+            rowPointers[i + 1] = nnz;
+        }
+        return new CSRMatrix(Arrays.copyOf(values, nnz), Arrays.copyOf(columnIndices, nnz), rowPointers, n, n);
+    }
+}
@@ -18,10 +18,13 @@ public class SparseMatrixCSCMulBenchmark {
     @Param({"10", "100", "1024"})  // Define los tamaños de las matrices a probar
     private int matrixSize;
 
+    @Param({"0.001", "0.01", "0.1"})  // Fracción de entradas no nulas
+    private double density;
+
     @Setup(Level.Trial)
     public void setup() {
-        double[][] matrixA = generateRandomSparseMatrix(matrixSize, matrixSize, 0.1);
-        double[][] matrixB = generateRandomSparseMatrix(matrixSize, matrixSize, 0.1);
+        double[][] matrixA = generateRandomSparseMatrix(matrixSize, matrixSize, density);
+        double[][] matrixB = generateRandomSparseMatrix(matrixSize, matrixSize, density);
 
         // Convertimos las matrices a formato CSC
         cscMatrixA = SparseMatrixCSCMul.convertToCSC(matrixA);
@@ -36,14 +39,14 @@ public class SparseMatrixCSCMulBenchmark {
         return cscMatrixA.multiply(cscMatrixB);
     }
 
-    // Método para generar una matriz dispersa aleatoria
-    private double[][] generateRandomSparseMatrix(int rows, int cols, double sparsity) {
+    // Método para generar una matriz dispersa aleatoria; cada entrada es no nula con probabilidad density
+    private double[][] generateRandomSparseMatrix(int rows, int cols, double density) {
         double[][] matrix = new double[rows][cols];
         Random random = new Random();
 
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                if (random.nextDouble() > sparsity) {
+                if (random.nextDouble() < density) {
                     matrix[i][j] = random.nextDouble() * 10;
                 }
             }
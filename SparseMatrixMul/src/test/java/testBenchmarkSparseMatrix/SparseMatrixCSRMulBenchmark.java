@@ -1,5 +1,7 @@
 package testBenchmarkSparseMatrix;
 import CSR.SparseMatrixCSRMul.*;
+import Planner.Matrix;
+import Planner.MultiplyPlanner;
 import org.openjdk.jmh.annotations.*;
 
 import java.util.concurrent.TimeUnit;
@@ -12,18 +14,27 @@ public class SparseMatrixCSRMulBenchmark {
 
     private CSRMatrix csrMatrixA;
     private CSRMatrix csrMatrixB;
+    private CSR.SymbolicProduct symbolicProduct;
+    private CSRMatrix csrMatrixC;
 
     @Param({"100", "500", "1024"})  // Define los tamaños de las matrices a probar
     private int matrixSize;
 
+    @Param({"0.001", "0.01", "0.1", "0.3"})  // Fracción de entradas no nulas
+    private double density;
+
     @Setup(Level.Trial)
     public void setup() {
-        double[][] matrixA = generateRandomSparseMatrix(matrixSize, matrixSize, 0.1);
-        double[][] matrixB = generateRandomSparseMatrix(matrixSize, matrixSize, 0.1);
+        double[][] matrixA = generateRandomSparseMatrix(matrixSize, matrixSize, density);
+        double[][] matrixB = generateRandomSparseMatrix(matrixSize, matrixSize, density);
 
         // Convertimos las matrices a formato CSR
         csrMatrixA = CSR.SparseMatrixCSRMul.convertToCSR(matrixA);
         csrMatrixB = CSR.SparseMatrixCSRMul.convertToCSR(matrixB);
+
+        // La estructura del producto se calcula una sola vez y se reutiliza en cada iteración
+        symbolicProduct = csrMatrixA.multiplySymbolic(csrMatrixB);
+        csrMatrixC = symbolicProduct.newResult();
     }
 
     @Benchmark
@@ -34,14 +45,33 @@ public class SparseMatrixCSRMulBenchmark {
         return csrMatrixA.multiply(csrMatrixB);
     }
 
-    // Método para generar una matriz dispersa aleatoria
-    private double[][] generateRandomSparseMatrix(int rows, int cols, double sparsity) {
+    // Solo la fase numérica: mismo patrón de dispersión, valores sobrescritos en csrMatrixC
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public CSRMatrix benchmarkNumericReuse() {
+        symbolicProduct.multiply(csrMatrixA, csrMatrixB, csrMatrixC);
+        return csrMatrixC;
+    }
+
+    // El planificador elige el kernel (denso, CSR, CSC o híbrido) según la densidad medida
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public Matrix benchmarkPlannedMultiplication() {
+        return MultiplyPlanner.multiply(Matrix.of(csrMatrixA), Matrix.of(csrMatrixB));
+    }
+
+    // Método para generar una matriz dispersa aleatoria; cada entrada es no nula con probabilidad density
+    private double[][] generateRandomSparseMatrix(int rows, int cols, double density) {
         double[][] matrix = new double[rows][cols];
         Random random = new Random();
 
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                if (random.nextDouble() > sparsity) {
+                if (random.nextDouble() < density) {
                     matrix[i][j] = random.nextDouble() * 10;
                 }
             }
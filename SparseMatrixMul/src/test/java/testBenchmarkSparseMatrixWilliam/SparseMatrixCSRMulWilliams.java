@@ -1,146 +1,76 @@
 package testBenchmarkSparseMatrixWilliam;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import CSR.PrunedSpGEMM;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import CSR.StreamingSpGEMM;
+import IO.MatrixMarketReader;
+
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public class SparseMatrixCSRMulWilliams {
-    static class CSRMatrix {
-        double[] values;
-        int[] columnIndices;
-        int[] rowPointers;
-
-        int rows, cols;
-
-        CSRMatrix(double[] values, int[] columnIndices, int[] rowPointers, int rows, int cols) {
-            this.values = values;
-            this.columnIndices = columnIndices;
-            this.rowPointers = rowPointers;
-            this.rows = rows;
-            this.cols = cols;
-        }
-
-        public void printCSRDetails() {
-            System.out.println("CSR Representation:");
-            System.out.println("Values: " + Arrays.toString(values));
-            System.out.println("Column Indices: " + Arrays.toString(columnIndices));
-            System.out.println("Row Pointers: " + Arrays.toString(rowPointers));
-        }
-
-        public CSRMatrix multiply(CSRMatrix B) {
-            if (this.cols != B.rows) {
-                throw new IllegalArgumentException("Matrix dimensions do not match for multiplication.");
-            }
-            List<Double> resultValues = new ArrayList<>();
-            List<Integer> resultColumnIndices = new ArrayList<>();
-            List<Integer> resultRowPointers = new ArrayList<>();
-            resultRowPointers.add(0);
-
-            double[] rowResult = new double[B.cols];
-            for (int i = 0; i < this.rows; i++) {
-                Arrays.fill(rowResult, 0.0);
-                for (int j = this.rowPointers[i]; j < this.rowPointers[i + 1]; j++) {
-                    int colA = this.columnIndices[j];
-                    double valA = this.values[j];
-                    for (int k = B.rowPointers[colA]; k < B.rowPointers[colA + 1]; k++) {
-                        int colB = B.columnIndices[k];
-                        double valB = B.values[k];
-                        rowResult[colB] += valA * valB;
-                    }
-                }
-
-                int nonZeroCount = 0;
-                for (int j = 0; j < B.cols; j++) {
-                    if (rowResult[j] != 0.0) {
-                        resultValues.add(rowResult[j]);
-                        resultColumnIndices.add(j);
-                        nonZeroCount++;
-                    }
-                }
-                resultRowPointers.add(resultRowPointers.get(resultRowPointers.size() - 1) + nonZeroCount);
-            }
-
-            double[] resultValuesArray = resultValues.stream().mapToDouble(Double::doubleValue).toArray();
-            int[] resultColumnIndicesArray = resultColumnIndices.stream().mapToInt(Integer::intValue).toArray();
-            int[] resultRowPointersArray = resultRowPointers.stream().mapToInt(Integer::intValue).toArray();
-
-            return new CSRMatrix(resultValuesArray, resultColumnIndicesArray, resultRowPointersArray, this.rows, B.cols);
-        }
-    }
 
+    // Carga la matriz con el lector compartido: mapea el fichero en memoria, lo analiza en paralelo
+    // y ordena las entradas por fila, así que funciona con ficheros ordenados por columna y simétricos
     public static CSRMatrix loadMatrixFromMTX(String filename) throws IOException {
-        List<Double> valuesList = new ArrayList<>();
-        List<Integer> columnIndicesList = new ArrayList<>();
-        List<Integer> rowPointersList = new ArrayList<>();
-
-        int rows = 0, cols = 0;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("%")) continue;
-                String[] parts = line.trim().split("\\s+");
-                if (rows == 0 && parts.length == 3) {
-                    rows = Integer.parseInt(parts[0]);
-                    cols = Integer.parseInt(parts[1]);
-                    rowPointersList.add(0);
-                } else {
-                    int row = Integer.parseInt(parts[0]) - 1;
-                    int col = Integer.parseInt(parts[1]) - 1;
-                    double value = Double.parseDouble(parts[2]);
-
-                    while (rowPointersList.size() <= row) {
-                        rowPointersList.add(valuesList.size());
-                    }
-
-                    valuesList.add(value);
-                    columnIndicesList.add(col);
-                }
-            }
-        }
-        while (rowPointersList.size() <= rows) {
-            rowPointersList.add(valuesList.size());
-        }
-
-        double[] values = valuesList.stream().mapToDouble(Double::doubleValue).toArray();
-        int[] columnIndices = columnIndicesList.stream().mapToInt(Integer::intValue).toArray();
-        int[] rowPointers = rowPointersList.stream().mapToInt(Integer::intValue).toArray();
-
-        return new CSRMatrix(values, columnIndices, rowPointers, rows, cols);
+        return MatrixMarketReader.readCSR(Path.of(filename));
     }
 
     public static void main(String[] args) {
         try {
             CSRMatrix williamMatrix = loadMatrixFromMTX("C:\\Users\\jorge gonzalez\\Downloads\\mc2depi\\mc2depi\\mc2depi.mtx");
 
+            System.out.println("\nMultiplying William Matrix by itself:");
+            long serialTime = measure("Secuencial", () -> williamMatrix.multiply(williamMatrix));
+            long parallelTime = measure("Paralelo (" + Runtime.getRuntime().availableProcessors() + " hilos)",
+                    () -> williamMatrix.multiplyParallel(williamMatrix));
+
+            System.out.println("\nAceleración: " + String.format("%.2f", (double) serialTime / Math.max(1, parallelTime)) + "x");
+
+            // Producto por bloques de filas escrito a un fichero binario: la memoria la fija el bloque, no nnz(C)
+            Path output = Files.createTempFile("william", ".spmx");
+            try {
+                StreamingSpGEMM.Stats streaming = StreamingSpGEMM.multiplyToFile(williamMatrix, williamMatrix,
+                        1 << 22, ForkJoinPool.commonPool(), output);
+                System.out.println("\nStreaming a fichero: " + streaming);
+            } finally {
+                Files.delete(output);
+            }
 
-            // Medir tiempo de inicio
-            long startTime = System.nanoTime();
+            // Producto podado: solo se guardan las k entradas mayores de cada fila y se cuentan las descartadas
+            PrunedSpGEMM.Result pruned = williamMatrix.multiplyPruned(williamMatrix, PrunedSpGEMM.Pruning.topK(16));
+            System.out.println("\nProducto podado (top 16 por fila): " + pruned.getStats());
+        } catch (IOException e) {
+            System.out.println("Error reading matrix file: " + e.getMessage());
+        }
+    }
 
-            // Medir memoria antes de la multiplicación
-            Runtime runtime = Runtime.getRuntime();
-            runtime.gc();  // Solicitar la recolección de basura para liberar memoria
-            long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+    // Mide tiempo y memoria de una multiplicación y devuelve el tiempo en milisegundos
+    private static long measure(String label, Supplier<CSRMatrix> multiplication) {
+        // Medir memoria antes de la multiplicación
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();  // Solicitar la recolección de basura para liberar memoria
+        long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
 
-            System.out.println("\nMultiplying William Matrix by itself:");
-            CSRMatrix resultMatrix = williamMatrix.multiply(williamMatrix);
+        // Medir tiempo de inicio
+        long startTime = System.nanoTime();
 
-            // Medir tiempo de finalización
-            long endTime = System.nanoTime();
-            long duration = (endTime - startTime) / 1_000_000;  // Convertir a milisegundos
+        multiplication.get();
 
-            // Medir memoria después de la multiplicación
-            long memoryAfter = runtime.totalMemory() - runtime.freeMemory();
-            long memoryUsed = memoryAfter - memoryBefore;
+        // Medir tiempo de finalización
+        long endTime = System.nanoTime();
+        long duration = (endTime - startTime) / 1_000_000;  // Convertir a milisegundos
 
+        // Medir memoria después de la multiplicación
+        long memoryAfter = runtime.totalMemory() - runtime.freeMemory();
+        long memoryUsed = memoryAfter - memoryBefore;
 
-            System.out.println("\nTiempo de ejecución: " + duration + " ms");
-            System.out.println("Memoria utilizada: " + memoryUsed / 1024 + " KB");
-        } catch (IOException e) {
-            System.out.println("Error reading matrix file: " + e.getMessage());
-        }
+        System.out.println("\n" + label + ":");
+        System.out.println("Tiempo de ejecución: " + duration + " ms");
+        System.out.println("Memoria utilizada: " + memoryUsed / 1024 + " KB");
+        return duration;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package testBinarySparseFormat;
+
+import CSC.SparseMatrixCSCMul;
+import CSC.SparseMatrixCSCMul.CSCMatrix;
+import CSR.SparseMatrixCSRMul;
+import CSR.SparseMatrixCSRMul.CSRMatrix;
+import IO.BinarySparseFormat;
+import IO.MatrixMarketReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+// Round trip: dense -> CSR/CSC -> binary file -> CSR/CSC, and .mtx -> binary -> CSR
+public class BinarySparseFormatRoundTrip {
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("spmx");
+        try {
+            for (int size : new int[]{1, 10, 100, 500}) {
+                double[][] matrix = generateRandomSparseMatrix(size, size + 3, 0.05);
+
+                CSRMatrix csr = SparseMatrixCSRMul.convertToCSR(matrix);
+                Path csrFile = directory.resolve("csr-" + size + ".spmx");
+                BinarySparseFormat.write(csr, csrFile);
+                check(BinarySparseFormat.readCSR(csrFile), csr, "CSR " + size);
+
+                CSCMatrix csc = SparseMatrixCSCMul.convertToCSC(matrix);
+                Path cscFile = directory.resolve("csc-" + size + ".spmx");
+                BinarySparseFormat.write(csc, cscFile);
+                check(BinarySparseFormat.readCSC(cscFile), csc, "CSC " + size);
+            }
+
+            // Conversión desde Matrix Market
+            Path mtx = directory.resolve("small.mtx");
+            Files.writeString(mtx, """
+                    %%MatrixMarket matrix coordinate real symmetric
+                    % matriz de ejemplo
+                    4 4 5
+                    1 1 1.5
+                    3 1 -2
+                    2 2 3e-1
+                    4 3 4
+                    4 4 5.25
+                    """);
+            Path binary = directory.resolve("small.spmx");
+            BinarySparseFormat.convert(mtx, binary, BinarySparseFormat.FORMAT_CSR);
+            // Matriz completa escrita a mano: cada entrada fuera de la diagonal aparece también reflejada
+            CSRMatrix expected = new CSRMatrix(
+                    new double[]{1.5, -2, 0.3, -2, 4, 4, 5.25},
+                    new int[]{0, 2, 1, 0, 3, 2, 3},
+                    new int[]{0, 2, 3, 5, 7}, 4, 4);
+            check(MatrixMarketReader.readCSR(mtx), expected, "MTX reader");
+            check(BinarySparseFormat.readCSR(binary), expected, "MTX");
+
+            System.out.println("Binary sparse format round trip: OK");
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void check(CSRMatrix actual, CSRMatrix expected, String label) {
+        if (actual.getRows() != expected.getRows() || actual.getCols() != expected.getCols()
+                || !Arrays.equals(actual.getRowPointers(), expected.getRowPointers())
+                || !Arrays.equals(actual.getColumnIndices(), expected.getColumnIndices())
+                || !Arrays.equals(actual.getValues(), expected.getValues())) {
+            throw new AssertionError("Round trip mismatch: " + label);
+        }
+    }
+
+    private static void check(CSCMatrix actual, CSCMatrix expected, String label) {
+        if (actual.getRows() != expected.getRows() || actual.getCols() != expected.getCols()
+                || !Arrays.equals(actual.getColPointers(), expected.getColPointers())
+                || !Arrays.equals(actual.getRowIndices(), expected.getRowIndices())
+                || !Arrays.equals(actual.getValues(), expected.getValues())) {
+            throw new AssertionError("Round trip mismatch: " + label);
+        }
+    }
+
+    // Método para generar una matriz dispersa aleatoria con la densidad indicada
+    private static double[][] generateRandomSparseMatrix(int rows, int cols, double density) {
+        double[][] matrix = new double[rows][cols];
+        Random random = new Random(rows);
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (random.nextDouble() < density) {
+                    matrix[i][j] = random.nextDouble() * 10;
+                }
+            }
+        }
+        return matrix;
+    }
+}